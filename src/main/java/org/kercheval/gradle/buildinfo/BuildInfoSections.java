@@ -0,0 +1,112 @@
+package org.kercheval.gradle.buildinfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+
+import org.gradle.api.Project;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.kercheval.gradle.info.InfoSource;
+import org.kercheval.gradle.info.InfoSourceCollector;
+import org.kercheval.gradle.info.SortedProperties;
+
+//
+// In a multi-project build every project applying the buildinfo plugin has its
+// own buildinfo task. The machine, VCS and CI information is the same for all
+// of them, so it is collected once per build and shared here. Sections are
+// identified by their property prefix. Project specific information (gradle
+// and custom info) is not collected through this class.
+//
+public class BuildInfoSections
+{
+	//
+	// One instance per build. The gradle object is weakly held so the sections
+	// are released with the build when the daemon is reused.
+	//
+	private static final Map<Gradle, BuildInfoSections> BUILD_SECTIONS = new WeakHashMap<>();
+
+	//
+	// The collected information by property prefix. Inactive sources are
+	// stored as null. A source that did not complete is not stored, so it is
+	// collected again by the next project rather than reported as unavailable
+	// for the whole build.
+	//
+	private final Map<String, SortedProperties> sectionMap = new HashMap<>();
+
+	public static BuildInfoSections getInstance(final Project project)
+	{
+		final Gradle gradle = project.getGradle();
+
+		synchronized (BUILD_SECTIONS)
+		{
+			BuildInfoSections rVal = BUILD_SECTIONS.get(gradle);
+
+			if (null == rVal)
+			{
+				rVal = new BuildInfoSections();
+				BUILD_SECTIONS.put(gradle, rVal);
+			}
+
+			return rVal;
+		}
+	}
+
+	//
+	// Return the information for each source in the order given, collecting
+	// (concurrently) only the sections not already collected in this build.
+	// The properties returned are copies and may be modified by the caller.
+	// Unavailable placeholders are returned but not stored.
+	//
+	public synchronized Map<InfoSource, SortedProperties> collect(final List<InfoSource> sources,
+		final Logger logger, final long timeout)
+	{
+		final List<InfoSource> missingSources = new ArrayList<>();
+
+		for (final InfoSource source : sources)
+		{
+			if (!sectionMap.containsKey(source.getPropertyPrefix()))
+			{
+				missingSources.add(source);
+			}
+		}
+
+		final Map<String, SortedProperties> collectedMap = new HashMap<>();
+
+		for (final Entry<InfoSource, SortedProperties> entry : new InfoSourceCollector(logger,
+			timeout).collect(missingSources).entrySet())
+		{
+			final InfoSource source = entry.getKey();
+
+			collectedMap.put(source.getPropertyPrefix(), entry.getValue());
+			if (!InfoSourceCollector.isUnavailable(source, entry.getValue()))
+			{
+				sectionMap.put(source.getPropertyPrefix(), entry.getValue());
+			}
+		}
+
+		final Map<InfoSource, SortedProperties> rVal = new LinkedHashMap<>();
+
+		for (final InfoSource source : sources)
+		{
+			final String prefix = source.getPropertyPrefix();
+			final SortedProperties props = sectionMap.containsKey(prefix) ? sectionMap.get(prefix)
+				: collectedMap.get(prefix);
+			SortedProperties propsCopy = null;
+
+			if (null != props)
+			{
+				propsCopy = new SortedProperties();
+				propsCopy.putAll(props);
+			}
+
+			rVal.put(source, propsCopy);
+		}
+
+		return rVal;
+	}
+}
@@ -2,17 +2,26 @@ package org.kercheval.gradle.buildinfo;
 
 import groovy.lang.Closure;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
@@ -20,6 +29,7 @@ import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionGraph;
 import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.file.CopySpec;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.AbstractCopyTask;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
@@ -28,6 +38,7 @@ import org.kercheval.gradle.buildvcs.BuildVCSTask;
 import org.kercheval.gradle.info.GradleInfoSource;
 import org.kercheval.gradle.info.HudsonInfoSource;
 import org.kercheval.gradle.info.InfoSource;
+import org.kercheval.gradle.info.InfoSourceCollector;
 import org.kercheval.gradle.info.JenkinsInfoSource;
 import org.kercheval.gradle.info.MachineInfoSource;
 import org.kercheval.gradle.info.SortedProperties;
@@ -36,6 +47,32 @@ import org.kercheval.gradle.info.TeamCityInfoSource;
 public class BuildInfoTask
 	extends DefaultTask
 {
+	//
+	// The rendered content of the info file and of the volatile info file (the
+	// same content when not reproducible)
+	//
+	private static class RenderedInfo
+	{
+		private final String info;
+		private final String volatileInfo;
+
+		RenderedInfo(final String info, final String volatileInfo)
+		{
+			this.info = info;
+			this.volatileInfo = volatileInfo;
+		}
+
+		String getInfo()
+		{
+			return info;
+		}
+
+		String getVolatileInfo()
+		{
+			return volatileInfo;
+		}
+	}
+
 	public static final String DEFAULT_FILENAME = "buildinfo.properties";
 	public static final boolean DEFAULT_AUTOWRITE = true;
 	private static final Map<String, String> DEFAULT_TASKMAP_PRIVATE = new HashMap<>();
@@ -48,8 +85,25 @@ public class BuildInfoTask
 	public static final Map<String, String> DEFAULT_TASKMAP = Collections
 		.unmodifiableMap(DEFAULT_TASKMAP_PRIVATE);
 	public static final boolean DEFAULT_SHOWINFO_SECTION = true;
+	public static final boolean DEFAULT_REPRODUCIBLE = false;
+	public static final String DEFAULT_VOLATILEFILENAME = "buildinfo-volatile.properties";
+	public static final long DEFAULT_SOURCETIMEOUT = InfoSourceCollector.DEFAULT_TIMEOUT;
+	public static final long DEFAULT_MACHINEINFOTTL = MachineInfoSource.DEFAULT_CACHE_TTL;
 
 	static private final String EOL = System.getProperty("line.separator");
+	static private final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+
+	//
+	// The lines of an info file that is not reproducible that change on every
+	// build: the date in the header (group 1 keeps the rest of the header), the
+	// date comment of each section and the machine time. They are left out when
+	// the content is compared, see writeInfoFile.
+	//
+	static private final Pattern VOLATILE_LINE_PATTERN = Pattern.compile(
+		"^(# Build Info Created by \\S+) on .*$"
+			+ "|^#[A-Z][a-z]{2} [A-Z][a-z]{2} \\d{2} \\d{2}:\\d{2}:\\d{2} \\S+ \\d{4}$"
+			+ "|^" + Pattern.quote(MachineInfoSource.PROPERTY_PREFIX + "."
+				+ MachineInfoSource.TIME_PROPERTY + "=") + ".*$", Pattern.MULTILINE);
 
 	//
 	// If true, the buildinfo file will be written automatically at
@@ -89,6 +143,30 @@ public class BuildInfoTask
 	private boolean showvscinfo = DEFAULT_SHOWINFO_SECTION;
 	private boolean showciinfo = DEFAULT_SHOWINFO_SECTION;
 
+	//
+	// If reproducible is true, the info file is written without volatile
+	// information (creation date, scheduled tasks, machine time and CI build
+	// identifiers) so that identical builds produce identical files. The volatile
+	// information is written to the volatilefilename file in the same directory,
+	// which is never added to tasks in the taskmap.
+	//
+	private boolean reproducible = DEFAULT_REPRODUCIBLE;
+	private String volatilefilename = DEFAULT_VOLATILEFILENAME;
+
+	//
+	// The information sources are collected concurrently. The sourcetimeout is
+	// the time in milliseconds to wait for the sources before a placeholder
+	// value is written for any source that has not completed.
+	//
+	private long sourcetimeout = DEFAULT_SOURCETIMEOUT;
+
+	//
+	// The machine host name and address lookup is cached in the gradle daemon
+	// and under the gradle user home for this time in milliseconds. A value of
+	// zero disables the cache.
+	//
+	private long machineinfottl = DEFAULT_MACHINEINFOTTL;
+
 	//
 	// The filedirWasSet variable is used to determine if the filedir has
 	// explicitly been set in the build file. If not, we update our internal
@@ -116,6 +194,59 @@ public class BuildInfoTask
 			throw new TaskExecutionException(this, e);
 		}
 
+		//
+		// The info file (and the volatile info file when reproducible) is the task
+		// output and the rendered content of the info file is the task input. The
+		// input is rendered without changing the task, the action renders the
+		// content again (the shared sections are collected once per build). Output
+		// that is not reproducible is never up-to-date.
+		//
+		getOutputs().file(new Callable<File>()
+		{
+			@Override
+			public File call()
+				throws IOException
+			{
+				return getInfoFile(getFilename());
+			}
+		});
+		getOutputs().files(new Callable<List<File>>()
+		{
+			@Override
+			public List<File> call()
+				throws IOException
+			{
+				if (isReproducible())
+				{
+					return Collections.singletonList(getInfoFile(getVolatilefilename()));
+				}
+
+				return Collections.emptyList();
+			}
+		});
+		getInputs().property("info", new Callable<String>()
+		{
+			@Override
+			public String call()
+				throws IOException
+			{
+				if (isReproducible())
+				{
+					return renderInfo().getInfo();
+				}
+
+				return "";
+			}
+		});
+		getOutputs().upToDateWhen(new Spec<Task>()
+		{
+			@Override
+			public boolean isSatisfiedBy(final Task task)
+			{
+				return isReproducible();
+			}
+		});
+
 		//
 		// Add a listener to automatically write the build info file as soon
 		// as the task graph is completed. This ensures that all tasks have
@@ -240,126 +371,56 @@ public class BuildInfoTask
 	@TaskAction
 	public void doTask()
 	{
-		//
-		// Obtain the project properties
-		//
 		final Project project = getProject();
-		final BuildVCSTask vcsTask = (BuildVCSTask) new GradleInfoSource(project)
-			.getTask(BuildVCSPlugin.VCS_TASK_NAME);
 
 		try
 		{
+			final RenderedInfo renderedInfo = renderInfo();
 
 			//
 			// Use mkdir support to ensure the directory exists
 			//
-			final File buildDirFile = new File(getFiledir());
-
-			project.mkdir(buildDirFile);
-
-			//
-			// Create the file spec for our file writer
-			//
-			final StringBuilder sb = new StringBuilder();
-
-			sb.append(buildDirFile.getCanonicalPath());
-			sb.append("/");
-			sb.append(getFilename());
+			project.mkdir(new File(getFiledir()));
 
-			final BufferedWriter out = new BufferedWriter(new FileWriter(sb.toString()));
+			writeInfoFile(getInfoFile(getFilename()), renderedInfo.getInfo(), !isReproducible());
 
-			//
-			// Write out the header
-			//
-			out.write("#");
-			out.write(EOL);
-			out.write("# Build Info Created by ");
-			out.write(getName());
-			out.write(" on ");
-			out.write(new Date().toString());
-			out.write(EOL);
-			out.write("#");
-			out.write(EOL);
-
-			if (isShowtaskinfo())
+			if (isReproducible())
 			{
-				try
-				{
-					final List<Task> taskList = project.getGradle().getTaskGraph().getAllTasks();
-
-					out.write("# Tasks executing in this build");
-					out.write(EOL);
-
-					//
-					// Include all the tasks that are to be executed in this build.
-					// These are scheduled tasks, there is no guarantee that the tasks
-					// will actually be run or will have succeeded if run
-					//
-					for (final Task task : taskList)
-					{
-						out.write("#   ");
-						out.write(task.getPath());
-						out.write(EOL);
-					}
-
-					out.write("#");
-					out.write(EOL);
-					out.write("#");
-					out.write(EOL);
-				}
-				catch (final IllegalStateException e)
-				{
-
-					// Ignore if doTask called prior to task graph ready
-				}
+				writeInfoFile(getInfoFile(getVolatilefilename()), renderedInfo.getVolatileInfo(),
+					false);
 			}
+		}
+		catch (final IOException e)
+		{
+			throw new TaskExecutionException(this, e);
+		}
+	}
 
-			out.write(EOL);
-
-			//
-			// If custom info is specified in the gradle build file, go ahead and place that
-			// in the info file at the beginning
-			//
-			if ((getCustominfo() != null) && !getCustominfo().isEmpty())
-			{
-				final Properties customProps = new SortedProperties();
-
-				for (final Entry<String, Object> entry : getCustominfo().entrySet())
-				{
-					customProps.put("custom.info." + entry.getKey(), entry.getValue().toString());
-				}
+	//
+	// Return the digest of the content. If ignoreVolatile is true, the lines that
+	// change on every build (see VOLATILE_LINE_PATTERN) are left out.
+	//
+	private static byte[] getDigest(final byte[] content, final boolean ignoreVolatile)
+	{
+		byte[] digestContent = content;
 
-				customProps.store(out, "Custom build info specified in gradle build file");
-				out.write(EOL);
-				out.write(EOL);
-			}
+		if (ignoreVolatile)
+		{
+			digestContent = VOLATILE_LINE_PATTERN
+				.matcher(new String(content, Charset.defaultCharset())).replaceAll("$1")
+				.getBytes(Charset.defaultCharset());
+		}
 
-			//
-			// Grab properties from our various information sources
-			//
-			if (isShowmachineinfo())
-			{
-				maybeStoreProperties(out, new MachineInfoSource(project));
-			}
-			if (isShowgradleinfo())
-			{
-				maybeStoreProperties(out, new GradleInfoSource(project));
-			}
-			if (isShowvscinfo())
-			{
-				maybeStoreProperties(out, vcsTask.getInfoSource());
-			}
-			if (isShowciinfo())
-			{
-				maybeStoreProperties(out, new JenkinsInfoSource());
-				maybeStoreProperties(out, new HudsonInfoSource());
-				maybeStoreProperties(out, new TeamCityInfoSource());
-			}
-			out.close();
+		try
+		{
+			return MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM).digest(digestContent);
 		}
-		catch (final IOException e)
+		catch (final NoSuchAlgorithmException e)
 		{
-			throw new TaskExecutionException(this, e);
+			//
+			// Every JVM is required to supply this algorithm
+			//
+			throw new IllegalStateException(e);
 		}
 	}
 
@@ -378,16 +439,48 @@ public class BuildInfoTask
 		return filename;
 	}
 
+	private File getInfoFile(final String name)
+		throws IOException
+	{
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append(new File(getFiledir()).getCanonicalPath());
+		sb.append("/");
+		sb.append(name);
+
+		return new File(sb.toString());
+	}
+
+	public long getMachineinfottl()
+	{
+		return machineinfottl;
+	}
+
+	public long getSourcetimeout()
+	{
+		return sourcetimeout;
+	}
+
 	public Map<String, String> getTaskmap()
 	{
 		return taskmap;
 	}
 
+	public String getVolatilefilename()
+	{
+		return volatilefilename;
+	}
+
 	public boolean isAutowrite()
 	{
 		return autowrite;
 	}
 
+	public boolean isReproducible()
+	{
+		return reproducible;
+	}
+
 	public boolean isShowciinfo()
 	{
 		return showciinfo;
@@ -413,17 +506,190 @@ public class BuildInfoTask
 		return showvscinfo;
 	}
 
-	private void maybeStoreProperties(final BufferedWriter out, final InfoSource infoSource)
+	//
+	// Store the collected information for a source. Inactive sources were
+	// collected as null and are not written.
+	//
+	private void maybeStoreProperties(final Writer out, final InfoSource infoSource,
+		final Map<InfoSource, SortedProperties> infoMap)
 		throws IOException
 	{
-		if (infoSource.isActive())
+		final SortedProperties props = infoMap.get(infoSource);
+
+		if (null != props)
 		{
-			infoSource.getInfo().store(out, infoSource.getDescription());
-			out.write(EOL);
-			out.write(EOL);
+			storeProperties(out, props, infoSource.getDescription());
 		}
 	}
 
+	//
+	// Render the info file (and the volatile info file when reproducible) into
+	// memory. When not reproducible, all information goes to the info file. The
+	// task is not changed, so the content may be rendered for the up-to-date
+	// check and again by the task action.
+	//
+	private RenderedInfo renderInfo()
+		throws IOException
+	{
+		//
+		// Obtain the project properties
+		//
+		final Project project = getProject();
+		final BuildVCSTask vcsTask = (BuildVCSTask) new GradleInfoSource(project)
+			.getTask(BuildVCSPlugin.VCS_TASK_NAME);
+
+		final StringWriter out = new StringWriter();
+		StringWriter volatileOut = out;
+
+		//
+		// Write out the header
+		//
+		if (isReproducible())
+		{
+			volatileOut = new StringWriter();
+			writeHeader(out, false);
+			writeHeader(volatileOut, true);
+		}
+		else
+		{
+			writeHeader(out, true);
+		}
+
+		if (isShowtaskinfo())
+		{
+			try
+			{
+				final List<Task> taskList = project.getGradle().getTaskGraph().getAllTasks();
+
+				volatileOut.write("# Tasks executing in this build");
+				volatileOut.write(EOL);
+
+				//
+				// Include all the tasks that are to be executed in this build.
+				// These are scheduled tasks, there is no guarantee that the tasks
+				// will actually be run or will have succeeded if run
+				//
+				for (final Task task : taskList)
+				{
+					volatileOut.write("#   ");
+					volatileOut.write(task.getPath());
+					volatileOut.write(EOL);
+				}
+
+				volatileOut.write("#");
+				volatileOut.write(EOL);
+				volatileOut.write("#");
+				volatileOut.write(EOL);
+			}
+			catch (final IllegalStateException e)
+			{
+
+				// Ignore if doTask called prior to task graph ready
+			}
+		}
+
+		out.write(EOL);
+		if (isReproducible())
+		{
+			volatileOut.write(EOL);
+		}
+
+		//
+		// If custom info is specified in the gradle build file, go ahead and place that
+		// in the info file at the beginning
+		//
+		if ((getCustominfo() != null) && !getCustominfo().isEmpty())
+		{
+			final SortedProperties customProps = new SortedProperties();
+
+			for (final Entry<String, Object> entry : getCustominfo().entrySet())
+			{
+				customProps.put("custom.info." + entry.getKey(), entry.getValue().toString());
+			}
+
+			storeProperties(out, customProps, "Custom build info specified in gradle build file");
+		}
+
+		//
+		// Grab properties from our various information sources. The machine, VCS
+		// and CI sources are the same for every project in the build, so they are
+		// collected (concurrently) once per build and shared. Sections are written
+		// in a fixed order. The gradle information is project specific and reads
+		// the project model, so it is collected directly on the build thread.
+		//
+		final MachineInfoSource machineInfo = new MachineInfoSource(project, getMachineinfottl());
+		final List<InfoSource> ciInfoList = Arrays.<InfoSource> asList(new JenkinsInfoSource(),
+			new HudsonInfoSource(), new TeamCityInfoSource());
+		final List<InfoSource> sourceList = new ArrayList<>();
+		InfoSource vcsInfo = null;
+
+		if (isShowmachineinfo())
+		{
+			sourceList.add(machineInfo);
+		}
+		if (isShowvscinfo())
+		{
+			vcsInfo = vcsTask.getInfoSource();
+			sourceList.add(vcsInfo);
+		}
+		if (isShowciinfo())
+		{
+			sourceList.addAll(ciInfoList);
+		}
+
+		final Map<InfoSource, SortedProperties> infoMap = BuildInfoSections.getInstance(project)
+			.collect(sourceList, project.getLogger(), getSourcetimeout());
+
+		if (isShowmachineinfo())
+		{
+			final SortedProperties machineProps = infoMap.get(machineInfo);
+
+			if (isReproducible())
+			{
+				//
+				// The machine time is split out into the volatile file
+				//
+				final SortedProperties volatileProps = new SortedProperties();
+				final String timeKey = machineInfo.getPropertyPrefix() + "."
+					+ MachineInfoSource.TIME_PROPERTY;
+
+				if (machineProps.containsKey(timeKey))
+				{
+					volatileProps.addProperty(timeKey, machineProps.remove(timeKey));
+				}
+
+				storeProperties(out, machineProps, machineInfo.getDescription());
+				storeProperties(volatileOut, volatileProps, machineInfo.getDescription());
+			}
+			else
+			{
+				maybeStoreProperties(out, machineInfo, infoMap);
+			}
+		}
+		if (isShowgradleinfo())
+		{
+			final GradleInfoSource gradleInfo = new GradleInfoSource(project);
+
+			storeProperties(out, gradleInfo.getInfo(), gradleInfo.getDescription());
+		}
+		if (isShowvscinfo())
+		{
+			maybeStoreProperties(out, vcsInfo, infoMap);
+		}
+		if (isShowciinfo())
+		{
+			//
+			// CI information identifies the individual build and is always volatile
+			//
+			for (final InfoSource ciInfo : ciInfoList)
+			{
+				maybeStoreProperties(volatileOut, ciInfo, infoMap);
+			}
+		}
+
+		return new RenderedInfo(out.toString(), volatileOut.toString());
+	}
+
 	public void setAutowrite(final boolean autowrite)
 	{
 		this.autowrite = autowrite;
@@ -445,6 +711,16 @@ public class BuildInfoTask
 		this.filename = filename;
 	}
 
+	public void setMachineinfottl(final long machineinfottl)
+	{
+		this.machineinfottl = machineinfottl;
+	}
+
+	public void setReproducible(final boolean reproducible)
+	{
+		this.reproducible = reproducible;
+	}
+
 	public void setShowciinfo(final boolean showciinfo)
 	{
 		this.showciinfo = showciinfo;
@@ -470,8 +746,101 @@ public class BuildInfoTask
 		this.showvscinfo = showvscinfo;
 	}
 
+	public void setSourcetimeout(final long sourcetimeout)
+	{
+		this.sourcetimeout = sourcetimeout;
+	}
+
 	public void setTaskmap(final Map<String, String> taskmap)
 	{
 		this.taskmap = taskmap;
 	}
+
+	public void setVolatilefilename(final String volatilefilename)
+	{
+		this.volatilefilename = volatilefilename;
+	}
+
+	private void storeProperties(final Writer out, final SortedProperties props,
+		final String comments)
+		throws IOException
+	{
+		if (isReproducible())
+		{
+			props.storeWithoutDate(out, comments);
+		}
+		else
+		{
+			props.store(out, comments);
+		}
+		out.write(EOL);
+		out.write(EOL);
+	}
+
+	private void writeHeader(final Writer out, final boolean includeDate)
+		throws IOException
+	{
+		out.write("#");
+		out.write(EOL);
+		out.write("# Build Info Created by ");
+		out.write(getName());
+		if (includeDate)
+		{
+			out.write(" on ");
+			out.write(new Date().toString());
+		}
+		out.write(EOL);
+		out.write("#");
+		out.write(EOL);
+	}
+
+	//
+	// Write the content only if it differs from the current file content. The
+	// file is written to a temporary file and moved into place so that readers
+	// never see a partially written file and an unchanged file keeps its
+	// modification time. If ignoreVolatile is true (the info file when not
+	// reproducible), content that differs only in the creation date and machine
+	// time is unchanged, so the file keeps the date and time of the build that
+	// last changed it.
+	//
+	private void writeInfoFile(final File infoFile, final String content,
+		final boolean ignoreVolatile)
+		throws IOException
+	{
+		final byte[] contentBytes = content.getBytes(Charset.defaultCharset());
+
+		if (infoFile.isFile()
+			&& MessageDigest.isEqual(
+				getDigest(Files.readAllBytes(infoFile.toPath()), ignoreVolatile),
+				getDigest(contentBytes, ignoreVolatile)))
+		{
+			getProject().getLogger().info(
+				"buildinfo: file content unchanged, not rewritten: " + infoFile.getPath());
+
+			return;
+		}
+
+		final File tempFile = File.createTempFile(infoFile.getName(), ".tmp",
+			infoFile.getParentFile());
+
+		try
+		{
+			Files.write(tempFile.toPath(), contentBytes);
+
+			try
+			{
+				Files.move(tempFile.toPath(), infoFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (final AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath(), infoFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(tempFile.toPath());
+		}
+	}
 }
@@ -1,5 +1,7 @@
 package org.kercheval.gradle.buildrelease;
 
+import java.util.Arrays;
+
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
 import org.gradle.api.tasks.TaskAction;
@@ -90,8 +92,11 @@ public class BuildReleaseInitTask
 				vcsUtil.validateWorkspaceIsClean();
 			}
 
-			vcsUtil.getVCS().createBranch(getMainlinebranch(), getRemoteorigin(), isIgnoreorigin());
-			vcsUtil.getVCS().createBranch(getReleasebranch(), getRemoteorigin(), isIgnoreorigin());
+			//
+			// Both branches are created in one reference update
+			//
+			vcsUtil.getVCS().createBranches(Arrays.asList(getMainlinebranch(), getReleasebranch()),
+				getRemoteorigin(), isIgnoreorigin());
 		}
 		catch (final VCSException e)
 		{
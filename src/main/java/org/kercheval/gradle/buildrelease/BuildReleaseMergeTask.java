@@ -1,11 +1,18 @@
 package org.kercheval.gradle.buildrelease;
 
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
+import org.kercheval.gradle.buildversion.BuildVersion;
 import org.kercheval.gradle.info.GradleInfoSource;
+import org.kercheval.gradle.vcs.VCSAsyncAccess;
 import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSPushQueue;
 import org.kercheval.gradle.vcs.VCSTaskUtil;
 
 public class BuildReleaseMergeTask
@@ -26,23 +33,57 @@ public class BuildReleaseMergeTask
 			final BuildReleaseInitTask initTask = (BuildReleaseInitTask) new GradleInfoSource(
 				project).getTask(BuildReleasePlugin.INIT_TASK_NAME);
 
-			//
-			// Verify we are on the right branch to perform this task.
-			//
-			vcsUtil.validateWorkspaceBranchName(initTask.getReleasebranch());
-
-			//
-			// Verify the current workspace is clean
-			//
-			vcsUtil.validateWorkspaceIsClean();
-
 			//
 			// Validate the release branch is current. This is done by a
-			// pull against the branch origin.
+			// pull against the branch origin. The fetch is started first so
+			// the workspace checks below run while it waits on the network.
+			// Only the branches merged below and the version tags are fetched,
+			// the other branches of the origin are not needed for the release.
 			//
+			CompletableFuture<Void> fetch = null;
+
 			if (!initTask.isIgnoreorigin())
 			{
-				vcsUtil.getVCS().fetch(initTask.getRemoteorigin());
+				String tagPrefix = null;
+
+				if (project.getVersion() instanceof BuildVersion)
+				{
+					tagPrefix = ((BuildVersion) project.getVersion()).getVersionFormat()
+						.getVersionPattern().getPrefix();
+				}
+
+				fetch = new VCSAsyncAccess(vcsUtil.getVCS()).fetch(initTask.getRemoteorigin(),
+					Arrays.asList(initTask.getMainlinebranch(), initTask.getReleasebranch()),
+					tagPrefix);
+			}
+
+			try
+			{
+				//
+				// Verify we are on the right branch to perform this task.
+				//
+				vcsUtil.validateWorkspaceBranchName(initTask.getReleasebranch());
+
+				//
+				// Verify the current workspace is clean
+				//
+				vcsUtil.validateWorkspaceIsClean();
+			}
+			catch (final TaskExecutionException e)
+			{
+				//
+				// Do not leave the fetch running when the task fails
+				//
+				if (null != fetch)
+				{
+					VCSAsyncAccess.awaitCompletion(fetch);
+				}
+				throw e;
+			}
+
+			if (null != fetch)
+			{
+				VCSAsyncAccess.await(fetch);
 
 				//
 				// Merge the remote origin to the release branch
@@ -53,10 +94,23 @@ public class BuildReleaseMergeTask
 					initTask.isFastforwardonly());
 
 				//
-				// Push the new merge changes back to origin
+				// Push the new merge changes back to origin. If the upload task
+				// will run in this build, the branch is pushed with the release tag
+				// (see BuildReleasePlugin) to save a round trip to the origin.
 				//
-				vcsUtil.getVCS().push(initTask.getReleasebranch(), initTask.getRemoteorigin(),
-					false);
+				final Task uploadTask = new GradleInfoSource(project).getTask(initTask
+					.getUploadtask());
+
+				if ((null != uploadTask) && project.getGradle().getTaskGraph().hasTask(uploadTask))
+				{
+					VCSPushQueue.getInstance(project).add(vcsUtil.getVCS(),
+						initTask.getRemoteorigin(), "refs/heads/" + initTask.getReleasebranch());
+				}
+				else
+				{
+					vcsUtil.getVCS().push(initTask.getReleasebranch(), initTask.getRemoteorigin(),
+						false);
+				}
 			}
 			else
 			{
@@ -1,5 +1,6 @@
 package org.kercheval.gradle.buildrelease;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 
 import org.gradle.api.*;
@@ -7,7 +8,9 @@ import org.gradle.api.execution.*;
 import org.gradle.api.internal.AbstractTask;
 import org.gradle.api.tasks.*;
 import org.kercheval.gradle.buildvcs.*;
+import org.kercheval.gradle.buildversion.BuildVersion;
 import org.kercheval.gradle.buildversion.BuildVersionPlugin;
+import org.kercheval.gradle.buildversion.BuildVersionTagWriter;
 import org.kercheval.gradle.gradlecm.GradleCMPlugin;
 import org.kercheval.gradle.info.GradleInfoSource;
 import org.kercheval.gradle.vcs.*;
@@ -124,14 +127,29 @@ public class BuildReleasePlugin implements Plugin<Project> {
                     //
                     // Get the tag task to tag the repository
                     //
-                    final String tagName = project.getVersion().toString();
-                    vcsTask.createTag(tagName, "Tag created by task " + initTask.getUploadtask());
+                    final String tagComment = "Tag created by task " + initTask.getUploadtask();
+                    String tagName = project.getVersion().toString();
+
+                    if (project.getVersion() instanceof BuildVersion) {
+                        //
+                        // The archives are already built with this version, so the version
+                        // is not moved: a tag written by another build fails the release
+                        // rather than publishing the archives under another version
+                        //
+                        tagName = new BuildVersionTagWriter(vcsUtil.getVCS(), project.getLogger())
+                            .write((BuildVersion) project.getVersion(), tagComment);
+                    } else {
+                        vcsTask.createTag(tagName, tagComment);
+                    }
 
                     //
-                    // Push the new created tag back to origin
+                    // Push the new created tag back to origin, along with the release
+                    // branch if merged in this build
                     //
                     if (!initTask.isIgnoreorigin()) {
-                        vcsUtil.getVCS().push(tagName, initTask.getRemoteorigin(), true);
+                        VCSPushQueue.getInstance(project).push(vcsUtil.getVCS(),
+                            initTask.getRemoteorigin(),
+                            Collections.singletonList("refs/tags/" + tagName));
                     }
                 } else {
                     project.getLogger()
@@ -12,7 +12,9 @@ import org.gradle.api.tasks.TaskAction;
 import org.kercheval.gradle.vcs.VCSAccess;
 import org.kercheval.gradle.vcs.VCSException;
 import org.kercheval.gradle.vcs.VCSInfoSource;
+import org.kercheval.gradle.vcs.VCSRepositoryLock;
 import org.kercheval.gradle.vcs.VCSStatus;
+import org.kercheval.gradle.vcs.VCSStatusSnapshot;
 import org.kercheval.gradle.vcs.VCSTag;
 import org.kercheval.gradle.vcs.VCSTaskUtil;
 
@@ -25,6 +27,21 @@ public class BuildVCSTask
 	//
 	private String type = "git";
 
+	//
+	// The time in seconds to wait for access to the repository while other
+	// projects of a parallel build are using it. Reads of the repository run
+	// together, but merge, tag, branch and push wait for exclusive access (see
+	// VCSRepositoryLock).
+	//
+	private long locktimeout = VCSRepositoryLock.DEFAULT_TIMEOUT;
+
+	//
+	// The path of a bare repository on local disk used as a mirror of the
+	// remote (see VCSGitMirror). Fetches update the mirror, then fetch from it.
+	// Null fetches from the remote directly.
+	//
+	private String mirror = null;
+
 	public void createTag(final String tagName, final String tagComment)
 		throws VCSException
 	{
@@ -53,14 +70,38 @@ public class BuildVCSTask
 		return getVCS().getBranchName();
 	}
 
+	public int getCommitDistance(final String tagName)
+		throws VCSException
+	{
+		return getVCS().getCommitDistance(tagName);
+	}
+
 	public Properties getInfo()
 	{
 		return getVCS().getInfo();
 	}
 
+	//
+	// The info source uses the workspace status shared by the build (see
+	// VCSStatusSnapshot)
+	//
 	public VCSInfoSource getInfoSource()
 	{
-		return (VCSInfoSource) getVCS();
+		final VCSInfoSource rVal = (VCSInfoSource) getVCS();
+
+		rVal.setStatusSnapshot(VCSStatusSnapshot.getInstance(getProject()));
+
+		return rVal;
+	}
+
+	public long getLocktimeout()
+	{
+		return locktimeout;
+	}
+
+	public String getMirror()
+	{
+		return mirror;
 	}
 
 	public VCSStatus getStatus()
@@ -90,7 +131,23 @@ public class BuildVCSTask
 	public boolean isClean()
 		throws VCSException
 	{
-		return getStatus().isClean();
+		return getVCS().isClean();
+	}
+
+	public void setLocktimeout(final long locktimeout)
+	{
+		if (locktimeout < 0)
+		{
+			throw new IllegalArgumentException("The locktimeout '" + locktimeout
+				+ "' is invalid for task " + getName() + ".  The value must not be negative.");
+		}
+
+		this.locktimeout = locktimeout;
+	}
+
+	public void setMirror(final String mirror)
+	{
+		this.mirror = mirror;
 	}
 
 	public void setType(final String type)
@@ -1,11 +1,16 @@
 package org.kercheval.gradle.buildversion;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.TimeZone;
 
+//
+// The mutable version placed in project.version. The version itself is an
+// immutable BuildVersionValue which is replaced as a whole by each mutator, so
+// readers (including other threads) always see a consistent version without
+// locking. Mutators are synchronized so concurrent updates are not lost.
+//
 public class BuildVersion
+	implements Comparable<BuildVersion>
 {
 	//
 	// Pattern used for date/time (not modifiable)
@@ -14,30 +19,21 @@ public class BuildVersion
 	public static final String TIME_FORMAT_PATTERN = "HHmmss";
 
 	//
-	// The default pattern uses major, minor and standard maven time format
-	//
-	public static final String DEFAULT_PATTERN = "%M%.%m%-%d%.%t%";
-
-	//
-	// The actual version info pulled from the candidate based on the
-	// pattern or passed into the constructor
+	// The text added for %s% if the workspace has changes (not modifiable)
 	//
-	private int major = 0;
-	private int minor = 0;
-	private int build = 0;
+	public static final String DIRTY_MARKER = "-dirty";
 
-	private Date buildDate = new Date();
 	//
-	// These values are set based on the presence of variables in the
-	// pattern in use. Set in validatePattern.
+	// The default pattern uses major, minor and standard maven time format
 	//
-	private boolean useMajor = false;
-	private boolean useMinor = false;
+	public static final String DEFAULT_PATTERN = "%M%.%m%-%d%.%t%";
 
-	private boolean useBuild = false;
+	public static final long NO_ORDERING_KEY = BuildVersionValue.NO_ORDERING_KEY;
 
 	//
-	// Pattern used for version. The pattern must be set at follows...
+	// The current version. The version format holds the pattern, validate
+	// pattern and time zone mode of the version. The pattern must be set at
+	// follows...
 	// - May not have any whitespace (validated)
 	// - May contain any of the following variables (at most once)
 	// %M% - major version
@@ -45,23 +41,19 @@ public class BuildVersion
 	// %b% - build number
 	// %d% - date (using yyyyMMdd)
 	// %t% - time (using HHmmss)
+	// %c% - the number of commits since the version tag
+	// %s% - the workspace marker (DIRTY_MARKER if the workspace has changes)
 	// %% - a percent character (may appear multiple times in the pattern)
-	//
-	private String pattern;
-
 	//
 	// The validate pattern is used to verify candidate strings and is used
 	// to verify toString output. This pattern is auto-generated if a specific
 	// pattern is not supplied (based on output pattern).
 	//
-	private String validatePattern;
-
+	// The time zone mode determines what time zone is used to set the pattern
+	// time zone. If true, the local machine timezone is used, if false, the UTC
+	// timezone is used.
 	//
-	// The useLocalTimeZone variable determines what time zone is used to
-	// set the pattern time zone. If true, the local machine timezone is
-	// used, if false, the UTC timezone is used.
-	//
-	private boolean useLocalTimeZone;
+	private volatile BuildVersionValue value;
 
 	//
 	// Create a default version
@@ -79,8 +71,9 @@ public class BuildVersion
 		final Date buildDate,
 		final boolean useLocalTimeZone)
 	{
-		init(major, minor, build, buildDate, useLocalTimeZone);
-		setPattern(pattern);
+		value = BuildVersionValue.builder(VersionFormat.get(pattern, null, useLocalTimeZone))
+			.setMajor(major).setMinor(minor).setBuild(build)
+			.setBuildInstant(null == buildDate ? null : buildDate.toInstant()).build();
 	}
 
 	public BuildVersion(final String pattern, final String candidate, final boolean useLocalTimeZone)
@@ -95,412 +88,151 @@ public class BuildVersion
 		final boolean useLocalTimeZone)
 		throws ParseException
 	{
-		init(0, 0, 0, null, useLocalTimeZone);
-		setPattern(pattern, validatePattern);
-		parseCandidate(candidate);
-	}
-	
-	private static String generateValidatePattern(String buildPattern)
-    {
-        final StringBuilder validatePatternStr = new StringBuilder();
-
-        //
-        // Escape all regex meta characters while adding in the pattern variables
-        //
-        buildPattern = buildPattern.replaceAll("([\\\\*+\\[\\](){}\\$.?\\^|])", "\\\\$1");
-
-        //
-        // The pattern is known valid, just fill in the blanks
-        //
-        int index = 0;
-        int lastIndex = index;
-
-        while (index >= 0)
-        {
-
-            //
-            // Find the next pattern block to validate
-            //
-            index = buildPattern.indexOf("%", index);
-
-            int nextIndex = index + 3;
-
-            if (index >= 0)
-            {
-
-                //
-                // Place the block from the last match to the current into the string
-                //
-                validatePatternStr.append(buildPattern.substring(lastIndex, index));
-
-                final char nextChar = buildPattern.charAt(index + 1);
-
-                switch (nextChar)
-                {
-                case '%':
-                    validatePatternStr.append("%");
-
-                    //
-                    // Backup the index one since this is only 2 characters consumed
-                    //
-                    nextIndex -= 1;
-
-                    break;
-
-                case 'M':
-                case 'm':
-                case 'b':
-                case 'd':
-                case 't':
-                    validatePatternStr.append("\\d+");
-
-                    break;
-
-                default:
-
-                    //
-                    // This state is not possible if the validate method works. Not testable
-                    // without breaking private contract
-                    //
-                    throw new IllegalStateException("Invalid pattern detected '" + buildPattern
-                        + "' at index: " + index);
-                }
-
-                index = nextIndex;
-                lastIndex = index;
-            }
-        }
-
-        //
-        // Tack on the postfix (if any)
-        //
-        validatePatternStr.append(buildPattern.substring(lastIndex));
-
-        return validatePatternStr.toString();
-    }
-
-	private String checkPattern(final String checkPattern)
-	{
-		//
-		// Reset variable usage for a new pattern
-		//
-		setUseMajor(false);
-		setUseMinor(false);
-		setUseBuild(false);
-
-		//
-		// Ensure the pattern contains no whitespace
-		//
-		if (checkPattern.matches("\\S*\\s+\\S*"))
-		{
-			throw new IllegalArgumentException("Invalid pattern: whitespace not allowed in pattern");
-		}
-
-		//
-		// Ensure each pattern type is used zero or one times only
-		//
-		if (checkPattern.matches("\\S*%M%\\S*%M%\\S*"))
-		{
-			throw new IllegalArgumentException(
-				"Invalid pattern: Major variable %M% used more than once in pattern");
-		}
-
-		if (checkPattern.matches("\\S*%m%\\S*%m%\\S*"))
-		{
-			throw new IllegalArgumentException(
-				"Invalid pattern: Minor variable %m% used more than once in pattern");
-		}
+		final VersionFormat versionFormat = VersionFormat.get(pattern, validatePattern,
+			useLocalTimeZone);
+		final BuildVersionValue.Builder builder = BuildVersionValue.builder(versionFormat);
 
-		if (checkPattern.matches("\\S*%b%\\S*%b%\\S*"))
-		{
-			throw new IllegalArgumentException(
-				"Invalid pattern: Build variable %b% used more than once in pattern");
-		}
-
-		if (checkPattern.matches("\\S*%d%\\S*%d%\\S*"))
-		{
-			throw new IllegalArgumentException(
-				"Invalid pattern: Date variable %d% used more than once in pattern");
-		}
-
-		if (checkPattern.matches("\\S*%t%\\S*%t%\\S*"))
+		if (null != candidate)
 		{
-			throw new IllegalArgumentException(
-				"Invalid pattern: Time variable %t% used more than once in pattern");
-		}
-
-		//
-		// Validate the escape/variable syntax is used correctly and set the usage booleans
-		//
-		int index = 0;
+			final VersionPattern.ParsedVersion parsed = versionFormat.parse(candidate);
 
-		while (index >= 0)
-		{
+			builder.setMajor(parsed.getMajor()).setMinor(parsed.getMinor())
+				.setBuild(parsed.getBuild()).setCommits(parsed.getCommits())
+				.setDirty(parsed.isDirty());
 
 			//
-			// Find the next pattern block to validate
+			// The derived date if the date pattern is not present remains 'now'
 			//
-			index = checkPattern.indexOf("%", index);
-
-			if (index >= 0)
+			if (null != parsed.getBuildDate())
 			{
-
-				//
-				// The string must have enough space left for either another % or a variable
-				// followed by a %
-				//
-				if (checkPattern.length() == (index + 1))
-				{
-					throw new IllegalArgumentException(
-						"Invalid pattern: unbalanced % found at end of pattern");
-				}
-
-				if ((checkPattern.length() == (index + 2))
-					&& (checkPattern.charAt(index + 1) != '%'))
-				{
-					throw new IllegalArgumentException(
-						"Invalid pattern: unbalanced % found at end of pattern");
-				}
-
-				final char nextChar = checkPattern.charAt(index + 1);
-
-				if (nextChar == '%')
-				{
-					index += 2;
-				}
-				else
-				{
-					final char fenceChar = checkPattern.charAt(index + 2);
-
-					if (fenceChar != '%')
-					{
-						throw new IllegalArgumentException(
-							"Invalid pattern: invalid variable reference at pattern index "
-								+ (index + 2));
-					}
-
-					switch (nextChar)
-					{
-					case 'M':
-						setUseMajor(true);
-
-						break;
-
-					case 'm':
-						setUseMinor(true);
-
-						break;
-
-					case 'b':
-						setUseBuild(true);
-
-						break;
-
-					case 'd':
-					case 't':
-						break;
-
-					default:
-						throw new IllegalArgumentException(
-							"Invalid pattern: invalid variable reference '" + nextChar
-								+ "' at pattern index " + (index + 1));
-					}
-
-					index += 3;
-				}
+				builder.setBuildInstant(parsed.getBuildDate().toInstant());
 			}
 		}
 
-		return checkPattern;
+		value = builder.build();
 	}
 
-	private String generateVersionString()
+	public BuildVersion(final BuildVersionValue value)
 	{
-		final StringBuilder versionStr = new StringBuilder();
-		final String buildPattern = getPattern();
-
-		//
-		// The pattern is known valid, just fill in the blanks
-		//
-		int index = 0;
-		int lastIndex = index;
-
-		while (index >= 0)
-		{
-			//
-			// Find the next pattern block to validate
-			//
-			index = buildPattern.indexOf("%", index);
-
-			int nextIndex = index + 3;
-
-			if (index >= 0)
-			{
-				//
-				// Place the block from the last match to the current into the string
-				//
-				versionStr.append(buildPattern.substring(lastIndex, index));
-
-				final char nextChar = buildPattern.charAt(index + 1);
-
-				switch (nextChar)
-				{
-				case '%':
-					versionStr.append("%");
-
-					//
-					// Backup the index one since this is only 2 characters consumed
-					//
-					nextIndex -= 1;
-
-					break;
-
-				case 'M':
-					versionStr.append(getMajor());
-
-					break;
-
-				case 'm':
-					versionStr.append(getMinor());
-
-					break;
-
-				case 'b':
-					versionStr.append(getBuild());
-
-					break;
-
-				case 'd':
-					final SimpleDateFormat dateFormatter = new SimpleDateFormat(DATE_FORMAT_PATTERN);
-					dateFormatter.setTimeZone(getVersionTimeZone());
-
-					versionStr.append(dateFormatter.format(getBuildDate()));
-
-					break;
-
-				case 't':
-					final SimpleDateFormat timeFormatter = new SimpleDateFormat(TIME_FORMAT_PATTERN);
-					timeFormatter.setTimeZone(getVersionTimeZone());
-
-					versionStr.append(timeFormatter.format(getBuildDate()));
-
-					break;
-
-				default:
-					//
-					// This state is not possible if the validate method works. Not testable
-					// without breaking private contract
-					//
-					throw new IllegalStateException("Invalid pattern detected '" + getPattern()
-						+ "' at index: " + index);
-				}
-
-				index = nextIndex;
-				lastIndex = index;
-			}
-		}
+		this.value = value;
+	}
 
-		//
-		// Tack on the postfix (if any)
-		//
-		versionStr.append(buildPattern.substring(lastIndex));
+	//
+	// Create a version using a shared format (used for bulk parsing)
+	//
+	BuildVersion(final VersionFormat versionFormat, final VersionPattern.ParsedVersion parsed)
+	{
+		final Date buildDate = parsed.getBuildDate();
 
-		return versionStr.toString();
+		value = BuildVersionValue.builder(versionFormat).setMajor(parsed.getMajor())
+			.setMinor(parsed.getMinor()).setBuild(parsed.getBuild()).setCommits(parsed.getCommits())
+			.setDirty(parsed.isDirty()).setBuildInstant(null == buildDate ? null : buildDate.toInstant()).build();
 	}
 
-	private void setUseLocalTimeZone(final boolean useLocalTimeZone)
+	//
+	// See BuildVersionValue.compareTo
+	//
+	@Override
+	public int compareTo(final BuildVersion other)
 	{
-		this.useLocalTimeZone = useLocalTimeZone;
+		return value.compareTo(other.value);
 	}
 
-	private TimeZone getVersionTimeZone()
+	@Override
+	public boolean equals(final Object obj)
 	{
-		TimeZone timeZone;
-
-		if (useLocalTimeZone)
+		if (this == obj)
 		{
-			timeZone = TimeZone.getDefault();
+			return true;
 		}
-		else
+
+		if (!(obj instanceof BuildVersion))
 		{
-			timeZone = TimeZone.getTimeZone("UTC");
+			return false;
 		}
-		return timeZone;
+
+		return value.equals(((BuildVersion) obj).value);
 	}
 
 	public int getBuild()
 	{
-		return build;
+		return value.getBuild();
 	}
 
+	//
+	// Return the build date. The date returned is a copy, changes to it do not
+	// change the version.
+	//
 	public Date getBuildDate()
 	{
-		return buildDate;
+		return Date.from(value.getBuildInstant());
+	}
+
+	public int getCommits()
+	{
+		return value.getCommits();
 	}
 
 	public int getMajor()
 	{
-		return major;
+		return value.getMajor();
 	}
 
 	public int getMinor()
 	{
-		return minor;
+		return value.getMinor();
 	}
 
-	private int getNextNonNumberIndex(final String candidate, final int startIndex)
+	//
+	// See BuildVersionValue.getOrderingKey
+	//
+	public long getOrderingKey()
 	{
-		int currentIndex = startIndex;
-
-		while ((currentIndex < candidate.length())
-			&& Character.isDigit(candidate.charAt(currentIndex)))
-		{
-			currentIndex++;
-		}
-
-		return currentIndex;
+		return value.getOrderingKey();
 	}
 
-	private int getNextNumberIndex(final String candidate, final int startIndex)
+	public String getPattern()
 	{
-		int currentIndex = startIndex;
+		return value.getVersionFormat().getPattern();
+	}
 
-		while ((currentIndex < candidate.length())
-			&& !Character.isDigit(candidate.charAt(currentIndex)))
-		{
-			currentIndex++;
-		}
+	public String getValidatePattern()
+	{
+		return value.getVersionFormat().getValidatePattern();
+	}
 
-		return currentIndex;
+	//
+	// Return the current (immutable) version
+	//
+	public BuildVersionValue getValue()
+	{
+		return value;
 	}
 
-	public String getPattern()
+	public VersionFormat getVersionFormat()
 	{
-		return pattern;
+		return value.getVersionFormat();
 	}
 
-	public String getValidatePattern()
+	@Override
+	public int hashCode()
 	{
-		return validatePattern;
+		return value.hashCode();
 	}
 
-	public void incrementBuild()
+	public synchronized void incrementBuild()
 	{
-		build++;
-		updateDate();
+		value = value.toBuilder().incrementBuild().build();
 	}
 
-	public void incrementMajor()
+	public synchronized void incrementMajor()
 	{
-		major++;
-		setMinor(0);
-		updateDate();
+		value = value.toBuilder().incrementMajor().build();
 	}
 
-	public void incrementMinor()
+	public synchronized void incrementMinor()
 	{
-		minor++;
-		updateDate();
+		value = value.toBuilder().incrementMinor().build();
 	}
 
 	//
@@ -509,236 +241,45 @@ public class BuildVersion
 	// version and finally followed by the major version. The date is always updated
 	// as a result of the increment of the build version.
 	//
-	public void incrementVersion()
+	public synchronized void incrementVersion()
 	{
-		if (useBuild())
-		{
-			incrementBuild();
-		}
-		else if (useMinor())
-		{
-			incrementMinor();
-		}
-		else if (useMajor())
-		{
-			incrementMajor();
-		}
-		else
-		{
-			updateDate();
-		}
+		value = value.toBuilder().incrementVersion().build();
 	}
 
-	private void init(final int major, final int minor, final int build, final Date buildDate,
-		final boolean useLocalTimeZone)
+	public boolean isDirty()
 	{
-		setMajor(major);
-		setMinor(minor);
-		setBuild(build);
-		setBuildDate(buildDate);
-		setUseLocalTimeZone(useLocalTimeZone);
+		return value.isDirty();
 	}
 
-	private void parseCandidate(final String candidate)
-		throws ParseException
+	public synchronized void setBuild(final int build)
 	{
-		if (null != candidate)
-		{
-
-			//
-			// These values are extracted during parse and pulled together to make a
-			// valid date at the end of the parse.
-			//
-			String dateStr = "";
-			String timeStr = "";
-
-			//
-			// Note that the build date can only be derived if the 'date' portion of the
-			// pattern is set. The derived date if that date pattern is not present will be
-			// 'now'. If the time pattern variable is not present, the date will be midnight
-			// of the date in the candidate.
-			//
-			final String parsePattern = getPattern();
-
-			//
-			// The pattern is known valid, just fill in the blanks
-			//
-			int patternIndex = 0;
-			int candidateIndex = getNextNumberIndex(candidate, 0);
-
-			while (patternIndex >= 0)
-			{
-
-				//
-				// Find the next pattern block to validate
-				//
-				patternIndex = parsePattern.indexOf("%", patternIndex);
-
-				int nextPatternIndex = patternIndex + 3;
-				int nextCandidateIndex = candidateIndex;
-
-				if (patternIndex >= 0)
-				{
-					final char nextChar = parsePattern.charAt(patternIndex + 1);
-
-					switch (nextChar)
-					{
-					case '%':
-
-						//
-						// backup the index one since this is only 2 characters consumed
-						//
-						nextPatternIndex -= 1;
-
-						break;
-
-					case 'M':
-						nextCandidateIndex = getNextNonNumberIndex(candidate, candidateIndex);
-
-						if (candidateIndex != nextCandidateIndex)
-						{
-							setMajor(Integer.valueOf(candidate.substring(candidateIndex,
-								nextCandidateIndex)));
-						}
-						else
-						{
-							throw new ParseException("Unable to match %M% for pattern '"
-								+ parsePattern + "'", patternIndex);
-						}
-
-						break;
-
-					case 'm':
-						nextCandidateIndex = getNextNonNumberIndex(candidate, candidateIndex);
-
-						if (candidateIndex != nextCandidateIndex)
-						{
-							setMinor(Integer.valueOf(candidate.substring(candidateIndex,
-								nextCandidateIndex)));
-						}
-						else
-						{
-							throw new ParseException("Unable to match %m% for pattern '"
-								+ parsePattern + "'", patternIndex);
-						}
-
-						break;
-
-					case 'b':
-						nextCandidateIndex = getNextNonNumberIndex(candidate, candidateIndex);
-
-						if (candidateIndex != nextCandidateIndex)
-						{
-							setBuild(Integer.valueOf(candidate.substring(candidateIndex,
-								nextCandidateIndex)));
-						}
-						else
-						{
-							throw new ParseException("Unable to match %b% for pattern '"
-								+ parsePattern + "'", patternIndex);
-						}
-
-						break;
-
-					case 'd':
-						nextCandidateIndex = getNextNonNumberIndex(candidate, candidateIndex);
-
-						if (candidateIndex != nextCandidateIndex)
-						{
-							dateStr = candidate.substring(candidateIndex, nextCandidateIndex);
-						}
-						else
-						{
-							throw new ParseException("Unable to match %d% for pattern '"
-								+ parsePattern + "'", patternIndex);
-						}
-
-						break;
-
-					case 't':
-						nextCandidateIndex = getNextNonNumberIndex(candidate, candidateIndex);
-
-						if (candidateIndex != nextCandidateIndex)
-						{
-							timeStr = candidate.substring(candidateIndex, nextCandidateIndex);
-						}
-						else
-						{
-							throw new ParseException("Unable to match %t% for pattern '"
-								+ parsePattern + "'", patternIndex);
-						}
-
-						break;
-
-					default:
-
-						//
-						// This state is not possible if the validate method works. Not testable
-						// without breaking private contract
-						//
-						throw new IllegalStateException("Invalid pattern detected '" + getPattern()
-							+ "' at index: " + patternIndex);
-					}
-
-					patternIndex = nextPatternIndex;
-					candidateIndex = getNextNumberIndex(candidate, nextCandidateIndex);
-				}
-			}
-
-			//
-			// Last step is to formulate the date if possible
-			//
-			if (dateStr.length() > 0)
-			{
-				String format = DATE_FORMAT_PATTERN;
-				String toParse = dateStr;
-
-				if (timeStr.length() > 0)
-				{
-					format = DATE_FORMAT_PATTERN + "." + TIME_FORMAT_PATTERN;
-					toParse = dateStr + "." + timeStr;
-				}
-
-				final SimpleDateFormat formatter = new SimpleDateFormat(format);
-				formatter.setTimeZone(getVersionTimeZone());
-				formatter.setLenient(true);
-
-				try
-				{
-					setBuildDate(formatter.parse(toParse));
-				}
-				catch (final ParseException e)
-				{
-					throw new ParseException("Unable to match date for pattern '" + parsePattern
-						+ "'", 0);
-				}
-			}
-		}
+		value = value.toBuilder().setBuild(build).build();
 	}
 
-	public void setBuild(final int build)
+	public synchronized void setBuildDate(final Date buildDate)
 	{
-		this.build = build;
+		value = value.toBuilder().setBuildInstant(null == buildDate ? null : buildDate.toInstant())
+			.build();
 	}
 
-	public void setBuildDate(final Date buildDate)
+	public synchronized void setCommits(final int commits)
 	{
-		this.buildDate = buildDate;
+		value = value.toBuilder().setCommits(commits).build();
+	}
 
-		if (null == buildDate)
-		{
-			this.buildDate = new Date();
-		}
+	public synchronized void setDirty(final boolean dirty)
+	{
+		value = value.toBuilder().setDirty(dirty).build();
 	}
 
-	public void setMajor(final int major)
+	public synchronized void setMajor(final int major)
 	{
-		this.major = major;
+		value = value.toBuilder().setMajor(major).build();
 	}
 
-	public void setMinor(final int minor)
+	public synchronized void setMinor(final int minor)
 	{
-		this.minor = minor;
+		value = value.toBuilder().setMinor(minor).build();
 	}
 
 	public void setPattern(final String newPattern)
@@ -746,78 +287,57 @@ public class BuildVersion
 		setPattern(newPattern, null);
 	}
 
-	public void setPattern(String newPattern, final String newValidatePattern)
+	public synchronized void setPattern(final String newPattern, final String newValidatePattern)
 	{
-		if (null == newPattern)
-		{
-			newPattern = DEFAULT_PATTERN;
-		}
+		final VersionFormat versionFormat = VersionFormat.get(newPattern, newValidatePattern,
+			value.getVersionFormat().isUseLocalTimeZone());
 
-		pattern = checkPattern(newPattern);
-		validatePattern = newValidatePattern;
-
-		if (null == newValidatePattern)
-		{
-			validatePattern = generateValidatePattern(getPattern());
-		}
+		value = value.toBuilder().setVersionFormat(versionFormat).build();
 	}
 
-	private void setUseBuild(final boolean useBuild)
+	public synchronized void setValue(final BuildVersionValue value)
 	{
-		this.useBuild = useBuild;
+		this.value = value;
 	}
 
-	private void setUseMajor(final boolean useMajor)
+	@Override
+	public String toString()
 	{
-		this.useMajor = useMajor;
+		return value.toString();
 	}
 
-	private void setUseMinor(final boolean useMinor)
+	public synchronized void updateDate()
 	{
-		this.useMinor = useMinor;
+		value = value.toBuilder().updateDate().build();
 	}
 
-	@Override
-	public String toString()
+	public synchronized void updateMajor(final int newMajor)
 	{
-		final String versionString = generateVersionString();
-
-		if (!versionString.matches(getValidatePattern()))
-		{
-			throw new IllegalStateException("Version string generated '" + versionString
-				+ "' from pattern '" + getPattern() + "' does not match candidate pattern '"
-				+ getValidatePattern() + "'.  Output and candidate patterns must be consistent");
-		}
-
-		return versionString;
+		value = value.toBuilder().updateMajor(newMajor).build();
 	}
 
-	public void updateDate()
+	public boolean useBuild()
 	{
-		setBuildDate(new Date());
+		return value.getVersionFormat().getVersionPattern().useBuild();
 	}
 
-	public void updateMajor(final int newMajor)
+	public boolean useCommits()
 	{
-		if (getMajor() != newMajor)
-		{
-			setMajor(newMajor);
-			setMinor(0);
-		}
+		return value.getVersionFormat().getVersionPattern().useCommits();
 	}
 
-	public boolean useBuild()
+	public boolean useDirty()
 	{
-		return useBuild;
+		return value.getVersionFormat().getVersionPattern().useDirty();
 	}
 
 	public boolean useMajor()
 	{
-		return useMajor;
+		return value.getVersionFormat().getVersionPattern().useMajor();
 	}
 
 	public boolean useMinor()
 	{
-		return useMinor;
+		return value.getVersionFormat().getVersionPattern().useMinor();
 	}
 }
@@ -0,0 +1,98 @@
+package org.kercheval.gradle.buildversion;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//
+// The tag selected by BuildVersionTask (and the commit count since that tag)
+// by repository state. The cache is static so it lives in the Gradle daemon and
+// is reused by later builds. Entries are keyed by the repository directory and
+// the reference fingerprint (HEAD and all tags, see VCSAccess.getRefFingerprint)
+// along with the version format and selection settings, so any commit or tag
+// change simply misses the cache.
+//
+// The cache is bounded, least recently used entries are dropped first, so a
+// daemon serving many checkouts does not grow without limit.
+//
+public class BuildVersionCache
+{
+	//
+	// The resolved tag. The tag name is null if no tag was found and commits is
+	// NO_COMMITS if the commit count was not needed.
+	//
+	static class Resolution
+	{
+		static final int NO_COMMITS = -1;
+
+		private final String tagName;
+		private final int commits;
+
+		Resolution(final String tagName, final int commits)
+		{
+			this.tagName = tagName;
+			this.commits = commits;
+		}
+
+		int getCommits()
+		{
+			return commits;
+		}
+
+		String getTagName()
+		{
+			return tagName;
+		}
+	}
+
+	private static final int CACHE_SIZE = 64;
+	private static final Map<String, Resolution> RESOLUTION_CACHE = Collections
+		.synchronizedMap(new LinkedHashMap<String, Resolution>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Resolution> eldest)
+			{
+				return size() > CACHE_SIZE;
+			}
+		});
+
+	static void clear()
+	{
+		RESOLUTION_CACHE.clear();
+	}
+
+	static Resolution get(final String key)
+	{
+		return RESOLUTION_CACHE.get(key);
+	}
+
+	//
+	// Return the cache key, or null (nothing is cached) if the VCS gave no
+	// reference fingerprint
+	//
+	static String getKey(final File repositoryDir,
+		final String refFingerprint,
+		final VersionFormat versionFormat,
+		final String tagselection,
+		final boolean useversionref)
+	{
+		String rVal = null;
+
+		if (null != refFingerprint)
+		{
+			rVal = repositoryDir.getAbsolutePath() + "\n" + refFingerprint + "\n"
+				+ versionFormat.getPattern() + "\n" + versionFormat.getValidatePattern() + "\n"
+				+ versionFormat.isUseLocalTimeZone() + "\n" + tagselection + "\n" + useversionref;
+		}
+
+		return rVal;
+	}
+
+	static void put(final String key, final Resolution resolution)
+	{
+		RESOLUTION_CACHE.put(key, resolution);
+	}
+}
@@ -0,0 +1,161 @@
+package org.kercheval.gradle.buildversion;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+//
+// An immutable index of versions sorted in version order (see
+// BuildVersionValue.compareTo). Lookups are binary searches over the sorted
+// versions. The index holds version values, which cannot change, so the order
+// is kept whatever is done with the versions the values were taken from.
+// Typically built from the tag names in the repository using
+// BuildVersionParser.
+//
+public class BuildVersionIndex
+{
+	private final BuildVersionValue[] versions;
+
+	public BuildVersionIndex(final Collection<BuildVersionValue> versionCollection)
+	{
+		versions = versionCollection.toArray(new BuildVersionValue[versionCollection.size()]);
+		Arrays.sort(versions);
+	}
+
+	//
+	// Return true if a version equal to the version given is in the index. For
+	// patterns with a date the build date must also be equal, use
+	// contains(major, minor, build) to find whether a version number is used.
+	//
+	public boolean contains(final BuildVersionValue version)
+	{
+		return Arrays.binarySearch(versions, version) >= 0;
+	}
+
+	//
+	// Return true if a version with the major, minor and build values given is
+	// in the index (whatever its date)
+	//
+	public boolean contains(final int major, final int minor, final int build)
+	{
+		final BuildVersionValue version = getLast(major, minor, build);
+
+		return (null != version) && (version.getMajor() == major)
+			&& (version.getMinor() == minor) && (version.getBuild() == build);
+	}
+
+	//
+	// Return the highest version in the index, null if the index is empty
+	//
+	public BuildVersionValue getHighest()
+	{
+		BuildVersionValue rVal = null;
+
+		if (versions.length > 0)
+		{
+			rVal = versions[versions.length - 1];
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the highest version with the major version given, null if none
+	//
+	public BuildVersionValue getHighest(final int major)
+	{
+		final BuildVersionValue rVal = getLast(major, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+		if ((null != rVal) && (rVal.getMajor() == major))
+		{
+			return rVal;
+		}
+
+		return null;
+	}
+
+	//
+	// Return the highest version with the major and minor version given, null
+	// if none
+	//
+	public BuildVersionValue getHighest(final int major, final int minor)
+	{
+		final BuildVersionValue rVal = getLast(major, minor, Integer.MAX_VALUE);
+
+		if ((null != rVal) && (rVal.getMajor() == major) && (rVal.getMinor() == minor))
+		{
+			return rVal;
+		}
+
+		return null;
+	}
+
+	//
+	// Return the last version with major, minor and build values less than or
+	// equal to those given, null if none
+	//
+	private BuildVersionValue getLast(final int major, final int minor, final int build)
+	{
+		int low = 0;
+		int high = versions.length;
+
+		//
+		// Find the first version above the values given
+		//
+		while (low < high)
+		{
+			final int mid = (low + high) >>> 1;
+			final BuildVersionValue version = versions[mid];
+			int compare = Integer.compare(version.getMajor(), major);
+
+			if (compare == 0)
+			{
+				compare = Integer.compare(version.getMinor(), minor);
+			}
+
+			if (compare == 0)
+			{
+				compare = Integer.compare(version.getBuild(), build);
+			}
+
+			if (compare <= 0)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+
+		BuildVersionValue rVal = null;
+
+		if (low > 0)
+		{
+			rVal = versions[low - 1];
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the build number following the highest build number used for the
+	// major and minor version given, 0 if there are no versions for major.minor
+	//
+	public int getNextBuild(final int major, final int minor)
+	{
+		final BuildVersionValue highest = getHighest(major, minor);
+		int rVal = 0;
+
+		if (null != highest)
+		{
+			rVal = highest.getBuild() + 1;
+		}
+
+		return rVal;
+	}
+
+	public int size()
+	{
+		return versions.length;
+	}
+}
@@ -0,0 +1,203 @@
+package org.kercheval.gradle.buildversion;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+//
+// Parse many version candidates (typically tag names) against one compiled
+// pattern. The candidates are parsed in a single pass sharing one matcher and
+// date parser, so this is much cheaper than constructing a BuildVersion from
+// each candidate. Candidates that do not match the pattern are reported in the
+// result rather than thrown.
+//
+// A parser is not thread safe. Use a parser per thread.
+//
+public class BuildVersionParser
+{
+	//
+	// The order of the versions returned. VERSION uses the BuildVersion natural
+	// order. DATE sorts by build date and then version. Both are ascending, so
+	// the highest version is last.
+	//
+	public enum SortOrder
+	{
+		VERSION,
+		DATE
+	}
+
+	//
+	// The versions parsed (sorted) and the candidates rejected with the reason
+	// (in the order given)
+	//
+	public static class Result
+	{
+		private final List<BuildVersion> versions;
+		private final List<BuildVersionValue> values;
+		private final Map<BuildVersionValue, String> candidates;
+		private final Map<String, String> rejects;
+
+		Result(final List<BuildVersion> versions,
+			final Map<BuildVersionValue, String> candidates,
+			final Map<String, String> rejects)
+		{
+			this.versions = Collections.unmodifiableList(versions);
+			this.candidates = candidates;
+
+			final List<BuildVersionValue> valueList = new ArrayList<>(versions.size());
+
+			for (final BuildVersion version : versions)
+			{
+				valueList.add(version.getValue());
+			}
+
+			values = Collections.unmodifiableList(valueList);
+			this.rejects = Collections.unmodifiableMap(rejects);
+		}
+
+		//
+		// Return the candidate a version was parsed from (null if the version is
+		// not one of the versions of this result or has been changed since)
+		//
+		public String getCandidate(final BuildVersion version)
+		{
+			return getCandidate(version.getValue());
+		}
+
+		//
+		// Return the candidate a version value was parsed from (null if the value
+		// is not one of the values of this result)
+		//
+		public String getCandidate(final BuildVersionValue value)
+		{
+			return candidates.get(value);
+		}
+
+		public Map<String, String> getRejects()
+		{
+			return rejects;
+		}
+
+		//
+		// Return the values of the versions as parsed (sorted as the versions),
+		// for example to build a BuildVersionIndex
+		//
+		public List<BuildVersionValue> getValues()
+		{
+			return values;
+		}
+
+		public List<BuildVersion> getVersions()
+		{
+			return versions;
+		}
+	}
+
+	private static final Comparator<BuildVersion> DATE_ORDER = new Comparator<BuildVersion>()
+	{
+		@Override
+		public int compare(final BuildVersion v1, final BuildVersion v2)
+		{
+			int rVal = v1.getBuildDate().compareTo(v2.getBuildDate());
+
+			if (rVal == 0)
+			{
+				rVal = v1.compareTo(v2);
+			}
+
+			return rVal;
+		}
+	};
+
+	private final VersionFormat versionFormat;
+	private final VersionPattern pattern;
+	private final Matcher validateMatcher;
+	private final VersionPattern.DateParser dateParser;
+
+	public BuildVersionParser(final VersionFormat versionFormat)
+	{
+		this.versionFormat = versionFormat;
+
+		pattern = versionFormat.getVersionPattern();
+		validateMatcher = versionFormat.getValidateRegex().matcher("");
+		dateParser = new VersionPattern.DateParser(versionFormat.getTimeZone());
+	}
+
+	public BuildVersionParser(final VersionPattern pattern, final boolean useLocalTimeZone)
+	{
+		this(pattern, null, useLocalTimeZone);
+	}
+
+	//
+	// Candidates are checked against the validate pattern given rather than the
+	// one generated for the pattern (if not null)
+	//
+	public BuildVersionParser(final VersionPattern pattern, final String validatePattern,
+		final boolean useLocalTimeZone)
+	{
+		this(VersionFormat.get(pattern.getPattern(), validatePattern, useLocalTimeZone));
+	}
+
+	public VersionPattern getPattern()
+	{
+		return pattern;
+	}
+
+	public VersionFormat getVersionFormat()
+	{
+		return versionFormat;
+	}
+
+	public Result parse(final Collection<String> candidates, final SortOrder sortOrder)
+	{
+		final List<BuildVersion> versions = new ArrayList<>(candidates.size());
+		final Map<BuildVersionValue, String> versionCandidates = new IdentityHashMap<>();
+		final Map<String, String> rejects = new LinkedHashMap<>();
+
+		for (final String candidate : candidates)
+		{
+			if (null == candidate)
+			{
+				continue;
+			}
+
+			if (!validateMatcher.reset(candidate).matches())
+			{
+				rejects.put(candidate, "Candidate does not match pattern '" + pattern.getPattern()
+					+ "'");
+				continue;
+			}
+
+			try
+			{
+				final BuildVersion version = new BuildVersion(versionFormat, pattern.parse(
+					candidate, dateParser));
+
+				versions.add(version);
+				versionCandidates.put(version.getValue(), candidate);
+			}
+			catch (final ParseException | NumberFormatException e)
+			{
+				rejects.put(candidate, e.getMessage());
+			}
+		}
+
+		if (sortOrder == SortOrder.DATE)
+		{
+			Collections.sort(versions, DATE_ORDER);
+		}
+		else
+		{
+			Collections.sort(versions);
+		}
+
+		return new Result(versions, versionCandidates, rejects);
+	}
+}
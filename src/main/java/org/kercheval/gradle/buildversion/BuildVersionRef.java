@@ -0,0 +1,212 @@
+package org.kercheval.gradle.buildversion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+
+import org.kercheval.gradle.vcs.VCSAccess;
+import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSRefTransaction;
+
+//
+// The version reference records the highest version tag written by the tag
+// tasks for a version format (refs/gradlecm/latest/<format id>). Reading the
+// reference finds the highest version without parsing every tag in the
+// repository. The reference is local to the repository, it is not pushed.
+//
+// Tags fetched from other clones or created outside of the tag tasks do not
+// move the reference. The tag stamp of the repository (see
+// VCSAccess.getTagStamp) is stored with the repository (see
+// VCSAccess.getStoredValue) each time the reference is made current, so such
+// tags are found by comparing the stamp, which is read in constant time. A
+// reference with a different stamp is stale: the tags are parsed and the
+// reference is reset to the highest (see reset). Any tag change makes the
+// reference stale, whether or not the tag is a version of the format.
+//
+public class BuildVersionRef
+{
+	public static final String REF_PREFIX = "refs/gradlecm/latest/";
+	public static final String STAMP_PREFIX = "tagstamp-";
+
+	private final VCSAccess vcs;
+	private final VersionFormat versionFormat;
+	private final String refName;
+	private final String stampName;
+
+	public BuildVersionRef(final VCSAccess vcs, final VersionFormat versionFormat)
+	{
+		this.vcs = vcs;
+		this.versionFormat = versionFormat;
+
+		final String formatId = getFormatId(versionFormat);
+
+		refName = REF_PREFIX + formatId;
+		stampName = STAMP_PREFIX + formatId;
+	}
+
+	//
+	// Add the move of the reference to the tag to the transaction if the
+	// version is higher than the version the reference points at (or the
+	// reference is missing or stale). The transaction fails if another build
+	// moves the reference before it is applied. Return true if the move was
+	// added.
+	//
+	public boolean addUpdate(final VCSRefTransaction transaction,
+		final BuildVersion version,
+		final String tagName)
+		throws VCSException
+	{
+		boolean rVal = false;
+		final String currentTagName = vcs.getTagRef(refName);
+		final BuildVersion currentVersion = parseTag(currentTagName);
+
+		if ((null == currentVersion) || (version.compareTo(currentVersion) > 0))
+		{
+			transaction.moveRef(refName, tagName, currentTagName);
+			rVal = true;
+		}
+
+		return rVal;
+	}
+
+	//
+	// The format id is a digest of the pattern and validate pattern, so formats
+	// that select different tags (for example on different branches) do not
+	// share a reference
+	//
+	static String getFormatId(final VersionFormat versionFormat)
+	{
+		try
+		{
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+				(versionFormat.getPattern() + "\n" + versionFormat.getValidatePattern())
+					.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder rVal = new StringBuilder();
+
+			for (int i = 0; i < 8; i++)
+			{
+				rVal.append(String.format("%02x", digest[i]));
+			}
+
+			return rVal.toString();
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//
+	// Return the tag the reference points at, or null if the reference is
+	// missing or stale (the tag is gone, no longer matches the format or tags
+	// changed since the reference was made current)
+	//
+	public String getLatestTag()
+		throws VCSException
+	{
+		String rVal = vcs.getTagRef(refName);
+
+		if ((null == parseTag(rVal)) || !isCurrent())
+		{
+			rVal = null;
+		}
+
+		return rVal;
+	}
+
+	public String getRefName()
+	{
+		return refName;
+	}
+
+	//
+	// Return true if no tag changed since the reference was made current (the
+	// stored tag stamp is the stamp of the repository). Only file times are read,
+	// no tag is listed.
+	//
+	public boolean isCurrent()
+		throws VCSException
+	{
+		final String tagStamp = vcs.getTagStamp();
+
+		return (null != tagStamp) && tagStamp.equals(vcs.getStoredValue(stampName));
+	}
+
+	//
+	// Point the reference at the highest version tag found by parsing the tag
+	// names and make it current. Used by the tag tasks when the reference was
+	// stale before a tag was written.
+	//
+	public void refresh()
+		throws VCSException
+	{
+		final String tagStamp = vcs.getTagStamp();
+		final String expectedTagName = vcs.getTagRef(refName);
+		final BuildVersionParser.Result result = new BuildVersionParser(versionFormat).parse(
+			vcs.getTagNames(versionFormat.getValidatePattern()),
+			BuildVersionParser.SortOrder.VERSION);
+		final BuildVersionValue highest = new BuildVersionIndex(result.getValues()).getHighest();
+
+		if (null != highest)
+		{
+			reset(expectedTagName, result.getCandidate(highest), tagStamp);
+		}
+	}
+
+	//
+	// Point the reference at the highest tag found by parsing the tags and
+	// store the tag stamp taken before the tags were listed, so the next read
+	// finds it current unless a tag changed since. The reference is only reset
+	// if it still points at expectedTagName (the tag it pointed at before the
+	// tags were listed), so a concurrent write is kept.
+	//
+	public void reset(final String expectedTagName, final String tagName, final String tagStamp)
+		throws VCSException
+	{
+		if (vcs.compareAndSetTagRef(refName, expectedTagName, tagName) && (null != tagStamp))
+		{
+			vcs.setStoredValue(stampName, tagStamp);
+		}
+	}
+
+	//
+	// Make the reference current after the tag tasks have moved it (or left it
+	// at a higher version). The stamp is read after the tag was written, so it
+	// must only be stored if the reference was current before the write.
+	//
+	public void setCurrent()
+		throws VCSException
+	{
+		final String tagStamp = vcs.getTagStamp();
+
+		if (null != tagStamp)
+		{
+			vcs.setStoredValue(stampName, tagStamp);
+		}
+	}
+
+	//
+	// Return the version of the tag, or null if there is no tag or the tag is
+	// not a version of this format
+	//
+	private BuildVersion parseTag(final String tagName)
+	{
+		BuildVersion rVal = null;
+
+		if ((null != tagName) && versionFormat.getValidateRegex().matcher(tagName).matches())
+		{
+			try
+			{
+				rVal = new BuildVersion(versionFormat.getPattern(),
+					versionFormat.getValidatePattern(), tagName, versionFormat.isUseLocalTimeZone());
+			}
+			catch (final ParseException | NumberFormatException e)
+			{
+				// Not a version of this format
+			}
+		}
+
+		return rVal;
+	}
+}
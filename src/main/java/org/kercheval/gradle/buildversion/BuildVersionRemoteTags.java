@@ -0,0 +1,251 @@
+package org.kercheval.gradle.buildversion;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.kercheval.gradle.info.SortedProperties;
+import org.kercheval.gradle.vcs.VCSAccess;
+import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSTag;
+
+//
+// The tags of a remote, for workspaces cloned without tags (such as the shallow
+// clones made by CI). Tags are listed from the remote reference list only (see
+// VCSAccess.getRemoteTags), so finding the version costs one round trip rather
+// than fetching the history.
+//
+// The list is cached in a file for the time to live, so builds run again within
+// that time do not contact the remote. Tag dates are only needed for date
+// selection, so they are resolved when asked for and kept in the same file (the
+// date of a tag object never changes).
+//
+public class BuildVersionRemoteTags
+{
+	//
+	// The default time to use the cached tag list, in seconds
+	//
+	public static final long DEFAULT_TTL = 300;
+
+	private static final String TIMESTAMP_KEY = "timestamp";
+	private static final String TAG_PREFIX = "tag.";
+	private static final String DATE_PREFIX = "date.";
+
+	private final VCSAccess vcs;
+	private final String remoteOrigin;
+	private final File cacheFile;
+	private final long ttl;
+	private SortedProperties cache;
+
+	//
+	// The cache file for the remote is kept in the cache directory. The time to
+	// live is in seconds, zero lists the tags of the remote every time.
+	//
+	public BuildVersionRemoteTags(final VCSAccess vcs,
+		final String remoteOrigin,
+		final File cacheDir,
+		final long ttl)
+	{
+		this.vcs = vcs;
+		this.remoteOrigin = remoteOrigin;
+		this.cacheFile = new File(cacheDir, "remote-tags-"
+			+ remoteOrigin.replaceAll("[^A-Za-z0-9._-]", "_") + ".properties");
+		this.ttl = ttl;
+	}
+
+	public File getCacheFile()
+	{
+		return cacheFile;
+	}
+
+	//
+	// Return the date of the tag, or null if the tag object is not in the local
+	// repository
+	//
+	public synchronized Date getDate(final VCSTag tag)
+		throws VCSException
+	{
+		Date rVal = null;
+		final SortedProperties tags = getCache();
+		final String cachedDate = tags.getProperty(DATE_PREFIX + tag.getCommit());
+
+		if (null != cachedDate)
+		{
+			rVal = new Date(Long.parseLong(cachedDate));
+		}
+		else
+		{
+			rVal = vcs.getTagDate(tag.getCommit());
+
+			if (null != rVal)
+			{
+				tags.addProperty(DATE_PREFIX + tag.getCommit(), rVal.getTime());
+				save(tags);
+			}
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the cached tags, listing the tags of the remote if the cache is
+	// missing or has expired. Dates are kept for the tags still on the remote.
+	//
+	private SortedProperties getCache()
+		throws VCSException
+	{
+		if (null == cache)
+		{
+			cache = load();
+		}
+
+		if (!isFresh(cache))
+		{
+			final SortedProperties tags = new SortedProperties();
+			final Set<String> objectIds = new HashSet<>();
+
+			for (final VCSTag tag : vcs.getRemoteTags(remoteOrigin, ".*"))
+			{
+				tags.addProperty(TAG_PREFIX + tag.getName(), tag.getCommit());
+				objectIds.add(tag.getCommit());
+			}
+
+			for (final String key : cache.stringPropertyNames())
+			{
+				if (key.startsWith(DATE_PREFIX)
+					&& objectIds.contains(key.substring(DATE_PREFIX.length())))
+				{
+					tags.addProperty(key, cache.getProperty(key));
+				}
+			}
+
+			tags.addProperty(TIMESTAMP_KEY, System.currentTimeMillis());
+			save(tags);
+			cache = tags;
+		}
+
+		return cache;
+	}
+
+	//
+	// Return the tags of the remote matching the filter. Only the name and object
+	// id of each tag are known.
+	//
+	public synchronized List<VCSTag> getTags(final String regexFilter)
+		throws VCSException
+	{
+		final List<VCSTag> rVal = new ArrayList<>();
+		final SortedProperties tags = getCache();
+
+		for (final String key : tags.stringPropertyNames())
+		{
+			if (key.startsWith(TAG_PREFIX))
+			{
+				final String tagName = key.substring(TAG_PREFIX.length());
+
+				if (tagName.matches(regexFilter))
+				{
+					rVal.add(new VCSTag(tagName, tags.getProperty(key), null, null, null, null));
+				}
+			}
+		}
+
+		return rVal;
+	}
+
+	public long getTtl()
+	{
+		return ttl;
+	}
+
+	private boolean isFresh(final SortedProperties tags)
+	{
+		boolean rVal = false;
+		final String timestamp = tags.getProperty(TIMESTAMP_KEY);
+
+		if (null != timestamp)
+		{
+			try
+			{
+				final long age = System.currentTimeMillis() - Long.parseLong(timestamp);
+
+				rVal = (age >= 0) && (age < TimeUnit.SECONDS.toMillis(ttl));
+			}
+			catch (final NumberFormatException e)
+			{
+				// A damaged cache is listed again
+			}
+		}
+
+		return rVal;
+	}
+
+	//
+	// Read the cache file. A missing or unreadable file is an empty cache.
+	//
+	private SortedProperties load()
+	{
+		final SortedProperties rVal = new SortedProperties();
+
+		if (cacheFile.isFile())
+		{
+			try (InputStream in = Files.newInputStream(cacheFile.toPath()))
+			{
+				rVal.load(in);
+			}
+			catch (final IOException | IllegalArgumentException e)
+			{
+				rVal.clear();
+			}
+		}
+
+		return rVal;
+	}
+
+	//
+	// Write the cache file. The file is replaced in one step so builds running
+	// at the same time never read a partial file. The cache only saves time, so
+	// a failure to write it is ignored.
+	//
+	private void save(final SortedProperties tags)
+	{
+		try
+		{
+			final File cacheDir = cacheFile.getParentFile();
+
+			if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+			{
+				return;
+			}
+
+			final File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+
+			try
+			{
+				try (OutputStream out = Files.newOutputStream(tempFile.toPath()))
+				{
+					tags.store(out, "Tags of remote " + remoteOrigin);
+				}
+				Files.move(tempFile.toPath(), cacheFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally
+			{
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+		catch (final IOException e)
+		{
+			// Listed again by the next build
+		}
+	}
+}
@@ -4,9 +4,6 @@ import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
-import org.kercheval.gradle.buildvcs.BuildVCSPlugin;
-import org.kercheval.gradle.buildvcs.BuildVCSTask;
-import org.kercheval.gradle.info.GradleInfoSource;
 import org.kercheval.gradle.vcs.VCSException;
 import org.kercheval.gradle.vcs.VCSTaskUtil;
 
@@ -41,8 +38,6 @@ public class BuildVersionTagTask
 		final Project project = getProject();
 		if (project.getVersion() instanceof BuildVersion)
 		{
-			final BuildVCSTask vcsTask = (BuildVCSTask) new GradleInfoSource(project)
-				.getTask(BuildVCSPlugin.VCS_TASK_NAME);
 			final VCSTaskUtil vcsUtil = new VCSTaskUtil(project);
 
 			if (isOnlyifclean())
@@ -54,14 +49,13 @@ public class BuildVersionTagTask
 			}
 
 			//
-			// Write a tag into VCS using the current project version
+			// Write a tag into VCS using the current project version. If another build
+			// has tagged the version, the version is moved past the versions tagged.
 			//
 			try
 			{
-				vcsTask.createTag(project.getVersion().toString(), getComment());
-				project.getLogger().info(
-					"Tag '" + project.getVersion() + "' written to VCS with comment '"
-						+ getComment() + "'");
+				new BuildVersionTagWriter(vcsUtil.getVCS(), project.getLogger()).writeNext(
+					(BuildVersion) project.getVersion(), getComment());
 			}
 			catch (final VCSException e)
 			{
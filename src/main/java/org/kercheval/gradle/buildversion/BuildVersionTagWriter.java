@@ -0,0 +1,226 @@
+package org.kercheval.gradle.buildversion;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.gradle.api.logging.Logger;
+import org.kercheval.gradle.vcs.VCSAccess;
+import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSRefTransaction;
+import org.kercheval.gradle.vcs.VCSTag;
+
+//
+// Write the tag for a version. Builds of the same commit running at the same
+// time compute the same next version. The tag is created atomically, failing if
+// it already exists, so exactly one of the builds writes it. The other builds
+// move their version past the versions tagged and try again (see writeNext)
+// rather than failing the build.
+//
+// Nothing is written to the repository before the tag is, so a dry run or a
+// build that fails before tagging uses no version. The tag and the move of the
+// version reference (see BuildVersionRef) are written in one transaction (see
+// VCSAccess.updateRefs), so either both are made or neither is.
+//
+public class BuildVersionTagWriter
+{
+	//
+	// The number of versions tried before giving up when other builds tag the
+	// versions first
+	//
+	public static final int WRITE_ATTEMPTS = 5;
+
+	//
+	// The number of times the transaction is tried when another build moves
+	// the version reference concurrently
+	//
+	public static final int UPDATE_ATTEMPTS = 5;
+
+	private final VCSAccess vcs;
+	private final Logger logger;
+
+	public BuildVersionTagWriter(final VCSAccess vcs, final Logger logger)
+	{
+		this.vcs = vcs;
+		this.logger = logger;
+	}
+
+	//
+	// Move the version past the versions already tagged. If the pattern has a
+	// build number, a version with the same numbers is tagged and the next build
+	// number is taken from the index. Otherwise only a tag of the same name is a
+	// collision (earlier releases of the same major and minor version differ by
+	// date), so the date is updated and the version is incremented only if the
+	// name is still tagged.
+	//
+	private void advanceVersion(final BuildVersion version)
+		throws VCSException
+	{
+		final VersionFormat versionFormat = version.getVersionFormat();
+		final List<String> tagNames = vcs.getTagNames(versionFormat.getValidatePattern());
+
+		if (version.useBuild())
+		{
+			final BuildVersionIndex index = new BuildVersionIndex(new BuildVersionParser(
+				versionFormat).parse(tagNames, BuildVersionParser.SortOrder.VERSION).getValues());
+
+			if (index.contains(version.getMajor(), version.getMinor(), version.getBuild()))
+			{
+				version.setBuild(Math.max(version.getBuild() + 1,
+					index.getNextBuild(version.getMajor(), version.getMinor())));
+				version.updateDate();
+			}
+		}
+		else
+		{
+			final Set<String> usedNames = new HashSet<>(tagNames);
+
+			if (usedNames.contains(version.toString()))
+			{
+				version.updateDate();
+			}
+
+			for (int i = 0; (i <= usedNames.size()) && usedNames.contains(version.toString()); i++)
+			{
+				version.incrementVersion();
+			}
+		}
+	}
+
+	private boolean isTagged(final String tagName)
+		throws VCSException
+	{
+		return !vcs.getTagNames(Pattern.quote(tagName)).isEmpty();
+	}
+
+
+	//
+	// Make the version reference current after the tag is written. A reference
+	// that was current before the write only needs the new tag stamp, a stale
+	// reference is reset from the tag names. The tag is already written, so a
+	// failure only leaves the reference stale (the tags are parsed by the next
+	// build).
+	//
+	private void updateCurrent(final BuildVersionRef versionRef, final boolean wasCurrent)
+	{
+		try
+		{
+			if (wasCurrent)
+			{
+				versionRef.setCurrent();
+			}
+			else
+			{
+				versionRef.refresh();
+			}
+		}
+		catch (final VCSException e)
+		{
+			logger.info("Unable to update version reference " + versionRef.getRefName() + ": "
+				+ e.getMessage());
+		}
+	}
+
+	//
+	// Tag the current commit with the version and return the tag name. The
+	// version is not changed: if the tag already exists (written by another
+	// build) the write fails. The version reference is moved to the tag if it is
+	// the highest version.
+	//
+	public String write(final BuildVersion version, final String comment)
+		throws VCSException
+	{
+		final String rVal = writeTag(version, comment);
+
+		if (null == rVal)
+		{
+			throw new VCSException("Unable to create tag for version " + version,
+				new IllegalStateException("Tag '" + version + "' already exists"));
+		}
+
+		return rVal;
+	}
+
+	//
+	// Tag the current commit with the next version not tagged and return the
+	// tag name. If another build tags the version first, the version is moved
+	// past the versions tagged and the write is tried again. The version is
+	// updated in place, so the project version reflects the version tagged.
+	//
+	public String writeNext(final BuildVersion version, final String comment)
+		throws VCSException
+	{
+		for (int i = 0; i < WRITE_ATTEMPTS; i++)
+		{
+			advanceVersion(version);
+
+			final String rVal = writeTag(version, comment);
+
+			if (null != rVal)
+			{
+				return rVal;
+			}
+
+			logger.info("Tag '" + version + "' written by another build, selecting the next version");
+		}
+
+		throw new VCSException("Unable to create tag for version " + version,
+			new IllegalStateException("Versions tagged concurrently " + WRITE_ATTEMPTS + " times"));
+	}
+
+	//
+	// Write the tag and move the version reference in one transaction. Return
+	// the tag name, or null if the tag already exists.
+	//
+	private String writeTag(final BuildVersion version, final String comment)
+		throws VCSException
+	{
+		final String tagName = version.toString();
+		final BuildVersionRef versionRef = new BuildVersionRef(vcs, version.getVersionFormat());
+		VCSException failure = null;
+
+		for (int i = 0; i < UPDATE_ATTEMPTS; i++)
+		{
+			//
+			// A stamp read after the write only covers the tags seen before it if the
+			// reference is current before the tag is written
+			//
+			final boolean wasCurrent = versionRef.isCurrent();
+			final VCSRefTransaction transaction = new VCSRefTransaction().createTag(new VCSTag(
+				tagName, comment));
+			final boolean moveRef = versionRef.addUpdate(transaction, version, tagName);
+
+			try
+			{
+				vcs.updateRefs(transaction);
+
+				logger.info("Tag '" + tagName + "' written to VCS with comment '" + comment + "'");
+				if (moveRef)
+				{
+					logger.info("Version reference " + versionRef.getRefName() + " set to tag '"
+						+ tagName + "'");
+				}
+
+				updateCurrent(versionRef, wasCurrent);
+
+				return tagName;
+			}
+			catch (final VCSException e)
+			{
+				if (isTagged(tagName))
+				{
+					return null;
+				}
+
+				//
+				// Nothing was written, the version reference may have been moved by
+				// another build
+				//
+				failure = e;
+			}
+		}
+
+		throw failure;
+	}
+}
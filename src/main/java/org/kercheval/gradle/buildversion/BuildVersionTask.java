@@ -1,7 +1,11 @@
 package org.kercheval.gradle.buildversion;
 
+import java.io.File;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map.Entry;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
@@ -9,11 +13,11 @@ import org.gradle.api.execution.TaskExecutionGraph;
 import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
-import org.kercheval.gradle.buildvcs.BuildVCSPlugin;
-import org.kercheval.gradle.buildvcs.BuildVCSTask;
-import org.kercheval.gradle.info.GradleInfoSource;
+import org.kercheval.gradle.vcs.VCSAccess;
 import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSStatusSnapshot;
 import org.kercheval.gradle.vcs.VCSTag;
+import org.kercheval.gradle.vcs.VCSTaskUtil;
 
 public class BuildVersionTask
 	extends DefaultTask
@@ -22,6 +26,12 @@ public class BuildVersionTask
 	public static final boolean DEFAULT_AUTOINCREMENT = true;
 	public static final boolean DEFAULT_USETAG = true;
 	public static final boolean DEFAULT_USELOCALTIMEZONE = false;
+	public static final String SELECTION_DATE = "date";
+	public static final String SELECTION_VERSION = "version";
+	public static final String DEFAULT_TAGSELECTION = SELECTION_DATE;
+	public static final boolean DEFAULT_USEVERSIONREF = true;
+	public static final boolean DEFAULT_RESETVERSIONREF = false;
+	public static final String REMOTE_TAGS_CACHE_DIR = ".gradle/buildversion";
 
 	//
 	// When autowrite is true, the project version will automatically be set at
@@ -53,6 +63,40 @@ public class BuildVersionTask
 	//
 	private boolean uselocaltimezone = DEFAULT_USELOCALTIMEZONE;
 
+	//
+	// tagselection determines which of the matching tags is used when usetag is true.
+	// The value 'date' selects the tag on the most recent commit and 'version' selects
+	// the highest version (which is correct when older releases are tagged later, for
+	// example after a backport release).
+	//
+	private String tagselection = DEFAULT_TAGSELECTION;
+
+	//
+	// If useversionref is true and tagselection is 'version', the highest version
+	// tag is read from the version reference maintained by the tag tasks (see
+	// BuildVersionRef) rather than by parsing every tag. All tags are parsed if the
+	// reference is missing or stale. Set this to false if version tags are also
+	// created by other means.
+	//
+	private boolean useversionref = DEFAULT_USEVERSIONREF;
+
+	//
+	// If resetversionref is true, a missing or stale version reference found when
+	// the version is resolved is reset to the highest tag parsed, so the next
+	// build reads it. Otherwise version resolution never writes to the
+	// repository (the reference is only maintained by the tag tasks).
+	//
+	private boolean resetversionref = DEFAULT_RESETVERSIONREF;
+
+	//
+	// If remotetags is set to the name of a remote, the tags are listed from that
+	// remote rather than read from the local repository (see
+	// BuildVersionRemoteTags). This finds the version in workspaces cloned
+	// without tags. The list is cached for remotetagsttl seconds.
+	//
+	private String remotetags = null;
+	private long remotetagsttl = BuildVersionRemoteTags.DEFAULT_TTL;
+
 	//
 	// This is the object that will be set at the project version. This is normally
 	// updated via a tag search during task execution, but doLast handlers can modify this
@@ -106,9 +150,153 @@ public class BuildVersionTask
 			getVersion().incrementVersion();
 		}
 
+		//
+		// The workspace marker comes from the status shared by the build, so the
+		// (early exit) clean check is done at most once per build.
+		//
+		if (getVersion().useDirty())
+		{
+			try
+			{
+				getVersion().setDirty(
+					!VCSStatusSnapshot.getInstance(project).isClean(
+						new VCSTaskUtil(project).getVCS()));
+			}
+			catch (final VCSException e)
+			{
+				throw new TaskExecutionException(this, e);
+			}
+		}
+
 		project.setVersion(getVersion());
 	}
 
+	//
+	// Return the name of the highest version tag, or null if no tag could be
+	// parsed. Tags that do not parse are logged and ignored.
+	//
+	private String getHighestTagName(final Project project, final List<VCSTag> tagList,
+		final VersionFormat versionFormat)
+	{
+		final List<String> tagNames = new ArrayList<>(tagList.size());
+
+		for (final VCSTag tag : tagList)
+		{
+			tagNames.add(tag.getName());
+		}
+
+		final BuildVersionParser.Result result = new BuildVersionParser(versionFormat).parse(
+			tagNames, BuildVersionParser.SortOrder.VERSION);
+
+		for (final Entry<String, String> reject : result.getRejects().entrySet())
+		{
+			project.getLogger().info(
+				"Ignoring tag '" + reject.getKey() + "': " + reject.getValue());
+		}
+
+		String rVal = null;
+		final BuildVersionValue highest = new BuildVersionIndex(result.getValues()).getHighest();
+
+		if (null != highest)
+		{
+			rVal = result.getCandidate(highest);
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the name of the tag on the most recent commit, or null if there are
+	// no tags.
+	//
+	private String getNewestTagName(final List<VCSTag> tagList)
+	{
+		VCSTag foundTag = null;
+
+		for (final VCSTag tag : tagList)
+		{
+			if (null == foundTag)
+			{
+				foundTag = tag;
+			}
+			else
+			{
+				if (foundTag.getCommitDate().before(tag.getCommitDate()))
+				{
+					foundTag = tag;
+				}
+			}
+		}
+
+		return null == foundTag ? null : foundTag.getName();
+	}
+
+	//
+	// Return the name of the remote tag on the most recent commit. Dates are
+	// only known for tags with objects in the local repository (tag objects are
+	// not fetched, as that would fetch the history of a shallow clone). Tags
+	// without a date are not selected, and if no date is known the highest
+	// version is used. Both cases change the selection asked for, so they are
+	// reported as warnings.
+	//
+	private String getNewestRemoteTagName(final Project project,
+		final BuildVersionRemoteTags remoteTags, final List<VCSTag> tagList,
+		final VersionFormat versionFormat)
+		throws VCSException
+	{
+		String rVal = null;
+		Date foundDate = null;
+		int undatedCount = 0;
+
+		for (final VCSTag tag : tagList)
+		{
+			final Date tagDate = remoteTags.getDate(tag);
+
+			if (null == tagDate)
+			{
+				undatedCount++;
+			}
+			else if ((null == foundDate) || foundDate.before(tagDate))
+			{
+				rVal = tag.getName();
+				foundDate = tagDate;
+			}
+		}
+
+		if ((null == rVal) && !tagList.isEmpty())
+		{
+			project.getLogger().warn(
+				"No remote tag of " + getRemotetags() + " is in the local repository, so tag "
+					+ "dates are not known and the highest version is selected (set "
+					+ "tagselection to '" + SELECTION_VERSION + "' to select it explicitly)");
+			rVal = getHighestTagName(project, tagList, versionFormat);
+		}
+		else if (undatedCount > 0)
+		{
+			project.getLogger().warn(
+				undatedCount + " remote tags of " + getRemotetags() + " are not in the local "
+					+ "repository and were not considered for date selection (set "
+					+ "tagselection to '" + SELECTION_VERSION + "' to select from all tags)");
+		}
+
+		return rVal;
+	}
+
+	public String getRemotetags()
+	{
+		return remotetags;
+	}
+
+	public long getRemotetagsttl()
+	{
+		return remotetagsttl;
+	}
+
+	public String getTagselection()
+	{
+		return tagselection;
+	}
+
 	public BuildVersion getVersion()
 	{
 		return version;
@@ -120,60 +308,89 @@ public class BuildVersionTask
 
 		if (isUsetag())
 		{
-			//
-			// Get the filtered list of tags from VCS and iterate to find the newest one.
-			//
-			final BuildVCSTask vcsTask = (BuildVCSTask) new GradleInfoSource(project)
-				.getTask(BuildVCSPlugin.VCS_TASK_NAME);
-			List<VCSTag> tagList;
+			final VCSAccess vcs = new VCSTaskUtil(project).getVCS();
+			final VersionFormat versionFormat = VersionFormat.get(rVal.getPattern(),
+				rVal.getValidatePattern(), uselocaltimezone);
+			BuildVersionCache.Resolution resolution;
+			BuildVersionRemoteTags remoteTags = null;
 
-			try
+			if (null != getRemotetags())
 			{
-				tagList = vcsTask.getTags(getVersion().getValidatePattern());
+				remoteTags = new BuildVersionRemoteTags(vcs, getRemotetags(), new File(
+					project.getRootDir(), REMOTE_TAGS_CACHE_DIR), getRemotetagsttl());
 			}
-			catch (final VCSException e)
-			{
-				throw new TaskExecutionException(this, e);
-			}
-
-			VCSTag foundTag = null;
 
-			for (final VCSTag tag : tagList)
+			try
 			{
-				if (null == foundTag)
+				//
+				// Builds of an unchanged checkout (same HEAD and tags) reuse the tag
+				// selected by an earlier build in this daemon, reading only references.
+				// Remote tags change without the checkout changing, so they are cached
+				// by BuildVersionRemoteTags instead.
+				//
+				String cacheKey = null;
+
+				if (null == remoteTags)
 				{
-					foundTag = tag;
+					cacheKey = BuildVersionCache.getKey(project.getRootDir(),
+						vcs.getRefFingerprint(), versionFormat, getTagselection(),
+						isUseversionref());
 				}
-				else
+
+				resolution = (null == cacheKey) ? null : BuildVersionCache.get(cacheKey);
+
+				if (null == resolution)
 				{
-					if (foundTag.getCommitDate().before(tag.getCommitDate()))
+					final String tagName = selectTagName(project, vcs, remoteTags, versionFormat);
+					int commits = BuildVersionCache.Resolution.NO_COMMITS;
+
+					//
+					// The commit count is the number of commits since the tag (all commits
+					// if there is no tag). The walk stops at the tag.
+					//
+					if (rVal.useCommits())
+					{
+						commits = vcs.getCommitDistance(tagName);
+					}
+
+					resolution = new BuildVersionCache.Resolution(tagName, commits);
+
+					if (null != cacheKey)
 					{
-						foundTag = tag;
+						BuildVersionCache.put(cacheKey, resolution);
 					}
 				}
 			}
+			catch (final VCSException e)
+			{
+				throw new TaskExecutionException(this, e);
+			}
 
 			//
 			// If we found a matching tag, generate the build version based on that tag name
-			// and return
 			//
-			if (null != foundTag)
+			final String tagName = resolution.getTagName();
+
+			if (null != tagName)
 			{
 				try
 				{
-					rVal = new BuildVersion(rVal.getPattern(), rVal.getValidatePattern(),
-						foundTag.getName(), uselocaltimezone);
+					rVal = new BuildVersion(rVal.getPattern(), rVal.getValidatePattern(), tagName,
+						uselocaltimezone);
 				}
 				catch (final ParseException e)
 				{
-					project.getLogger()
-						.error(
-							"Unable to generate version from tag '" + foundTag + "': "
-								+ e.getMessage());
+					project.getLogger().error(
+						"Unable to generate version from tag '" + tagName + "': " + e.getMessage());
 
 					throw new TaskExecutionException(this, e);
 				}
 			}
+
+			if (rVal.useCommits())
+			{
+				rVal.setCommits(resolution.getCommits());
+			}
 		}
 
 		return rVal;
@@ -194,6 +411,67 @@ public class BuildVersionTask
 		return usetag;
 	}
 
+	//
+	// Select the newest or highest of the tags matching the validate pattern. The
+	// highest version is read from the version reference if there is one. The
+	// version reference is local, so it is not used for remote tags.
+	//
+	private String selectTagName(final Project project, final VCSAccess vcs,
+		final BuildVersionRemoteTags remoteTags, final VersionFormat versionFormat)
+		throws VCSException
+	{
+		String rVal = null;
+
+		if (null != remoteTags)
+		{
+			final List<VCSTag> tagList = remoteTags.getTags(versionFormat.getValidatePattern());
+
+			if (SELECTION_VERSION.equals(getTagselection()))
+			{
+				rVal = getHighestTagName(project, tagList, versionFormat);
+			}
+			else
+			{
+				rVal = getNewestRemoteTagName(project, remoteTags, tagList, versionFormat);
+			}
+		}
+		else if (SELECTION_VERSION.equals(getTagselection()))
+		{
+			BuildVersionRef versionRef = null;
+
+			if (isUseversionref())
+			{
+				versionRef = new BuildVersionRef(vcs, versionFormat);
+				rVal = versionRef.getLatestTag();
+			}
+
+			if (null == rVal)
+			{
+				//
+				// The reference is missing or stale, so the tags are parsed (and the
+				// reference reset to the highest for the next build if enabled)
+				//
+				final boolean reset = (null != versionRef) && isResetversionref();
+				final String refTagName = reset ? vcs.getTagRef(versionRef.getRefName()) : null;
+				final String tagStamp = reset ? vcs.getTagStamp() : null;
+				final List<VCSTag> tagList = vcs.getTags(versionFormat.getValidatePattern());
+
+				rVal = getHighestTagName(project, tagList, versionFormat);
+
+				if (reset && (null != rVal))
+				{
+					versionRef.reset(refTagName, rVal, tagStamp);
+				}
+			}
+		}
+		else
+		{
+			rVal = getNewestTagName(vcs.getTags(versionFormat.getValidatePattern()));
+		}
+
+		return rVal;
+	}
+
 	public void setAutoincrement(final boolean autoincrement)
 	{
 		this.autoincrement = autoincrement;
@@ -204,6 +482,34 @@ public class BuildVersionTask
 		this.autowrite = autowrite;
 	}
 
+	public void setRemotetags(final String remotetags)
+	{
+		this.remotetags = remotetags;
+	}
+
+	public void setRemotetagsttl(final long remotetagsttl)
+	{
+		if (remotetagsttl < 0)
+		{
+			throw new IllegalArgumentException("The remotetagsttl '" + remotetagsttl
+				+ "' is invalid for task " + getName() + ".  The value must not be negative.");
+		}
+
+		this.remotetagsttl = remotetagsttl;
+	}
+
+	public void setTagselection(final String tagselection)
+	{
+		if (!SELECTION_DATE.equals(tagselection) && !SELECTION_VERSION.equals(tagselection))
+		{
+			throw new IllegalArgumentException("The tag selection '" + tagselection
+				+ "' is invalid for task " + getName() + ".  Valid values are one of ["
+				+ SELECTION_DATE + ", " + SELECTION_VERSION + "]");
+		}
+
+		this.tagselection = tagselection;
+	}
+
 	public void setUsetag(final boolean usetag)
 	{
 		this.usetag = usetag;
@@ -223,4 +529,24 @@ public class BuildVersionTask
 	{
 		this.uselocaltimezone = uselocaltimezone;
 	}
+
+	public boolean isResetversionref()
+	{
+		return resetversionref;
+	}
+
+	public void setResetversionref(final boolean resetversionref)
+	{
+		this.resetversionref = resetversionref;
+	}
+
+	public boolean isUseversionref()
+	{
+		return useversionref;
+	}
+
+	public void setUseversionref(final boolean useversionref)
+	{
+		this.useversionref = useversionref;
+	}
 }
@@ -0,0 +1,429 @@
+package org.kercheval.gradle.buildversion;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+//
+// An immutable version. Values may be shared freely between threads (for
+// example tasks running in parallel workers) with no locking or copies. New
+// values are created with a Builder, typically from an existing value using
+// toBuilder(). BuildVersion is the mutable facade used as project.version.
+//
+// The build instant is held to millisecond precision, matching the dates
+// used by BuildVersion.
+//
+public final class BuildVersionValue
+	implements Comparable<BuildVersionValue>
+{
+	//
+	// The bit layout of the ordering key. Major, minor and build number are
+	// followed by the build date in seconds, keeping the key positive. Versions
+	// with values outside these ranges, or with a commit count, have no ordering
+	// key.
+	//
+	private static final int KEY_MINOR_BITS = 10;
+	private static final int KEY_BUILD_BITS = 12;
+	private static final int KEY_SECONDS_BITS = 33;
+	private static final int KEY_MAJOR_BITS = 63 - KEY_MINOR_BITS - KEY_BUILD_BITS
+		- KEY_SECONDS_BITS;
+	public static final long NO_ORDERING_KEY = -1;
+
+	//
+	// Builder for values. Builders are not thread safe. The increment methods
+	// behave as those of BuildVersion.
+	//
+	public static final class Builder
+	{
+		private VersionFormat versionFormat;
+		private int major;
+		private int minor;
+		private int build;
+		private int commits;
+		private boolean dirty;
+		private Instant buildInstant;
+
+		private Builder(final VersionFormat versionFormat)
+		{
+			this.versionFormat = versionFormat;
+		}
+
+		//
+		// Create the value. The build instant is 'now' if not set.
+		//
+		public BuildVersionValue build()
+		{
+			Instant instant = buildInstant;
+
+			if (null == instant)
+			{
+				instant = Instant.now();
+			}
+
+			return new BuildVersionValue(versionFormat, major, minor, build, commits, dirty,
+				instant.truncatedTo(ChronoUnit.MILLIS));
+		}
+
+		public Builder incrementBuild()
+		{
+			build++;
+			return updateDate();
+		}
+
+		public Builder incrementMajor()
+		{
+			major++;
+			minor = 0;
+			return updateDate();
+		}
+
+		public Builder incrementMinor()
+		{
+			minor++;
+			return updateDate();
+		}
+
+		//
+		// Increment the most volatile value used by the pattern (see
+		// BuildVersion.incrementVersion)
+		//
+		public Builder incrementVersion()
+		{
+			final VersionPattern pattern = versionFormat.getVersionPattern();
+			Builder rVal;
+
+			if (pattern.useBuild())
+			{
+				rVal = incrementBuild();
+			}
+			else if (pattern.useMinor())
+			{
+				rVal = incrementMinor();
+			}
+			else if (pattern.useMajor())
+			{
+				rVal = incrementMajor();
+			}
+			else
+			{
+				rVal = updateDate();
+			}
+
+			return rVal;
+		}
+
+		public Builder setBuild(final int build)
+		{
+			this.build = build;
+			return this;
+		}
+
+		//
+		// A null instant is 'now' (when the value is built)
+		//
+		public Builder setBuildInstant(final Instant buildInstant)
+		{
+			this.buildInstant = buildInstant;
+			return this;
+		}
+
+		//
+		// The number of commits since the version tag (see the %c% variable)
+		//
+		public Builder setCommits(final int commits)
+		{
+			this.commits = commits;
+			return this;
+		}
+
+		//
+		// Mark the version as built from a workspace with changes (see the %s%
+		// variable)
+		//
+		public Builder setDirty(final boolean dirty)
+		{
+			this.dirty = dirty;
+			return this;
+		}
+
+		public Builder setMajor(final int major)
+		{
+			this.major = major;
+			return this;
+		}
+
+		public Builder setMinor(final int minor)
+		{
+			this.minor = minor;
+			return this;
+		}
+
+		public Builder setVersionFormat(final VersionFormat versionFormat)
+		{
+			this.versionFormat = versionFormat;
+			return this;
+		}
+
+		public Builder updateDate()
+		{
+			buildInstant = Instant.now();
+			return this;
+		}
+
+		public Builder updateMajor(final int newMajor)
+		{
+			if (major != newMajor)
+			{
+				major = newMajor;
+				minor = 0;
+			}
+
+			return this;
+		}
+	}
+
+	private final VersionFormat versionFormat;
+	private final int major;
+	private final int minor;
+	private final int build;
+	private final int commits;
+	private final boolean dirty;
+	private final Instant buildInstant;
+	private final long orderingKey;
+
+	//
+	// The version string is rendered on first use. Rendering is idempotent, so
+	// racing threads may render it more than once but always see a valid string.
+	//
+	private String versionString;
+
+	private BuildVersionValue(final VersionFormat versionFormat,
+		final int major,
+		final int minor,
+		final int build,
+		final int commits,
+		final boolean dirty,
+		final Instant buildInstant)
+	{
+		this.versionFormat = versionFormat;
+		this.major = major;
+		this.minor = minor;
+		this.build = build;
+		this.commits = commits;
+		this.dirty = dirty;
+		this.buildInstant = buildInstant;
+
+		orderingKey = generateOrderingKey();
+	}
+
+	public static Builder builder(final VersionFormat versionFormat)
+	{
+		return new Builder(versionFormat);
+	}
+
+	//
+	// Versions are ordered by major, minor and build number, commit count and
+	// then by build date. The build date is only used if the pattern contains
+	// the date, otherwise it is just the time the version was created. A dirty
+	// version follows the same clean version. Versions with an ordering key (the
+	// common case) compare with a single long comparison. The version format is
+	// not part of the order, so the order is consistent with equals only for
+	// versions of the same format.
+	//
+	@Override
+	public int compareTo(final BuildVersionValue other)
+	{
+		int rVal;
+
+		if ((orderingKey != NO_ORDERING_KEY) && (other.orderingKey != NO_ORDERING_KEY))
+		{
+			rVal = Long.compare(orderingKey, other.orderingKey);
+		}
+		else
+		{
+			rVal = Integer.compare(major, other.major);
+
+			if (rVal == 0)
+			{
+				rVal = Integer.compare(minor, other.minor);
+			}
+
+			if (rVal == 0)
+			{
+				rVal = Integer.compare(build, other.build);
+			}
+
+			if (rVal == 0)
+			{
+				rVal = Integer.compare(commits, other.commits);
+			}
+		}
+
+		//
+		// The key holds seconds, the milliseconds break any remaining tie
+		//
+		if (rVal == 0)
+		{
+			rVal = Long.compare(getOrderingDate(), other.getOrderingDate());
+		}
+
+		if (rVal == 0)
+		{
+			rVal = Boolean.compare(dirty, other.dirty);
+		}
+
+		return rVal;
+	}
+
+	//
+	// Versions are equal if they are the same in the order and have the same
+	// pattern and validate pattern
+	//
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+
+		if (!(obj instanceof BuildVersionValue))
+		{
+			return false;
+		}
+
+		final BuildVersionValue other = (BuildVersionValue) obj;
+
+		return versionFormat.getPattern().equals(other.versionFormat.getPattern())
+			&& versionFormat.getValidatePattern().equals(other.versionFormat.getValidatePattern())
+			&& (compareTo(other) == 0);
+	}
+
+	private long generateOrderingKey()
+	{
+		final long seconds = getOrderingDate() / 1000;
+		long rVal;
+
+		if ((commits != 0) || (major < 0) || (major >= (1 << KEY_MAJOR_BITS)) || (minor < 0)
+			|| (minor >= (1 << KEY_MINOR_BITS)) || (build < 0) || (build >= (1 << KEY_BUILD_BITS))
+			|| (seconds < 0) || (seconds >= (1L << KEY_SECONDS_BITS)))
+		{
+			rVal = NO_ORDERING_KEY;
+		}
+		else
+		{
+			rVal = major;
+			rVal = (rVal << KEY_MINOR_BITS) | minor;
+			rVal = (rVal << KEY_BUILD_BITS) | build;
+			rVal = (rVal << KEY_SECONDS_BITS) | seconds;
+		}
+
+		return rVal;
+	}
+
+	public int getBuild()
+	{
+		return build;
+	}
+
+	public Instant getBuildInstant()
+	{
+		return buildInstant;
+	}
+
+	public int getCommits()
+	{
+		return commits;
+	}
+
+	public int getMajor()
+	{
+		return major;
+	}
+
+	public int getMinor()
+	{
+		return minor;
+	}
+
+	//
+	// The build date used for ordering, 0 if the pattern has no date
+	//
+	private long getOrderingDate()
+	{
+		long rVal = 0;
+
+		if (versionFormat.getVersionPattern().useDate())
+		{
+			rVal = buildInstant.toEpochMilli();
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return a positive key such that comparing the keys of two versions orders
+	// them the same as compareTo (to the second). NO_ORDERING_KEY is returned if
+	// a value is too large (or negative) to be packed into the key or if the
+	// version has a commit count.
+	//
+	public long getOrderingKey()
+	{
+		return orderingKey;
+	}
+
+	public VersionFormat getVersionFormat()
+	{
+		return versionFormat;
+	}
+
+	public boolean isDirty()
+	{
+		return dirty;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final long date = getOrderingDate();
+		int rVal = major;
+
+		rVal = (31 * rVal) + minor;
+		rVal = (31 * rVal) + build;
+		rVal = (31 * rVal) + commits;
+		rVal = (31 * rVal) + (int) (date ^ (date >>> 32));
+		rVal = (31 * rVal) + (dirty ? 1 : 0);
+		rVal = (31 * rVal) + versionFormat.getPattern().hashCode();
+		rVal = (31 * rVal) + versionFormat.getValidatePattern().hashCode();
+
+		return rVal;
+	}
+
+	public Builder toBuilder()
+	{
+		return new Builder(versionFormat).setMajor(major).setMinor(minor).setBuild(build)
+			.setCommits(commits).setDirty(dirty).setBuildInstant(buildInstant);
+	}
+
+	@Override
+	public String toString()
+	{
+		String rVal = versionString;
+
+		if (null == rVal)
+		{
+			rVal = versionFormat.format(major, minor, build, commits, dirty, buildInstant);
+
+			if (!versionFormat.getValidateRegex().matcher(rVal).matches())
+			{
+				throw new IllegalStateException("Version string generated '" + rVal
+					+ "' from pattern '" + versionFormat.getPattern()
+					+ "' does not match candidate pattern '" + versionFormat.getValidatePattern()
+					+ "'.  Output and candidate patterns must be consistent");
+			}
+
+			versionString = rVal;
+		}
+
+		return rVal;
+	}
+}
@@ -0,0 +1,209 @@
+package org.kercheval.gradle.buildversion;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+//
+// The complete, immutable version configuration of a BuildVersion: the compiled
+// pattern, the validate pattern (compiled) and the time zone mode. Formats are
+// interned in a global registry so every version (and every subproject) using
+// the same configuration shares one instance. The registry is safe to use from
+// parallel project configuration.
+//
+public class VersionFormat
+{
+	//
+	// The registry key. A null validate pattern is stored as the generated
+	// validate pattern so both forms share an entry.
+	//
+	private static final class Key
+	{
+		private final String pattern;
+		private final String validatePattern;
+		private final boolean useLocalTimeZone;
+
+		Key(final String pattern, final String validatePattern, final boolean useLocalTimeZone)
+		{
+			this.pattern = pattern;
+			this.validatePattern = validatePattern;
+			this.useLocalTimeZone = useLocalTimeZone;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+
+			final Key other = (Key) obj;
+
+			return pattern.equals(other.pattern) && validatePattern.equals(other.validatePattern)
+				&& (useLocalTimeZone == other.useLocalTimeZone);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int rVal = pattern.hashCode();
+
+			rVal = (31 * rVal) + validatePattern.hashCode();
+			rVal = (31 * rVal) + (useLocalTimeZone ? 1 : 0);
+
+			return rVal;
+		}
+	}
+
+	private static final ConcurrentMap<Key, VersionFormat> FORMAT_REGISTRY = new ConcurrentHashMap<>();
+
+	private static final TimeZone UTC_TIME_ZONE = TimeZone.getTimeZone("UTC");
+
+	private final VersionPattern versionPattern;
+	private final String validatePattern;
+	private final Pattern validateRegex;
+	private final boolean useLocalTimeZone;
+
+	private VersionFormat(final VersionPattern versionPattern, final String validatePattern,
+		final boolean useLocalTimeZone)
+	{
+		this.versionPattern = versionPattern;
+		this.validatePattern = validatePattern;
+		this.useLocalTimeZone = useLocalTimeZone;
+
+		if (validatePattern.equals(versionPattern.getValidatePattern()))
+		{
+			validateRegex = versionPattern.getValidateRegex();
+		}
+		else
+		{
+			validateRegex = Pattern.compile(validatePattern);
+		}
+	}
+
+	//
+	// Return the shared format for the configuration given. A null pattern is
+	// the default pattern and a null validate pattern is generated from the
+	// pattern. IllegalArgumentException is thrown if the pattern is not valid.
+	//
+	public static VersionFormat get(final String pattern, final String validatePattern,
+		final boolean useLocalTimeZone)
+	{
+		final VersionPattern versionPattern = VersionPattern.compile(null == pattern
+			? BuildVersion.DEFAULT_PATTERN : pattern);
+		final Key key = new Key(versionPattern.getPattern(), null == validatePattern
+			? versionPattern.getValidatePattern() : validatePattern, useLocalTimeZone);
+		VersionFormat rVal = FORMAT_REGISTRY.get(key);
+
+		if (null == rVal)
+		{
+			rVal = new VersionFormat(versionPattern, key.validatePattern, useLocalTimeZone);
+
+			final VersionFormat existing = FORMAT_REGISTRY.putIfAbsent(key, rVal);
+
+			if (null != existing)
+			{
+				rVal = existing;
+			}
+		}
+
+		return rVal;
+	}
+
+	//
+	// Generate the version string for the values given
+	//
+	public String format(final int major, final int minor, final int build,
+		final Instant buildInstant)
+	{
+		return versionPattern.format(major, minor, build, buildInstant, getZoneId());
+	}
+
+	public String format(final int major,
+		final int minor,
+		final int build,
+		final int commits,
+		final boolean dirty,
+		final Instant buildInstant)
+	{
+		return versionPattern.format(major, minor, build, commits, dirty, buildInstant,
+			getZoneId());
+	}
+
+	public String getPattern()
+	{
+		return versionPattern.getPattern();
+	}
+
+	//
+	// The time zone for dates in versions. The local time zone is looked up on
+	// each call as the default time zone of the JVM may change. The UTC zone is
+	// shared, so the zone returned must not be modified.
+	//
+	TimeZone getTimeZone()
+	{
+		TimeZone rVal = UTC_TIME_ZONE;
+
+		if (useLocalTimeZone)
+		{
+			rVal = TimeZone.getDefault();
+		}
+
+		return rVal;
+	}
+
+	public String getValidatePattern()
+	{
+		return validatePattern;
+	}
+
+	public Pattern getValidateRegex()
+	{
+		return validateRegex;
+	}
+
+	public VersionPattern getVersionPattern()
+	{
+		return versionPattern;
+	}
+
+	//
+	// The zone for dates in versions (see getTimeZone)
+	//
+	public ZoneId getZoneId()
+	{
+		ZoneId rVal = ZoneOffset.UTC;
+
+		if (useLocalTimeZone)
+		{
+			rVal = ZoneId.systemDefault();
+		}
+
+		return rVal;
+	}
+
+	public boolean isUseLocalTimeZone()
+	{
+		return useLocalTimeZone;
+	}
+
+	//
+	// Parse the candidate using the pattern (see VersionPattern.parse)
+	//
+	VersionPattern.ParsedVersion parse(final String candidate)
+		throws ParseException
+	{
+		return versionPattern.parse(candidate, getTimeZone());
+	}
+}
@@ -0,0 +1,766 @@
+package org.kercheval.gradle.buildversion;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+//
+// A version pattern (see BuildVersion) compiled into an immutable list of
+// tokens. Each token is either literal text or one of the pattern variables.
+// Formatting and parsing of versions run directly off the token list so the
+// pattern string is only scanned once. Compiled patterns are cached by pattern
+// string and shared by all versions using the same pattern.
+//
+public class VersionPattern
+{
+	//
+	// The token types that make up a compiled pattern
+	//
+	enum TokenType
+	{
+		LITERAL,
+		MAJOR,
+		MINOR,
+		BUILD,
+		DATE,
+		TIME,
+		COMMITS,
+		DIRTY
+	}
+
+	static class Token
+	{
+		private final TokenType type;
+		private final String text;
+		private final int patternIndex;
+
+		Token(final TokenType type, final String text, final int patternIndex)
+		{
+			this.type = type;
+			this.text = text;
+			this.patternIndex = patternIndex;
+		}
+
+		//
+		// The index of the token in the source pattern (used for error reporting)
+		//
+		int getPatternIndex()
+		{
+			return patternIndex;
+		}
+
+		//
+		// The literal text for LITERAL tokens, the variable (such as %M%) otherwise
+		//
+		String getText()
+		{
+			return text;
+		}
+
+		TokenType getType()
+		{
+			return type;
+		}
+	}
+
+	//
+	// The values obtained from a parsed candidate. The build date is null if
+	// the pattern does not contain a date.
+	//
+	static class ParsedVersion
+	{
+		private final int major;
+		private final int minor;
+		private final int build;
+		private final int commits;
+		private final boolean dirty;
+		private final Date buildDate;
+
+		ParsedVersion(final int major,
+			final int minor,
+			final int build,
+			final int commits,
+			final boolean dirty,
+			final Date buildDate)
+		{
+			this.major = major;
+			this.minor = minor;
+			this.build = build;
+			this.commits = commits;
+			this.dirty = dirty;
+			this.buildDate = buildDate;
+		}
+
+		int getBuild()
+		{
+			return build;
+		}
+
+		Date getBuildDate()
+		{
+			return buildDate;
+		}
+
+		int getCommits()
+		{
+			return commits;
+		}
+
+		int getMajor()
+		{
+			return major;
+		}
+
+		int getMinor()
+		{
+			return minor;
+		}
+
+		boolean isDirty()
+		{
+			return dirty;
+		}
+	}
+
+	//
+	// Lenient parsers for the date and date/time portion of candidates. Not
+	// thread safe, but may be reused for any number of candidates.
+	//
+	static class DateParser
+	{
+		private final TimeZone timeZone;
+		private final StringBuilder scratch = new StringBuilder();
+		private SimpleDateFormat dateFormatter;
+		private SimpleDateFormat dateTimeFormatter;
+
+		DateParser(final TimeZone timeZone)
+		{
+			this.timeZone = timeZone;
+		}
+
+		private SimpleDateFormat createFormatter(final String format)
+		{
+			final SimpleDateFormat rVal = new SimpleDateFormat(format);
+			rVal.setTimeZone(timeZone);
+			rVal.setLenient(true);
+
+			return rVal;
+		}
+
+		//
+		// Parse the date, at midnight if the time is empty
+		//
+		Date parse(final String dateStr, final String timeStr)
+			throws ParseException
+		{
+			if (timeStr.length() == 0)
+			{
+				if (null == dateFormatter)
+				{
+					dateFormatter = createFormatter(BuildVersion.DATE_FORMAT_PATTERN);
+				}
+
+				return dateFormatter.parse(dateStr);
+			}
+
+			if (null == dateTimeFormatter)
+			{
+				dateTimeFormatter = createFormatter(BuildVersion.DATE_FORMAT_PATTERN + "."
+					+ BuildVersion.TIME_FORMAT_PATTERN);
+			}
+
+			scratch.setLength(0);
+			scratch.append(dateStr).append('.').append(timeStr);
+
+			return dateTimeFormatter.parse(scratch.toString());
+		}
+	}
+
+	//
+	// Compiled patterns by pattern string. Patterns are immutable so they can be
+	// shared freely between threads.
+	//
+	private static final ConcurrentMap<String, VersionPattern> PATTERN_CACHE = new ConcurrentHashMap<>();
+
+	//
+	// The date and time formatters used for output by time zone. Unlike
+	// SimpleDateFormat these are immutable and safe to share between threads.
+	//
+	private static final ConcurrentMap<ZoneId, DateTimeFormatter> DATE_FORMATTERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ZoneId, DateTimeFormatter> TIME_FORMATTERS = new ConcurrentHashMap<>();
+
+	private final String pattern;
+	private final Token[] tokens;
+	private final String validatePattern;
+	private final Pattern validateRegex;
+	private final boolean useMajor;
+	private final boolean useMinor;
+	private final boolean useBuild;
+	private final boolean useCommits;
+	private final boolean useDate;
+	private final boolean useDirty;
+
+	private VersionPattern(final String pattern)
+	{
+		this.pattern = pattern;
+		tokens = tokenize(pattern);
+
+		boolean hasMajor = false;
+		boolean hasMinor = false;
+		boolean hasBuild = false;
+		boolean hasCommits = false;
+		boolean hasDate = false;
+		boolean hasDirty = false;
+
+		for (final Token token : tokens)
+		{
+			hasMajor |= token.getType() == TokenType.MAJOR;
+			hasMinor |= token.getType() == TokenType.MINOR;
+			hasBuild |= token.getType() == TokenType.BUILD;
+			hasCommits |= token.getType() == TokenType.COMMITS;
+			hasDate |= token.getType() == TokenType.DATE;
+			hasDirty |= token.getType() == TokenType.DIRTY;
+		}
+
+		useMajor = hasMajor;
+		useMinor = hasMinor;
+		useBuild = hasBuild;
+		useCommits = hasCommits;
+		useDate = hasDate;
+		useDirty = hasDirty;
+		validatePattern = generateValidatePattern(tokens);
+		validateRegex = Pattern.compile(validatePattern);
+	}
+
+	//
+	// Return the compiled form of the pattern. IllegalArgumentException is thrown
+	// if the pattern is not valid.
+	//
+	public static VersionPattern compile(final String pattern)
+	{
+		VersionPattern rVal = PATTERN_CACHE.get(pattern);
+
+		if (null == rVal)
+		{
+			rVal = new VersionPattern(pattern);
+
+			final VersionPattern existing = PATTERN_CACHE.putIfAbsent(pattern, rVal);
+
+			if (null != existing)
+			{
+				rVal = existing;
+			}
+		}
+
+		return rVal;
+	}
+
+	//
+	// Escape all regex meta characters in literal text
+	//
+	private static void appendEscaped(final StringBuilder sb, final String text)
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			final char c = text.charAt(i);
+
+			if ("\\*+[](){}$.?^|".indexOf(c) >= 0)
+			{
+				sb.append('\\');
+			}
+			sb.append(c);
+		}
+	}
+
+	private static void checkDuplicate(final String checkPattern, final String variable,
+		final String name)
+	{
+		final int first = checkPattern.indexOf(variable);
+
+		if ((first >= 0) && (checkPattern.indexOf(variable, first + variable.length()) >= 0))
+		{
+			throw new IllegalArgumentException("Invalid pattern: " + name + " variable "
+				+ variable + " used more than once in pattern");
+		}
+	}
+
+	private static String generateValidatePattern(final Token[] tokens)
+	{
+		final StringBuilder validatePatternStr = new StringBuilder();
+
+		for (final Token token : tokens)
+		{
+			if (token.getType() == TokenType.LITERAL)
+			{
+				appendEscaped(validatePatternStr, token.getText());
+			}
+			else if (token.getType() == TokenType.DIRTY)
+			{
+				validatePatternStr.append("(?:");
+				appendEscaped(validatePatternStr, BuildVersion.DIRTY_MARKER);
+				validatePatternStr.append(")?");
+			}
+			else
+			{
+				validatePatternStr.append("\\d+");
+			}
+		}
+
+		return validatePatternStr.toString();
+	}
+
+	private static DateTimeFormatter getFormatter(
+		final ConcurrentMap<ZoneId, DateTimeFormatter> formatterMap, final String formatPattern,
+		final ZoneId zoneId)
+	{
+		DateTimeFormatter rVal = formatterMap.get(zoneId);
+
+		if (null == rVal)
+		{
+			rVal = DateTimeFormatter.ofPattern(formatPattern).withZone(zoneId);
+			formatterMap.putIfAbsent(zoneId, rVal);
+		}
+
+		return rVal;
+	}
+
+	private static int getNextNonNumberIndex(final String candidate, final int startIndex)
+	{
+		int currentIndex = startIndex;
+
+		while ((currentIndex < candidate.length())
+			&& Character.isDigit(candidate.charAt(currentIndex)))
+		{
+			currentIndex++;
+		}
+
+		return currentIndex;
+	}
+
+	private static int getNextNumberIndex(final String candidate, final int startIndex)
+	{
+		int currentIndex = startIndex;
+
+		while ((currentIndex < candidate.length())
+			&& !Character.isDigit(candidate.charAt(currentIndex)))
+		{
+			currentIndex++;
+		}
+
+		return currentIndex;
+	}
+
+	//
+	// Validate the pattern and split it into tokens. Literal text (including
+	// escaped % characters) is merged into single literal tokens.
+	//
+	private static Token[] tokenize(final String checkPattern)
+	{
+		//
+		// Ensure the pattern contains no whitespace
+		//
+		for (int i = 0; i < checkPattern.length(); i++)
+		{
+			if (Character.isWhitespace(checkPattern.charAt(i)))
+			{
+				throw new IllegalArgumentException(
+					"Invalid pattern: whitespace not allowed in pattern");
+			}
+		}
+
+		//
+		// Ensure each pattern type is used zero or one times only
+		//
+		checkDuplicate(checkPattern, "%M%", "Major");
+		checkDuplicate(checkPattern, "%m%", "Minor");
+		checkDuplicate(checkPattern, "%b%", "Build");
+		checkDuplicate(checkPattern, "%d%", "Date");
+		checkDuplicate(checkPattern, "%t%", "Time");
+		checkDuplicate(checkPattern, "%c%", "Commits");
+		checkDuplicate(checkPattern, "%s%", "Workspace");
+
+		//
+		// Validate the escape/variable syntax is used correctly and build the tokens
+		//
+		final List<Token> tokenList = new ArrayList<>();
+		final StringBuilder literal = new StringBuilder();
+		int literalIndex = 0;
+		int index = 0;
+
+		while (index < checkPattern.length())
+		{
+			final char currentChar = checkPattern.charAt(index);
+
+			if (currentChar != '%')
+			{
+				literal.append(currentChar);
+				index++;
+				continue;
+			}
+
+			//
+			// The string must have enough space left for either another % or a variable
+			// followed by a %
+			//
+			if (checkPattern.length() == (index + 1))
+			{
+				throw new IllegalArgumentException(
+					"Invalid pattern: unbalanced % found at end of pattern");
+			}
+
+			if ((checkPattern.length() == (index + 2)) && (checkPattern.charAt(index + 1) != '%'))
+			{
+				throw new IllegalArgumentException(
+					"Invalid pattern: unbalanced % found at end of pattern");
+			}
+
+			final char nextChar = checkPattern.charAt(index + 1);
+
+			if (nextChar == '%')
+			{
+				literal.append('%');
+				index += 2;
+				continue;
+			}
+
+			final char fenceChar = checkPattern.charAt(index + 2);
+
+			if (fenceChar != '%')
+			{
+				throw new IllegalArgumentException(
+					"Invalid pattern: invalid variable reference at pattern index " + (index + 2));
+			}
+
+			TokenType type;
+
+			switch (nextChar)
+			{
+			case 'M':
+				type = TokenType.MAJOR;
+				break;
+
+			case 'm':
+				type = TokenType.MINOR;
+				break;
+
+			case 'b':
+				type = TokenType.BUILD;
+				break;
+
+			case 'd':
+				type = TokenType.DATE;
+				break;
+
+			case 't':
+				type = TokenType.TIME;
+				break;
+
+			case 'c':
+				type = TokenType.COMMITS;
+				break;
+
+			case 's':
+				type = TokenType.DIRTY;
+				break;
+
+			default:
+				throw new IllegalArgumentException("Invalid pattern: invalid variable reference '"
+					+ nextChar + "' at pattern index " + (index + 1));
+			}
+
+			if (literal.length() > 0)
+			{
+				tokenList.add(new Token(TokenType.LITERAL, literal.toString(), literalIndex));
+				literal.setLength(0);
+			}
+
+			tokenList.add(new Token(type, checkPattern.substring(index, index + 3), index));
+			index += 3;
+			literalIndex = index;
+		}
+
+		if (literal.length() > 0)
+		{
+			tokenList.add(new Token(TokenType.LITERAL, literal.toString(), literalIndex));
+		}
+
+		return tokenList.toArray(new Token[tokenList.size()]);
+	}
+
+	//
+	// Generate the version string for the given values
+	//
+	public String format(final int major, final int minor, final int build,
+		final Date buildDate, final TimeZone timeZone)
+	{
+		return format(major, minor, build, buildDate.toInstant(), timeZone.toZoneId());
+	}
+
+	public String format(final int major, final int minor, final int build,
+		final Instant buildInstant, final ZoneId zoneId)
+	{
+		return format(major, minor, build, 0, false, buildInstant, zoneId);
+	}
+
+	public String format(final int major,
+		final int minor,
+		final int build,
+		final int commits,
+		final boolean dirty,
+		final Instant buildInstant,
+		final ZoneId zoneId)
+	{
+		final StringBuilder versionStr = new StringBuilder();
+
+		for (final Token token : tokens)
+		{
+			switch (token.getType())
+			{
+			case LITERAL:
+				versionStr.append(token.getText());
+				break;
+
+			case MAJOR:
+				versionStr.append(major);
+				break;
+
+			case MINOR:
+				versionStr.append(minor);
+				break;
+
+			case BUILD:
+				versionStr.append(build);
+				break;
+
+			case COMMITS:
+				versionStr.append(commits);
+				break;
+
+			case DIRTY:
+				if (dirty)
+				{
+					versionStr.append(BuildVersion.DIRTY_MARKER);
+				}
+				break;
+
+			case DATE:
+				versionStr.append(getFormatter(DATE_FORMATTERS, BuildVersion.DATE_FORMAT_PATTERN,
+					zoneId).format(buildInstant));
+				break;
+
+			case TIME:
+				versionStr.append(getFormatter(TIME_FORMATTERS, BuildVersion.TIME_FORMAT_PATTERN,
+					zoneId).format(buildInstant));
+				break;
+			}
+		}
+
+		return versionStr.toString();
+	}
+
+	public String getPattern()
+	{
+		return pattern;
+	}
+
+	//
+	// The literal text every version of this pattern starts with (empty if the
+	// pattern starts with a variable)
+	//
+	public String getPrefix()
+	{
+		String rVal = "";
+
+		if ((tokens.length > 0) && (TokenType.LITERAL == tokens[0].getType()))
+		{
+			rVal = tokens[0].getText();
+		}
+
+		return rVal;
+	}
+
+	Token[] getTokens()
+	{
+		return tokens;
+	}
+
+	//
+	// The validate pattern generated from this pattern (a regular expression)
+	//
+	public String getValidatePattern()
+	{
+		return validatePattern;
+	}
+
+	//
+	// The compiled form of the validate pattern
+	//
+	public Pattern getValidateRegex()
+	{
+		return validateRegex;
+	}
+
+	//
+	// Parse the candidate using this pattern. Literal text in the pattern is
+	// not matched, each variable is matched against the next run of digits in
+	// the candidate. The workspace marker is not numeric, the version is dirty
+	// if the candidate contains the marker anywhere.
+	//
+	// Note that the build date can only be derived if the 'date' portion of the
+	// pattern is set. If the time pattern variable is not present, the date will
+	// be midnight of the date in the candidate.
+	//
+	ParsedVersion parse(final String candidate, final TimeZone timeZone)
+		throws ParseException
+	{
+		return parse(candidate, new DateParser(timeZone));
+	}
+
+	//
+	// Parse the candidate reusing the date parser given. Used when parsing many
+	// candidates on the same thread.
+	//
+	ParsedVersion parse(final String candidate, final DateParser dateParser)
+		throws ParseException
+	{
+		int major = 0;
+		int minor = 0;
+		int build = 0;
+		int commits = 0;
+		String dateStr = "";
+		String timeStr = "";
+		int candidateIndex = getNextNumberIndex(candidate, 0);
+
+		for (final Token token : tokens)
+		{
+			if ((token.getType() == TokenType.LITERAL) || (token.getType() == TokenType.DIRTY))
+			{
+				continue;
+			}
+
+			final int nextCandidateIndex = getNextNonNumberIndex(candidate, candidateIndex);
+
+			if (candidateIndex == nextCandidateIndex)
+			{
+				throw new ParseException("Unable to match " + token.getText() + " for pattern '"
+					+ getPattern() + "'", token.getPatternIndex());
+			}
+
+			switch (token.getType())
+			{
+			case MAJOR:
+				major = parseNumber(candidate, candidateIndex, nextCandidateIndex);
+				break;
+
+			case MINOR:
+				minor = parseNumber(candidate, candidateIndex, nextCandidateIndex);
+				break;
+
+			case BUILD:
+				build = parseNumber(candidate, candidateIndex, nextCandidateIndex);
+				break;
+
+			case COMMITS:
+				commits = parseNumber(candidate, candidateIndex, nextCandidateIndex);
+				break;
+
+			case DATE:
+				dateStr = candidate.substring(candidateIndex, nextCandidateIndex);
+				break;
+
+			case TIME:
+				timeStr = candidate.substring(candidateIndex, nextCandidateIndex);
+				break;
+
+			default:
+				break;
+			}
+
+			candidateIndex = getNextNumberIndex(candidate, nextCandidateIndex);
+		}
+
+		//
+		// Last step is to formulate the date if possible
+		//
+		Date buildDate = null;
+
+		if (dateStr.length() > 0)
+		{
+			try
+			{
+				buildDate = dateParser.parse(dateStr, timeStr);
+			}
+			catch (final ParseException e)
+			{
+				throw new ParseException("Unable to match date for pattern '" + getPattern()
+					+ "'", 0);
+			}
+		}
+
+		return new ParsedVersion(major, minor, build, commits, useDirty
+			&& candidate.contains(BuildVersion.DIRTY_MARKER), buildDate);
+	}
+
+	//
+	// Parse the run of digits between the indexes without creating a substring
+	//
+	private static int parseNumber(final String candidate, final int beginIndex,
+		final int endIndex)
+	{
+		int rVal = 0;
+
+		for (int i = beginIndex; i < endIndex; i++)
+		{
+			final int digit = Character.digit(candidate.charAt(i), 10);
+
+			if (rVal > ((Integer.MAX_VALUE - digit) / 10))
+			{
+				throw new NumberFormatException("For input string: \""
+					+ candidate.substring(beginIndex, endIndex) + "\"");
+			}
+
+			rVal = (rVal * 10) + digit;
+		}
+
+		return rVal;
+	}
+
+	public boolean useBuild()
+	{
+		return useBuild;
+	}
+
+	public boolean useCommits()
+	{
+		return useCommits;
+	}
+
+	public boolean useDate()
+	{
+		return useDate;
+	}
+
+	public boolean useDirty()
+	{
+		return useDirty;
+	}
+
+	public boolean useMajor()
+	{
+		return useMajor;
+	}
+
+	public boolean useMinor()
+	{
+		return useMinor;
+	}
+}
@@ -0,0 +1,260 @@
+package org.kercheval.gradle.info;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.TreeSet;
+
+//
+// The host name and address lookup done for machine info requires a reverse
+// DNS lookup which can be very slow on some networks. The result basically
+// never changes on a given machine, so it is cached both in memory (for the
+// life of the gradle daemon) and in a file under the gradle user home (for new
+// daemons). Cached values expire after the time to live and are discarded
+// immediately if the network interfaces of the machine change.
+//
+class HostIdentityCache
+{
+	static final String HOSTNAME_PROPERTY = "hostname";
+	static final String HOSTADDRESS_PROPERTY = "hostaddress";
+	private static final String NETWORK_PROPERTY = "network";
+	private static final String CREATED_PROPERTY = "created";
+
+	//
+	// The identity found by the last lookup in this JVM
+	//
+	private static SortedProperties daemonIdentity;
+
+	private final File cacheFile;
+	private final long timeToLive;
+
+	HostIdentityCache(final File cacheFile, final long timeToLive)
+	{
+		this.cacheFile = cacheFile;
+		this.timeToLive = timeToLive;
+	}
+
+	//
+	// Clear the in memory identity. Used by tests to force the file cache to be read.
+	//
+	static synchronized void clearDaemonIdentity()
+	{
+		daemonIdentity = null;
+	}
+
+	//
+	// Return properties containing the hostname and hostaddress values for
+	// this machine. A time to live of zero or less disables caching.
+	//
+	SortedProperties getIdentity()
+		throws UnknownHostException
+	{
+		if (timeToLive <= 0)
+		{
+			return lookupIdentity(getNetworkFingerprint());
+		}
+
+		synchronized (HostIdentityCache.class)
+		{
+			final String network = getNetworkFingerprint();
+
+			if (isValid(daemonIdentity, network))
+			{
+				return daemonIdentity;
+			}
+
+			final SortedProperties fileIdentity = readCacheFile();
+
+			if (isValid(fileIdentity, network))
+			{
+				daemonIdentity = fileIdentity;
+				return daemonIdentity;
+			}
+
+			daemonIdentity = lookupIdentity(network);
+			writeCacheFile(daemonIdentity);
+
+			return daemonIdentity;
+		}
+	}
+
+	//
+	// The fingerprint of the network is the set of addresses on all active
+	// interfaces. Enumerating the interfaces is local and does not touch DNS.
+	//
+	private static String getNetworkFingerprint()
+	{
+		final Set<String> addressSet = new TreeSet<>();
+
+		try
+		{
+			final Enumeration<NetworkInterface> interfaces = NetworkInterface
+				.getNetworkInterfaces();
+
+			if (null != interfaces)
+			{
+				for (final NetworkInterface networkInterface : Collections.list(interfaces))
+				{
+					if (networkInterface.isUp())
+					{
+						for (final InetAddress address : Collections.list(networkInterface
+							.getInetAddresses()))
+						{
+							addressSet.add(networkInterface.getName() + "/"
+								+ address.getHostAddress());
+						}
+					}
+				}
+			}
+		}
+		catch (final SocketException e)
+		{
+			//
+			// No interface information, the time to live still applies
+			//
+		}
+
+		return Integer.toHexString(addressSet.toString().hashCode());
+	}
+
+	private boolean isValid(final SortedProperties identity, final String network)
+	{
+		if ((null == identity) || !network.equals(identity.getProperty(NETWORK_PROPERTY)))
+		{
+			return false;
+		}
+
+		try
+		{
+			final long created = Long.parseLong(identity.getProperty(CREATED_PROPERTY));
+			final long age = System.currentTimeMillis() - created;
+
+			return (age >= 0) && (age < timeToLive);
+		}
+		catch (final NumberFormatException e)
+		{
+			return false;
+		}
+	}
+
+	private static SortedProperties lookupIdentity(final String network)
+		throws UnknownHostException
+	{
+		final SortedProperties identity = new SortedProperties();
+		final InetAddress addr = InetAddress.getLocalHost();
+
+		identity.addProperty(HOSTNAME_PROPERTY, addr.getHostName());
+		identity.addProperty(HOSTADDRESS_PROPERTY, addr.getHostAddress());
+		identity.addProperty(NETWORK_PROPERTY, network);
+		identity.addProperty(CREATED_PROPERTY, System.currentTimeMillis());
+
+		return identity;
+	}
+
+	private SortedProperties readCacheFile()
+	{
+		if ((null == cacheFile) || !cacheFile.isFile())
+		{
+			return null;
+		}
+
+		final SortedProperties identity = new SortedProperties();
+
+		try
+		{
+			final InputStream in = new FileInputStream(cacheFile);
+
+			try
+			{
+				identity.load(in);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (final IOException e)
+		{
+			return null;
+		}
+
+		if (!identity.containsKey(HOSTNAME_PROPERTY)
+			|| !identity.containsKey(HOSTADDRESS_PROPERTY))
+		{
+			return null;
+		}
+
+		return identity;
+	}
+
+	//
+	// The cache file is shared by all builds on the machine, so it is written
+	// to a temporary file and moved into place. Failure to write the cache is
+	// not an error.
+	//
+	private void writeCacheFile(final SortedProperties identity)
+	{
+		if (null == cacheFile)
+		{
+			return;
+		}
+
+		try
+		{
+			final File cacheDir = cacheFile.getParentFile();
+
+			if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+			{
+				return;
+			}
+
+			final File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+
+			try
+			{
+				final OutputStream out = new FileOutputStream(tempFile);
+
+				try
+				{
+					identity.store(out, "Cached machine identity for buildinfo");
+				}
+				finally
+				{
+					out.close();
+				}
+
+				try
+				{
+					Files.move(tempFile.toPath(), cacheFile.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (final AtomicMoveNotSupportedException e)
+				{
+					Files.move(tempFile.toPath(), cacheFile.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			finally
+			{
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+		catch (final IOException e)
+		{
+			// Ignore, the identity will be looked up again next time
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package org.kercheval.gradle.info;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.gradle.api.logging.Logger;
+
+//
+// This class collects information from a set of info sources concurrently.
+// Each source is given the same deadline measured from the start of the
+// collection, so the total collection time is bounded by the timeout rather
+// than the sum of the source times. Sources that do not complete in time are
+// represented by a placeholder property.
+//
+// Sources are called on collection threads. The Gradle project model is not
+// thread safe, so sources read any project values they need when constructed
+// (on the build thread) rather than in getInfo.
+//
+// A source blocked in I/O that ignores interruption (such as a hung DNS lookup)
+// keeps its thread after the collection gives up on it. Threads are created as
+// needed, so such a thread never delays later collections, and a source is not
+// called again while an earlier call is still running: it is reported as
+// unavailable instead. A hung source holds at most one thread.
+//
+public class InfoSourceCollector
+{
+	public static final long DEFAULT_TIMEOUT = 10000;
+	public static final String UNAVAILABLE_PROPERTY = "unavailable";
+
+	//
+	// The sources (by class and property prefix) with a call still running, from
+	// this or an earlier collection in the JVM
+	//
+	private static final Set<String> RUNNING_SOURCES = ConcurrentHashMap.newKeySet();
+
+	//
+	// Collection threads are daemon threads so that a source that never returns
+	// (such as a hung DNS lookup) cannot keep the build from exiting.
+	//
+	private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory()
+	{
+		@Override
+		public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, "buildinfo-collector");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private static ExecutorService executor;
+
+	private final Logger logger;
+	private final long timeout;
+
+	public InfoSourceCollector(final Logger logger, final long timeout)
+	{
+		this.logger = logger;
+		this.timeout = timeout;
+	}
+
+	//
+	// Return the information for each source in the order given. Sources that
+	// are not active map to null.
+	//
+	public Map<InfoSource, SortedProperties> collect(final List<InfoSource> sources)
+	{
+		final Map<InfoSource, SortedProperties> rVal = new LinkedHashMap<>();
+
+		if (sources.isEmpty())
+		{
+			return rVal;
+		}
+
+		final ExecutorService collectExecutor = getExecutor();
+		final Map<InfoSource, Future<SortedProperties>> futureMap = new LinkedHashMap<>();
+
+		try
+		{
+			for (final InfoSource source : sources)
+			{
+				final String sourceKey = source.getClass().getName() + ":"
+					+ source.getPropertyPrefix();
+
+				if (!RUNNING_SOURCES.add(sourceKey))
+				{
+					//
+					// An earlier call has not returned, no future is kept for the source
+					//
+					futureMap.put(source, null);
+					continue;
+				}
+
+				final FutureTask<SortedProperties> future = new FutureTask<>(
+					new Callable<SortedProperties>()
+					{
+						@Override
+						public SortedProperties call()
+						{
+							if (source.isActive())
+							{
+								return source.getInfo();
+							}
+							return null;
+						}
+					});
+
+				futureMap.put(source, future);
+
+				//
+				// The source is released when the thread is done with it, which for a
+				// cancelled call that ignores interruption is when the call returns
+				//
+				collectExecutor.execute(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							future.run();
+						}
+						finally
+						{
+							RUNNING_SOURCES.remove(sourceKey);
+						}
+					}
+				});
+			}
+
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getTimeout());
+
+			for (final Entry<InfoSource, Future<SortedProperties>> entry : futureMap.entrySet())
+			{
+				final InfoSource source = entry.getKey();
+				final Future<SortedProperties> future = entry.getValue();
+
+				if (null == future)
+				{
+					rVal.put(source, getUnavailableInfo(source,
+						"still running from an earlier collection"));
+					continue;
+				}
+
+				try
+				{
+					rVal.put(source, future.get(Math.max(0, deadline - System.nanoTime()),
+						TimeUnit.NANOSECONDS));
+				}
+				catch (final TimeoutException e)
+				{
+					future.cancel(true);
+					rVal.put(source, getUnavailableInfo(source, "timed out after " + getTimeout()
+						+ " ms"));
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					future.cancel(true);
+					rVal.put(source, getUnavailableInfo(source, "interrupted"));
+				}
+				catch (final ExecutionException e)
+				{
+					final Throwable cause = e.getCause();
+
+					if (cause instanceof RuntimeException)
+					{
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error)
+					{
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+		}
+		finally
+		{
+			//
+			// Do not leave sources running past a failed collection
+			//
+			for (final Future<SortedProperties> future : futureMap.values())
+			{
+				if (null != future)
+				{
+					future.cancel(true);
+				}
+			}
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the shared executor, created on first use. Calls never wait in a
+	// queue: idle threads are reused, otherwise a thread is created. Idle threads
+	// exit, so the executor may live as long as the JVM (the Gradle daemon).
+	// Threads are bounded by the number of sources, as a source is never called
+	// twice at once.
+	//
+	private static synchronized ExecutorService getExecutor()
+	{
+		if (null == executor)
+		{
+			executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), DAEMON_THREAD_FACTORY);
+		}
+
+		return executor;
+	}
+
+	public long getTimeout()
+	{
+		return timeout;
+	}
+
+	//
+	// Return true if the information is the placeholder reported for a source
+	// that did not complete (timed out, interrupted or still running)
+	//
+	public static boolean isUnavailable(final InfoSource source, final SortedProperties props)
+	{
+		return (null != props)
+			&& props.containsKey(source.getPropertyPrefix() + "." + UNAVAILABLE_PROPERTY);
+	}
+
+	private SortedProperties getUnavailableInfo(final InfoSource source, final String message)
+	{
+		final SortedProperties props = new SortedProperties();
+
+		props.addProperty(source.getPropertyPrefix() + "." + UNAVAILABLE_PROPERTY, message);
+
+		if (null != logger)
+		{
+			logger.warn("buildinfo: " + source.getDescription() + " " + message);
+		}
+
+		return props;
+	}
+}
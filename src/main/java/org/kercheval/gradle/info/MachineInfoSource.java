@@ -1,19 +1,48 @@
 package org.kercheval.gradle.info;
 
-import java.net.InetAddress;
+import java.io.File;
 import java.net.UnknownHostException;
 import java.util.Date;
 
 import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
 
 public class MachineInfoSource
 	implements InfoSource
 {
-	Project project;
+	public static final String PROPERTY_PREFIX = "machine";
+
+	//
+	// The time property changes on every call and is the only volatile value
+	// in this info source.
+	//
+	public static final String TIME_PROPERTY = "time";
+
+	//
+	// The host name and address are cached for this long (in milliseconds)
+	// across builds on the same machine.
+	//
+	public static final long DEFAULT_CACHE_TTL = 24 * 60 * 60 * 1000L;
+	public static final String CACHE_FILENAME = "caches/gradlecm/machineinfo.properties";
+
+	//
+	// The project values are read when constructed, the information may be
+	// collected on another thread (see InfoSourceCollector)
+	//
+	Logger logger;
+	File cacheFile;
+	long cacheTtl;
 
 	public MachineInfoSource(final Project project)
 	{
-		this.project = project;
+		this(project, DEFAULT_CACHE_TTL);
+	}
+
+	public MachineInfoSource(final Project project, final long cacheTtl)
+	{
+		this.logger = project.getLogger();
+		this.cacheFile = new File(project.getGradle().getGradleUserHomeDir(), CACHE_FILENAME);
+		this.cacheTtl = cacheTtl;
 	}
 
 	@Override
@@ -32,18 +61,24 @@ public class MachineInfoSource
 	public SortedProperties getInfo()
 	{
 		final SortedProperties props = new SortedProperties();
-		InetAddress addr;
 
+		//
+		// The host lookup is the only expensive part of this information and
+		// is cached. Only the time is recomputed on every call.
+		//
 		try
 		{
-			addr = InetAddress.getLocalHost();
-			props.addProperty(getPropertyPrefix() + ".hostname", addr.getHostName());
-			props.addProperty(getPropertyPrefix() + ".hostaddress", addr.getHostAddress());
-			props.addProperty(getPropertyPrefix() + ".time", new Date().toString());
+			final SortedProperties identity = new HostIdentityCache(getCacheFile(), cacheTtl)
+				.getIdentity();
+			props.addProperty(getPropertyPrefix() + "." + HostIdentityCache.HOSTNAME_PROPERTY,
+				identity.getProperty(HostIdentityCache.HOSTNAME_PROPERTY));
+			props.addProperty(getPropertyPrefix() + "." + HostIdentityCache.HOSTADDRESS_PROPERTY,
+				identity.getProperty(HostIdentityCache.HOSTADDRESS_PROPERTY));
+			props.addProperty(getPropertyPrefix() + "." + TIME_PROPERTY, new Date().toString());
 		}
 		catch (final UnknownHostException e)
 		{
-			project.getLogger().error(e.getMessage());
+			logger.error(e.getMessage());
 		}
 
 		props.addProperty(getPropertyPrefix() + ".username", System.getProperty("user.name"));
@@ -58,10 +93,15 @@ public class MachineInfoSource
 		return props;
 	}
 
+	File getCacheFile()
+	{
+		return cacheFile;
+	}
+
 	@Override
 	public String getPropertyPrefix()
 	{
-		return "machine";
+		return PROPERTY_PREFIX;
 	}
 
 	@Override
@@ -1,9 +1,16 @@
 package org.kercheval.gradle.info;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 //
@@ -13,6 +20,40 @@ import java.util.TreeSet;
 public class SortedProperties
 	extends Properties
 {
+	//
+	// A copy of the properties used only to write them. The entries are
+	// returned in key order as a snapshot, which is all store needs.
+	//
+	private static class SortedCopy
+		extends Properties
+	{
+		private static final long serialVersionUID = 1L;
+
+		SortedCopy(final Properties source)
+		{
+			putAll(source);
+		}
+
+		@Override
+		public synchronized Enumeration<Object> keys()
+		{
+			return Collections.enumeration(new TreeSet<Object>(super.keySet()));
+		}
+
+		@Override
+		public Set<Map.Entry<Object, Object>> entrySet()
+		{
+			final Map<Object, Object> sortedMap = new TreeMap<>();
+
+			for (final Map.Entry<Object, Object> entry : super.entrySet())
+			{
+				sortedMap.put(entry.getKey(), entry.getValue());
+			}
+
+			return Collections.unmodifiableSet(new LinkedHashSet<>(sortedMap.entrySet()));
+		}
+	}
+
 	public void addProperty(final String key, final Object value)
 	{
 		String insertValue = "";
@@ -36,4 +77,59 @@ public class SortedProperties
 	{
 		return Collections.unmodifiableSet(new TreeSet<Object>(super.keySet()));
 	}
+
+	//
+	// Write the properties in key order. Newer JVMs write properties using the
+	// entry set rather than the keys, so a sorted copy is written (the entry
+	// set of this table is left alone).
+	//
+	@Override
+	public void store(final OutputStream out, final String comments)
+		throws IOException
+	{
+		new SortedCopy(this).store(out, comments);
+	}
+
+	@Override
+	public void store(final Writer writer, final String comments)
+		throws IOException
+	{
+		new SortedCopy(this).store(writer, comments);
+	}
+
+	//
+	// Store the properties exactly as Properties.store does, but without the
+	// timestamp comment line. Output from this method is stable for the same
+	// set of properties and comments.
+	//
+	public void storeWithoutDate(final Writer writer, final String comments)
+		throws IOException
+	{
+		if (null != comments)
+		{
+			//
+			// Write the comments escaped as Properties.store does. The date is
+			// always the last line written.
+			//
+			final StringWriter commentBuffer = new StringWriter();
+
+			new Properties().store(commentBuffer, comments);
+
+			final String commentContent = commentBuffer.toString();
+
+			writer.write(commentContent.substring(0,
+				commentContent.lastIndexOf('\n', commentContent.length() - 2) + 1));
+		}
+
+		//
+		// With no comments supplied, the first line written is always the date
+		//
+		final StringWriter buffer = new StringWriter();
+
+		store(buffer, null);
+
+		final String content = buffer.toString();
+
+		writer.write(content.substring(content.indexOf('\n') + 1));
+	}
 }
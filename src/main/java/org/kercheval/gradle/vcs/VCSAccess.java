@@ -1,5 +1,6 @@
 package org.kercheval.gradle.vcs;
 
+import java.util.Date;
 import java.util.List;
 
 import org.kercheval.gradle.info.InfoSource;
@@ -26,6 +27,16 @@ public interface VCSAccess
 		MERCURIAL
 	}
 
+	//
+	// Point the reference at the tag, but only if the reference currently
+	// points at the expected tag (or, if expectedTagName is null, does not exist
+	// or points at a tag that no longer exists). The check and update are atomic.
+	// Returns false if the reference did not hold the expected tag.
+	//
+	public boolean compareAndSetTagRef(final String refName, final String expectedTagName,
+		final String tagName)
+		throws VCSException;
+
 	//
 	// Create a new branch in the current system. If ignoreOrigin is true
 	// the branch will be created/verified on the local repository. If
@@ -38,18 +49,46 @@ public interface VCSAccess
 		final boolean ignoreOrigin)
 		throws VCSException;
 
+	//
+	// Create several branches as createBranch does. The repository is read
+	// once, the local branches are created in a single reference update (see
+	// updateRefs) and any branches that need to be pushed are pushed together.
+	//
+	public void createBranches(final List<String> branchNames, final String remoteOrigin,
+		final boolean ignoreOrigin)
+		throws VCSException;
+
 	//
 	// Write a tag into the repository
 	//
 	public void createTag(final VCSTag tag)
 		throws VCSException;
 
+	//
+	// Write a tag into the repository only if no tag of that name exists. The
+	// existence check and tag creation are atomic, so of several builds racing
+	// to create the same tag exactly one succeeds. Returns false if the tag
+	// already exists.
+	//
+	public boolean createTagIfAbsent(final VCSTag tag)
+		throws VCSException;
+
 	//
 	// Obtain from the branch and origin the current content for that branch.
 	//
 	public void fetch(final String remoteOrigin)
 		throws VCSException;
 
+	//
+	// Fetch only the named branches from the origin, and the tags whose names
+	// start with tagPrefix (no tags are requested if tagPrefix is null). This
+	// avoids negotiating every branch of a remote with many branches. If no
+	// branches and no tag prefix are given, this is the same as fetch(String).
+	//
+	public void fetch(final String remoteOrigin, final List<String> branchNames,
+		final String tagPrefix)
+		throws VCSException;
+
 	//
 	// Get tags from repository.
 	//
@@ -62,6 +101,14 @@ public interface VCSAccess
 	public String getBranchName()
 		throws VCSException;
 
+	//
+	// Return the number of commits reachable from HEAD that are not reachable
+	// from the tag (the commits made since the tag). If tagName is null, all
+	// commits reachable from HEAD are counted.
+	//
+	public int getCommitDistance(final String tagName)
+		throws VCSException;
+
 	//
 	// Obtain 'interesting' information about the current VCS usage
 	// and return that as property information.
@@ -69,12 +116,73 @@ public interface VCSAccess
 	@Override
 	public SortedProperties getInfo();
 
+	//
+	// Return a fingerprint of HEAD and all tags. The fingerprint changes when
+	// HEAD moves or a tag is created, deleted or moved. Only references are read
+	// to create it, so it is cheap to obtain. Null is returned if the VCS has no
+	// such state.
+	//
+	public String getRefFingerprint()
+		throws VCSException;
+
+	//
+	// Return the tags of the remote matching the filter from the remote
+	// reference list only (no objects are transferred), so tags are found in
+	// workspaces cloned without them. The tags have a name and the object id
+	// the tag reference points to, stored as the commit: the tag object for an
+	// annotated tag, the commit for a lightweight tag. Other values are not
+	// known. Use getTagDate() with the object id to obtain the date of a tag.
+	//
+	public List<VCSTag> getRemoteTags(final String remoteOrigin, final String regexFilter)
+		throws VCSException;
+
 	//
 	// Return the current status of the VCS system (all workspace changes)
 	//
 	public VCSStatus getStatus()
 		throws VCSException;
 
+	//
+	// Return the date of the tag object (the tagger date, or the commit date of
+	// a lightweight tag). Null is returned if the object is not in the local
+	// repository.
+	//
+	public Date getTagDate(final String objectId)
+		throws VCSException;
+
+	//
+	// Return the value stored with the repository under the name, or null if
+	// there is none. Stored values hold plugin state for the repository (such
+	// as the tag stamp of the version reference, see BuildVersionRef), they
+	// are not versioned or pushed and are kept apart from the repository
+	// configuration. Names are simple file names.
+	//
+	public String getStoredValue(final String name)
+		throws VCSException;
+
+	//
+	// Return the names of the tags matching the filter. Only references are
+	// read, so this is cheaper than getTags() when the names are enough.
+	//
+	public List<String> getTagNames(final String regexFilter)
+		throws VCSException;
+
+	//
+	// Return the name of the tag the reference points at. Null is returned if
+	// the reference does not exist or the tag it points at no longer exists.
+	//
+	public String getTagRef(final String refName)
+		throws VCSException;
+
+	//
+	// Return a stamp of the tags that changes when a tag is created, deleted or
+	// moved. Only the times of the files holding the tags are read (no tag is
+	// listed), so the cost does not depend on the number of tags. Null is
+	// returned if the VCS has no such state.
+	//
+	public String getTagStamp()
+		throws VCSException;
+
 	public List<VCSTag> getTags(final String regexFilter)
 		throws VCSException;
 
@@ -83,6 +191,14 @@ public interface VCSAccess
 	//
 	public Type getType();
 
+	//
+	// Return true if the workspace has no changes (see VCSStatus.isClean). This
+	// stops at the first change found, so is faster than getStatus() when only
+	// the clean state is needed.
+	//
+	public boolean isClean()
+		throws VCSException;
+
 	//
 	// Merge one branch into another. This will fail if there are
 	// any conflicts or merge changes required. To succeed the branch
@@ -103,4 +219,28 @@ public interface VCSAccess
 	//
 	public void push(final String from, final String remoteOrigin, boolean pushTag)
 		throws VCSException;
+
+	//
+	// Push several references (full names such as refs/heads/release or
+	// refs/tags/1.0) to the origin in a single push. Every reference is
+	// attempted; if any are rejected a VCSException names each rejected
+	// reference and the reason.
+	//
+	public void pushRefs(final List<String> refNames, final String remoteOrigin)
+		throws VCSException;
+
+	//
+	// Store the value with the repository under the name (see getStoredValue).
+	// A null value removes the name.
+	//
+	public void setStoredValue(final String name, final String value)
+		throws VCSException;
+
+	//
+	// Apply the reference changes of the transaction as a single update. All of
+	// the changes are made or, if any of them cannot be made, none are and a
+	// VCSException is thrown.
+	//
+	public void updateRefs(final VCSRefTransaction transaction)
+		throws VCSException;
 }
@@ -19,12 +19,32 @@ public class VCSAccessFactory
     
 	public static VCSAccess getCurrentVCS(final String type, final File srcRootDir,
 		final Logger logger)
+	{
+		return getCurrentVCS(type, srcRootDir, logger, VCSRepositoryLock.DEFAULT_TIMEOUT);
+	}
+
+	//
+	// The lock timeout is the time in seconds to wait for access to the
+	// repository when it is in use by other threads (see VCSRepositoryLock)
+	//
+	public static VCSAccess getCurrentVCS(final String type, final File srcRootDir,
+		final Logger logger, final long lockTimeout)
+	{
+		return getCurrentVCS(type, srcRootDir, logger, lockTimeout, null);
+	}
+
+	//
+	// The mirror is a local repository fetches are made through, or null to
+	// fetch from the remote directly
+	//
+	public static VCSAccess getCurrentVCS(final String type, final File srcRootDir,
+		final Logger logger, final long lockTimeout, final File mirrorDir)
 	{
 		final VCSAccess rVal = new VCSNoneImpl(srcRootDir, logger);
 		final String desiredType = type.toLowerCase();
 		if (desiredType.equalsIgnoreCase(VCSAccess.Type.GIT.toString()))
 		{
-			return new VCSGitImpl(srcRootDir, logger);
+			return new VCSGitImpl(srcRootDir, logger, lockTimeout, mirrorDir);
 		}
 		return rVal;
 	}
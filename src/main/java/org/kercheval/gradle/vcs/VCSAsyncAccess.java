@@ -0,0 +1,425 @@
+package org.kercheval.gradle.vcs;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//
+// Asynchronous access to the VCS. Each operation of the wrapped VCSAccess is run
+// on the executor and its result returned as a CompletableFuture, so network
+// operations (fetch and push) can run while local work continues. An operation
+// that fails completes the future exceptionally with the VCSException thrown;
+// use await() to obtain the result (or the VCSException) directly.
+//
+// Repository access is still coordinated by the VCS (see VCSRepositoryLock), so
+// operations submitted together run concurrently only where that is safe.
+//
+public class VCSAsyncAccess
+{
+	//
+	// The number of threads of the default executor when virtual threads are
+	// not available
+	//
+	public static final int DEFAULT_THREADS = 4;
+
+	//
+	// A VCS operation to run on the executor
+	//
+	private interface VCSCall<T>
+	{
+		T call()
+			throws VCSException;
+	}
+
+	//
+	// Pool threads are daemon threads so that a hung network operation cannot
+	// keep the build from exiting.
+	//
+	private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory()
+	{
+		@Override
+		public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, "vcs-async");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private static ExecutorService defaultExecutor;
+
+	private final VCSAccess vcs;
+	private final Executor executor;
+
+	public VCSAsyncAccess(final VCSAccess vcs)
+	{
+		this(vcs, getDefaultExecutor());
+	}
+
+	public VCSAsyncAccess(final VCSAccess vcs, final Executor executor)
+	{
+		this.vcs = vcs;
+		this.executor = executor;
+	}
+
+	//
+	// Wait for the operation and return its result, throwing the VCSException
+	// (or unchecked exception) the operation failed with
+	//
+	public static <T> T await(final CompletableFuture<T> future)
+		throws VCSException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new VCSException("Interrupted waiting for VCS operation", e);
+		}
+		catch (final ExecutionException e)
+		{
+			final Throwable cause = e.getCause();
+
+			if (cause instanceof VCSException)
+			{
+				throw (VCSException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw new VCSException("VCS operation failed", cause);
+		}
+	}
+
+	//
+	// Wait for the operation to finish, ignoring the result. This is used when
+	// the task is already failing but the operation must not be left running.
+	//
+	public static void awaitCompletion(final CompletableFuture<?> future)
+	{
+		try
+		{
+			future.get();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (final ExecutionException e)
+		{
+			// Ignore, the caller is reporting another failure
+		}
+	}
+
+	public CompletableFuture<Void> createBranch(final String branchName,
+		final String remoteOrigin,
+		final boolean ignoreOrigin)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.createBranch(branchName, remoteOrigin, ignoreOrigin);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Void> createBranches(final List<String> branchNames,
+		final String remoteOrigin,
+		final boolean ignoreOrigin)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.createBranches(branchNames, remoteOrigin, ignoreOrigin);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Void> createTag(final VCSTag tag)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.createTag(tag);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Boolean> createTagIfAbsent(final VCSTag tag)
+	{
+		return submit(new VCSCall<Boolean>()
+		{
+			@Override
+			public Boolean call()
+				throws VCSException
+			{
+				return vcs.createTagIfAbsent(tag);
+			}
+		});
+	}
+
+	public CompletableFuture<Void> fetch(final String remoteOrigin)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.fetch(remoteOrigin);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Void> fetch(final String remoteOrigin,
+		final List<String> branchNames,
+		final String tagPrefix)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.fetch(remoteOrigin, branchNames, tagPrefix);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<List<VCSTag>> getAllTags()
+	{
+		return submit(new VCSCall<List<VCSTag>>()
+		{
+			@Override
+			public List<VCSTag> call()
+				throws VCSException
+			{
+				return vcs.getAllTags();
+			}
+		});
+	}
+
+	public CompletableFuture<String> getBranchName()
+	{
+		return submit(new VCSCall<String>()
+		{
+			@Override
+			public String call()
+				throws VCSException
+			{
+				return vcs.getBranchName();
+			}
+		});
+	}
+
+	public CompletableFuture<Integer> getCommitDistance(final String tagName)
+	{
+		return submit(new VCSCall<Integer>()
+		{
+			@Override
+			public Integer call()
+				throws VCSException
+			{
+				return vcs.getCommitDistance(tagName);
+			}
+		});
+	}
+
+	//
+	// Return the shared executor, created on first use. Virtual threads are used
+	// when the JVM supports them (Java 21 and later), otherwise a bounded pool of
+	// daemon threads. The executor lives as long as the JVM (the Gradle daemon).
+	//
+	public static synchronized ExecutorService getDefaultExecutor()
+	{
+		if (null == defaultExecutor)
+		{
+			try
+			{
+				final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				defaultExecutor = (ExecutorService) method.invoke(null);
+			}
+			catch (final ReflectiveOperationException e)
+			{
+				final ThreadPoolExecutor pool = new ThreadPoolExecutor(DEFAULT_THREADS,
+					DEFAULT_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					DAEMON_THREAD_FACTORY);
+				pool.allowCoreThreadTimeOut(true);
+				defaultExecutor = pool;
+			}
+		}
+
+		return defaultExecutor;
+	}
+
+	public Executor getExecutor()
+	{
+		return executor;
+	}
+
+	public CompletableFuture<VCSStatus> getStatus()
+	{
+		return submit(new VCSCall<VCSStatus>()
+		{
+			@Override
+			public VCSStatus call()
+				throws VCSException
+			{
+				return vcs.getStatus();
+			}
+		});
+	}
+
+	public CompletableFuture<List<VCSTag>> getTags(final String regexFilter)
+	{
+		return submit(new VCSCall<List<VCSTag>>()
+		{
+			@Override
+			public List<VCSTag> call()
+				throws VCSException
+			{
+				return vcs.getTags(regexFilter);
+			}
+		});
+	}
+
+	public VCSAccess getVCS()
+	{
+		return vcs;
+	}
+
+	public CompletableFuture<Boolean> isClean()
+	{
+		return submit(new VCSCall<Boolean>()
+		{
+			@Override
+			public Boolean call()
+				throws VCSException
+			{
+				return vcs.isClean();
+			}
+		});
+	}
+
+	public CompletableFuture<Void> merge(final String fromBranch,
+		final String remoteOrigin,
+		final boolean fastForwardOnly)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.merge(fromBranch, remoteOrigin, fastForwardOnly);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Void> push(final String from, final String remoteOrigin,
+		final boolean pushTag)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.push(from, remoteOrigin, pushTag);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Void> pushRefs(final List<String> refNames,
+		final String remoteOrigin)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.pushRefs(refNames, remoteOrigin);
+				return null;
+			}
+		});
+	}
+
+	private <T> CompletableFuture<T> submit(final VCSCall<T> call)
+	{
+		final CompletableFuture<T> rVal = new CompletableFuture<>();
+
+		try
+		{
+			executor.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						rVal.complete(call.call());
+					}
+					catch (final VCSException | RuntimeException | Error e)
+					{
+						rVal.completeExceptionally(e);
+					}
+				}
+			});
+		}
+		catch (final RuntimeException e)
+		{
+			//
+			// The executor rejected the operation (it is shut down or full)
+			//
+			rVal.completeExceptionally(e);
+		}
+
+		return rVal;
+	}
+
+	public CompletableFuture<Void> updateRefs(final VCSRefTransaction transaction)
+	{
+		return submit(new VCSCall<Void>()
+		{
+			@Override
+			public Void call()
+				throws VCSException
+			{
+				vcs.updateRefs(transaction);
+				return null;
+			}
+		});
+	}
+}
@@ -1,14 +1,8 @@
 package org.kercheval.gradle.vcs;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
 
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.Status;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.errors.NoWorkTreeException;
-import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
 import org.gradle.api.logging.Logger;
 import org.kercheval.gradle.info.SortedProperties;
@@ -20,6 +14,12 @@ public abstract class VCSInfoSource
 	private final File srcRootDir;
 	private final Logger logger;
 
+	//
+	// The status shared by the build (see VCSStatusSnapshot), or null to obtain
+	// the status for each call of getInfo
+	//
+	private VCSStatusSnapshot statusSnapshot = null;
+
 	public VCSInfoSource(final File srcRootDir, final Logger logger)
 	{
 		this.srcRootDir = srcRootDir;
@@ -30,12 +30,10 @@ public abstract class VCSInfoSource
 	public SortedProperties getInfo()
 	{
 		final SortedProperties props = new SortedProperties();
-		Repository repository = null;
 		try
 		{
-			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
-				.build();
-			final Status status = new Git(repository).status().call();
+			final VCSStatus status = (null == statusSnapshot) ? getStatus() : statusSnapshot
+				.getStatus(this);
 
 			props.addProperty(VCS_TYPE_PREFIX + ".type", getType().toString());
 
@@ -56,17 +54,10 @@ public abstract class VCSInfoSource
 			props.addProperty(getPropertyPrefix() + ".workspace.files.modified", status
 				.getModified().toString());
 		}
-		catch (final NoWorkTreeException|GitAPIException|IOException e)
+		catch (final VCSException e)
 		{
 			// Ignore
 		}
-		finally
-		{
-			if (null != repository)
-			{
-				repository.close();
-			}
-		}
 		return props;
 	}
 
@@ -86,20 +77,24 @@ public abstract class VCSInfoSource
 		return srcRootDir;
 	}
 
+	//
+	// The source is active if the source directory is in a repository. Only the
+	// repository is looked up, the workspace is not scanned.
+	//
 	@Override
 	public boolean isActive()
 	{
-		boolean rVal = false;
-		try
-		{
-			getStatus();
-			rVal = true;
-		}
-		catch (final VCSException e)
-		{
-			// Ignore exception
-		}
-		return rVal;
+		return null != new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+			.getGitDir();
+	}
+
+	//
+	// Use the status shared by the build for getInfo, so the workspace is
+	// scanned once for buildinfo and the version workspace marker
+	//
+	public void setStatusSnapshot(final VCSStatusSnapshot statusSnapshot)
+	{
+		this.statusSnapshot = statusSnapshot;
 	}
 
 	@Override
@@ -0,0 +1,171 @@
+package org.kercheval.gradle.vcs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.Project;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+
+//
+// References waiting to be pushed in a build. Each push is a separate
+// connection to the remote, so references updated early in the release (the
+// merged release branch) are queued and pushed with the references updated
+// later (the release tag) in a single push (see VCSAccess.pushRefs).
+//
+// References still queued when a successful build finishes are pushed then.
+// If the build failed (for example the upload or tag failed) the queued
+// references are dropped, so a release branch is not published without its
+// release.
+//
+public class VCSPushQueue
+{
+	//
+	// One instance per build. The gradle object is weakly held so the queue is
+	// released with the build when the daemon is reused.
+	//
+	private static final Map<Gradle, VCSPushQueue> BUILD_QUEUES = new WeakHashMap<>();
+
+	private final Map<String, Set<String>> pendingRefs = new LinkedHashMap<>();
+	private final Logger logger;
+	private VCSAccess vcs;
+
+	private VCSPushQueue(final Logger logger)
+	{
+		this.logger = logger;
+	}
+
+	public static VCSPushQueue getInstance(final Project project)
+	{
+		final Gradle gradle = project.getGradle();
+
+		synchronized (BUILD_QUEUES)
+		{
+			VCSPushQueue rVal = BUILD_QUEUES.get(gradle);
+
+			if (null == rVal)
+			{
+				final VCSPushQueue queue = new VCSPushQueue(project.getLogger());
+
+				gradle.addBuildListener(new BuildAdapter()
+				{
+					@Override
+					public void buildFinished(final BuildResult result)
+					{
+						if (null == result.getFailure())
+						{
+							queue.flush();
+						}
+						else
+						{
+							queue.discard();
+						}
+					}
+				});
+
+				rVal = queue;
+				BUILD_QUEUES.put(gradle, rVal);
+			}
+
+			return rVal;
+		}
+	}
+
+	//
+	// Queue the reference (a full name such as refs/heads/release) to be pushed
+	// to the remote with the next push
+	//
+	public synchronized void add(final VCSAccess vcs, final String remoteOrigin,
+		final String refName)
+	{
+		Set<String> refNames = pendingRefs.get(remoteOrigin);
+
+		if (null == refNames)
+		{
+			refNames = new LinkedHashSet<>();
+			pendingRefs.put(remoteOrigin, refNames);
+		}
+
+		refNames.add(refName);
+		this.vcs = vcs;
+	}
+
+	//
+	// Drop any references still queued. The references remain updated in the
+	// local repository.
+	//
+	synchronized void discard()
+	{
+		for (final Entry<String, Set<String>> entry : pendingRefs.entrySet())
+		{
+			if (null != logger)
+			{
+				logger.warn("The build failed, not pushing " + entry.getValue() + " to "
+					+ entry.getKey());
+			}
+		}
+		pendingRefs.clear();
+	}
+
+	//
+	// Push any references still queued. Failures are logged, the build has
+	// already finished.
+	//
+	synchronized void flush()
+	{
+		for (final Entry<String, Set<String>> entry : new ArrayList<>(pendingRefs.entrySet()))
+		{
+			try
+			{
+				push(vcs, entry.getKey(), new ArrayList<String>());
+			}
+			catch (final VCSException e)
+			{
+				if (null != logger)
+				{
+					logger.error("Unable to push " + entry.getValue() + " to " + entry.getKey(), e);
+				}
+			}
+		}
+		pendingRefs.clear();
+	}
+
+	public synchronized List<String> getPendingRefs(final String remoteOrigin)
+	{
+		final Set<String> refNames = pendingRefs.get(remoteOrigin);
+
+		return (null == refNames) ? new ArrayList<String>() : new ArrayList<>(refNames);
+	}
+
+	//
+	// Push the references along with the references queued for the remote in a
+	// single push. The queue for the remote is emptied whether or not the push
+	// succeeds, so a failed push is reported once.
+	//
+	public synchronized void push(final VCSAccess vcs, final String remoteOrigin,
+		final List<String> refNames)
+		throws VCSException
+	{
+		final Set<String> pushRefNames = new LinkedHashSet<>();
+		final Set<String> queuedRefNames = pendingRefs.remove(remoteOrigin);
+
+		if (null != queuedRefNames)
+		{
+			pushRefNames.addAll(queuedRefNames);
+		}
+		pushRefNames.addAll(refNames);
+
+		if (!pushRefNames.isEmpty())
+		{
+			vcs.pushRefs(new ArrayList<>(pushRefNames), remoteOrigin);
+		}
+	}
+}
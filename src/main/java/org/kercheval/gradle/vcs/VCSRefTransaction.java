@@ -0,0 +1,131 @@
+package org.kercheval.gradle.vcs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//
+// A set of reference changes applied together by VCSAccess.updateRefs. Branch
+// creates, tag creates and reference moves are collected and then written in
+// a single update: either every change is made or none is.
+//
+// Revisions (start points and move targets) are anything the VCS can resolve,
+// such as a branch, tag or commit id. A null revision means the current commit
+// (HEAD). A move may target a branch or tag created earlier in the same
+// transaction, so a tag and a reference to it are written together.
+//
+public class VCSRefTransaction
+{
+	public enum Type
+	{
+		CREATE_BRANCH,
+		CREATE_TAG,
+		MOVE_REF
+	}
+
+	public static class Command
+	{
+		private final Type type;
+		private final String name;
+		private final String revision;
+		private final String expectedRevision;
+		private final String comment;
+
+		Command(final Type type,
+			final String name,
+			final String revision,
+			final String expectedRevision,
+			final String comment)
+		{
+			this.type = type;
+			this.name = name;
+			this.revision = revision;
+			this.expectedRevision = expectedRevision;
+			this.comment = comment;
+		}
+
+		public String getComment()
+		{
+			return comment;
+		}
+
+		//
+		// The revision the reference must hold for a move, or null if not checked
+		//
+		public String getExpectedRevision()
+		{
+			return expectedRevision;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public String getRevision()
+		{
+			return revision;
+		}
+
+		public Type getType()
+		{
+			return type;
+		}
+
+		@Override
+		public String toString()
+		{
+			return type + " " + name;
+		}
+	}
+
+	private final List<Command> commands = new ArrayList<>();
+
+	//
+	// Create a local branch at the start point. A branch that already exists is
+	// left as is (as VCSAccess.createBranch does).
+	//
+	public VCSRefTransaction createBranch(final String branchName, final String startPoint)
+	{
+		commands.add(new Command(Type.CREATE_BRANCH, branchName, startPoint, null, null));
+		return this;
+	}
+
+	//
+	// Create an annotated tag on the current commit. The transaction fails if
+	// the tag already exists.
+	//
+	public VCSRefTransaction createTag(final VCSTag tag)
+	{
+		commands.add(new Command(Type.CREATE_TAG, tag.getName(), null, null, tag.getComment()));
+		return this;
+	}
+
+	public List<Command> getCommands()
+	{
+		return Collections.unmodifiableList(commands);
+	}
+
+	public boolean isEmpty()
+	{
+		return commands.isEmpty();
+	}
+
+	//
+	// Point the reference (a full name such as refs/heads/release) at the
+	// revision. If expectedRevision is not null the transaction fails unless
+	// the reference currently holds that revision.
+	//
+	public VCSRefTransaction moveRef(final String refName, final String revision,
+		final String expectedRevision)
+	{
+		commands.add(new Command(Type.MOVE_REF, refName, revision, expectedRevision, null));
+		return this;
+	}
+
+	@Override
+	public String toString()
+	{
+		return commands.toString();
+	}
+}
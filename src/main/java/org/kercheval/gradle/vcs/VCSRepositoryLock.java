@@ -0,0 +1,177 @@
+package org.kercheval.gradle.vcs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//
+// Coordinate VCS access to a repository between threads. Parallel builds run
+// tasks of several projects at once against the same repository, and git
+// operations that write (merge, reset, tag, branch, fetch, push) fail when they
+// meet another write on the repository lock files. Reads (status, tags,
+// branch) may run together, writes run alone. Operations that only update
+// references (fetch) take update access, which is shared with reads but not
+// with other updates or writes, so reads need not wait for the network.
+// Pushes and remote listings take no access, so nothing waits on them.
+//
+// The locks are fair, so a waiting write is not starved by a stream of reads,
+// and every wait is bounded by the timeout. Locks are shared by every instance
+// for the same repository directory within the JVM (and so by all builds in the
+// Gradle daemon). Other processes using the repository are not coordinated.
+//
+public class VCSRepositoryLock
+{
+	//
+	// The default time to wait for access, in seconds
+	//
+	public static final long DEFAULT_TIMEOUT = 300;
+
+	//
+	// Access held to the repository, returned by the lock methods. Unlock
+	// releases the locks taken for the access in the reverse order of
+	// acquisition. Access is released once, later calls do nothing, so it may
+	// also be used in a try-with-resources statement.
+	//
+	public static class Access
+		implements AutoCloseable
+	{
+		private final Lock[] locks;
+		private boolean released = false;
+
+		Access(final Lock... locks)
+		{
+			this.locks = locks;
+		}
+
+		@Override
+		public void close()
+		{
+			unlock();
+		}
+
+		public void unlock()
+		{
+			if (!released)
+			{
+				released = true;
+				for (int i = locks.length - 1; i >= 0; i--)
+				{
+					locks[i].unlock();
+				}
+			}
+		}
+	}
+
+	private static final ConcurrentMap<String, ReadWriteLock> REPOSITORY_LOCKS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Lock> UPDATE_LOCKS = new ConcurrentHashMap<>();
+
+	private final String repositoryPath;
+	private final ReadWriteLock lock;
+	private final Lock updateLock;
+	private final long timeout;
+
+	public VCSRepositoryLock(final File repositoryDir, final long timeout)
+	{
+		String path;
+
+		try
+		{
+			path = repositoryDir.getCanonicalPath();
+		}
+		catch (final IOException e)
+		{
+			path = repositoryDir.getAbsolutePath();
+		}
+
+		final ReadWriteLock newLock = new ReentrantReadWriteLock(true);
+		final ReadWriteLock existingLock = REPOSITORY_LOCKS.putIfAbsent(path, newLock);
+
+		final Lock newUpdateLock = new ReentrantLock(true);
+		final Lock existingUpdateLock = UPDATE_LOCKS.putIfAbsent(path, newUpdateLock);
+
+		this.repositoryPath = path;
+		this.lock = (null == existingLock) ? newLock : existingLock;
+		this.updateLock = (null == existingUpdateLock) ? newUpdateLock : existingUpdateLock;
+		this.timeout = timeout;
+	}
+
+	private Lock acquire(final Lock access, final String accessType)
+		throws VCSException
+	{
+		try
+		{
+			if (!access.tryLock(timeout, TimeUnit.SECONDS))
+			{
+				throw new VCSException("Unable to lock repository at: " + repositoryPath,
+					new IllegalStateException("Timed out after " + timeout + " seconds waiting for "
+						+ accessType + " access"));
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new VCSException("Unable to lock repository at: " + repositoryPath, e);
+		}
+
+		return access;
+	}
+
+	public String getRepositoryPath()
+	{
+		return repositoryPath;
+	}
+
+	public long getTimeout()
+	{
+		return timeout;
+	}
+
+	//
+	// Wait for shared access to the repository and return the held access. The
+	// caller must unlock it when done. A thread holding write access may also
+	// take read access, but not the reverse.
+	//
+	public Access lockRead()
+		throws VCSException
+	{
+		return new Access(acquire(lock.readLock(), "read"));
+	}
+
+	//
+	// Wait for update access to the repository and return the held access. The
+	// caller must unlock it when done. Update access is shared with reads, but
+	// not with other updates or writes. Update access is taken before read
+	// access so updates queue behind each other without blocking reads.
+	//
+	public Access lockUpdate()
+		throws VCSException
+	{
+		final Lock heldUpdateLock = acquire(updateLock, "update");
+
+		try
+		{
+			return new Access(heldUpdateLock, acquire(lock.readLock(), "read"));
+		}
+		catch (final VCSException e)
+		{
+			heldUpdateLock.unlock();
+			throw e;
+		}
+	}
+
+	//
+	// Wait for exclusive access to the repository and return the held access.
+	// The caller must unlock it when done.
+	//
+	public Access lockWrite()
+		throws VCSException
+	{
+		return new Access(acquire(lock.writeLock(), "write"));
+	}
+}
@@ -0,0 +1,72 @@
+package org.kercheval.gradle.vcs;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gradle.api.Project;
+import org.gradle.api.invocation.Gradle;
+
+//
+// The workspace status shared by every project in a build. Scanning the working
+// tree is the most expensive VCS query, so it is done at most once per build:
+// the workspace marker (%s%), the VCS section of buildinfo (see
+// VCSInfoSource.getInfo) and the clean state all use the one full status,
+// whichever asks first.
+//
+// The snapshot is the state of the workspace when first queried in the build.
+// Tasks that must see the current state (such as release validation) should
+// query the VCS directly.
+//
+public class VCSStatusSnapshot
+{
+	//
+	// One instance per build. The gradle object is weakly held so the snapshot
+	// is released with the build when the daemon is reused.
+	//
+	private static final Map<Gradle, VCSStatusSnapshot> BUILD_SNAPSHOTS = new WeakHashMap<>();
+
+	private VCSStatus status;
+
+	public static VCSStatusSnapshot getInstance(final Project project)
+	{
+		final Gradle gradle = project.getGradle();
+
+		synchronized (BUILD_SNAPSHOTS)
+		{
+			VCSStatusSnapshot rVal = BUILD_SNAPSHOTS.get(gradle);
+
+			if (null == rVal)
+			{
+				rVal = new VCSStatusSnapshot();
+				BUILD_SNAPSHOTS.put(gradle, rVal);
+			}
+
+			return rVal;
+		}
+	}
+
+	//
+	// Return the full workspace status, scanning the workspace on first use
+	//
+	public synchronized VCSStatus getStatus(final VCSAccess vcs)
+		throws VCSException
+	{
+		if (null == status)
+		{
+			status = vcs.getStatus();
+		}
+
+		return status;
+	}
+
+	//
+	// Return true if the workspace has no changes. The full status is used (and
+	// obtained if this is the first query of the build) rather than the early
+	// exit check, as the other queries of the build need the full status.
+	//
+	public boolean isClean(final VCSAccess vcs)
+		throws VCSException
+	{
+		return getStatus(vcs).isClean();
+	}
+}
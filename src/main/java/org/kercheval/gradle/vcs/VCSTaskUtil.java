@@ -20,7 +20,8 @@ public class VCSTaskUtil
 		vcsTask = (BuildVCSTask) new GradleInfoSource(project)
 			.getTask(BuildVCSPlugin.VCS_TASK_NAME);
 		vcs = VCSAccessFactory.getCurrentVCS(vcsTask.getType(), (File) props.get("rootDir"),
-			project.getLogger());
+			project.getLogger(), vcsTask.getLocktimeout(),
+			(null == vcsTask.getMirror()) ? null : project.file(vcsTask.getMirror()));
 	}
 
 	public VCSAccess getVCS()
@@ -2,34 +2,76 @@ package org.kercheval.gradle.vcs.git;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.TransportConfigCallback;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.BatchRefUpdate;
 import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.ReceiveCommand;
 import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.IndexDiffFilter;
 import org.gradle.api.logging.Logger;
 import org.kercheval.gradle.console.TextDevices;
 import org.kercheval.gradle.info.SortedProperties;
 import org.kercheval.gradle.vcs.VCSAccess;
 import org.kercheval.gradle.vcs.VCSException;
 import org.kercheval.gradle.vcs.VCSInfoSource;
+import org.kercheval.gradle.vcs.VCSRefTransaction;
+import org.kercheval.gradle.vcs.VCSRepositoryLock;
 import org.kercheval.gradle.vcs.VCSStatus;
 import org.kercheval.gradle.vcs.VCSTag;
 
@@ -39,89 +81,385 @@ import org.kercheval.gradle.vcs.VCSTag;
 public class VCSGitImpl
 	extends VCSInfoSource
 {
+	//
+	// Commit distances by repository directory, HEAD and tag commit. In a
+	// complete repository the object ids identify the history, so a distance
+	// never changes. A shallow repository has a truncated history that changes
+	// when it is deepened, so its distances are not cached. The cache is
+	// bounded, least recently used entries are dropped first.
+	//
+	private static final int COMMIT_DISTANCE_CACHE_SIZE = 256;
+	private static final Map<String, Integer> COMMIT_DISTANCE_CACHE = Collections
+		.synchronizedMap(new LinkedHashMap<String, Integer>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest)
+			{
+				return size() > COMMIT_DISTANCE_CACHE_SIZE;
+			}
+		});
+
+	//
+	// The directory (under the git directory) holding stored values, one file
+	// per name (see getStoredValue). The repository configuration is not used,
+	// so the user's configuration is never rewritten.
+	//
+	private static final String STORED_VALUE_DIR = "gradlecm";
+
+	//
+	// Reuse SSH sessions between fetch and push (see VCSGitSessionCache)
+	//
+	private static final TransportConfigCallback SESSION_CACHE_CALLBACK = new TransportConfigCallback()
+	{
+		@Override
+		public void configure(final Transport transport)
+		{
+			VCSGitSessionCache.configure(transport);
+		}
+	};
+
+	//
+	// The time to wait for access to the repository, in seconds (see
+	// VCSRepositoryLock)
+	//
+	private final long lockTimeout;
+
+	//
+	// The local mirror fetches go through, or null to fetch from the remote
+	// directly (see VCSGitMirror)
+	//
+	private final File mirrorDir;
+
+	//
+	// The git directory and its repository lock, resolved on first use. They
+	// are not kept while no repository is found, so a repository created later
+	// is still found.
+	//
+	private volatile File gitDir;
+	private volatile VCSRepositoryLock repositoryLock;
+
 	public VCSGitImpl(final File srcRootDir, final Logger logger)
+	{
+		this(srcRootDir, logger, VCSRepositoryLock.DEFAULT_TIMEOUT);
+	}
+
+	public VCSGitImpl(final File srcRootDir, final Logger logger, final long lockTimeout)
+	{
+		this(srcRootDir, logger, lockTimeout, null);
+	}
+
+	public VCSGitImpl(final File srcRootDir, final Logger logger, final long lockTimeout,
+		final File mirrorDir)
 	{
 		super(srcRootDir, logger);
+		this.lockTimeout = lockTimeout;
+		this.mirrorDir = mirrorDir;
 	}
 
 	@Override
-	public void createBranch(final String branchName, final String remoteOrigin,
-		final boolean ignoreOrigin)
+	public boolean compareAndSetTagRef(final String refName, final String expectedTagName,
+		final String tagName)
 		throws VCSException
 	{
-		final String refLocalBranch = "refs/heads/" + branchName;
-		final String refRemote = "refs/remotes/" + remoteOrigin + "/master";
-		final String refRemoteBranch = "refs/remotes/" + remoteOrigin + "/" + branchName;
-
+		boolean rVal = false;
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
 
 		try
 		{
 			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
 				.build();
 
-			final Git git = new Git(repository);
+			final Ref tagRef = repository.exactRef(Constants.R_TAGS + tagName);
 
-			final Map<String, Ref> refMap = repository.getAllRefs();
-			final boolean localBranchExists = refMap.containsKey(refLocalBranch);
-			final boolean remoteExists = refMap.containsKey(refRemote);
-			if (ignoreOrigin || !remoteExists)
+			if (null == tagRef)
+			{
+				throw new VCSException("Unable to update reference " + refName,
+					new IllegalStateException("Tag '" + tagName + "' not found"));
+			}
+
+			final Ref ref = repository.exactRef(refName);
+			final String currentTagName = getRefTagName(repository, ref);
+
+			if ((null == expectedTagName) ? (null == currentTagName) : expectedTagName
+				.equals(currentTagName))
 			{
-				if (!localBranchExists)
+				//
+				// The expected old id makes the update fail if the reference was
+				// changed since it was read above
+				//
+				final RefUpdate refUpdate = repository.updateRef(refName);
+
+				refUpdate.setExpectedOldObjectId(null == ref ? ObjectId.zeroId() : ref
+					.getObjectId());
+				refUpdate.setNewObjectId(tagRef.getObjectId());
+				refUpdate.setForceUpdate(true);
+				refUpdate.setRefLogMessage("version tag " + tagName, false);
+
+				final RefUpdate.Result result = refUpdate.update();
+
+				switch (result)
 				{
-					//
-					// Go ahead and create the local branch
-					//
-					git.branchCreate().setName(branchName).setForce(false).call();
+				case NEW:
+				case FORCED:
+				case FAST_FORWARD:
+				case NO_CHANGE:
+					rVal = true;
+					break;
+
+				case LOCK_FAILURE:
+					rVal = false;
+					break;
+
+				default:
+					throw new VCSException("Unable to update reference " + refName,
+						new IllegalStateException("Reference update failed: " + result));
 				}
 			}
-			else
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+
+		return rVal;
+	}
+
+	//
+	// Apply the transaction to the open repository as one atomic batch update.
+	// Tag objects are written first, so an aborted transaction may leave
+	// unreferenced tag objects which are removed by a later gc. Moves may target
+	// a branch or tag created earlier in the transaction.
+	//
+	private void applyRefTransaction(final Repository repository,
+		final VCSRefTransaction transaction)
+		throws IOException, VCSException
+	{
+		final BatchRefUpdate batchUpdate = repository.getRefDatabase().newBatchUpdate();
+		final ObjectInserter inserter = repository.newObjectInserter();
+		final RevWalk revWalk = new RevWalk(repository);
+		final Map<String, ObjectId> createdIds = new HashMap<>();
+
+		batchUpdate.setAtomic(true);
+		batchUpdate.setAllowNonFastForwards(true);
+		batchUpdate.setRefLogMessage("reference transaction", true);
+
+		try
+		{
+			for (final VCSRefTransaction.Command command : transaction.getCommands())
 			{
-				final boolean remoteBranchExists = refMap.containsKey(refRemoteBranch);
-				boolean doPush = false;
-				if (!remoteBranchExists)
+				switch (command.getType())
+				{
+				case CREATE_BRANCH:
 				{
+					final String refName = Constants.R_HEADS + command.getName();
+
 					//
-					// If the remote does not exist, we will need to push to remote after
-					// creation or local branch validation
+					// Existing branches are left as is
 					//
-					doPush = true;
+					if (null == repository.exactRef(refName))
+					{
+						final ObjectId branchId = resolveRevision(repository, command.getRevision(),
+							true);
+
+						batchUpdate.addCommand(new ReceiveCommand(ObjectId.zeroId(), branchId,
+							refName));
+						createdIds.put(command.getName(), branchId);
+						createdIds.put(refName, branchId);
+					}
+					break;
+				}
+
+				case CREATE_TAG:
+				{
+					final TagBuilder tagBuilder = new TagBuilder();
+					tagBuilder.setTag(command.getName());
+					tagBuilder.setMessage(command.getComment());
+					tagBuilder.setTagger(new PersonIdent(repository));
+					tagBuilder.setObjectId(resolveRevision(repository, null, true),
+						Constants.OBJ_COMMIT);
+
+					final ObjectId tagId = inserter.insert(tagBuilder);
+
+					batchUpdate.addCommand(new ReceiveCommand(ObjectId.zeroId(), tagId,
+						Constants.R_TAGS + command.getName()));
+					createdIds.put(command.getName(), tagId);
+					createdIds.put(Constants.R_TAGS + command.getName(), tagId);
+					break;
+				}
+
+				case MOVE_REF:
+				{
+					final Ref ref = repository.exactRef(command.getName());
+					final ObjectId oldId = (null == ref) ? ObjectId.zeroId() : ref.getObjectId();
+
+					if ((null != command.getExpectedRevision())
+						&& !oldId.equals(resolveRevision(repository, command.getExpectedRevision(),
+							false)))
+					{
+						throw new VCSException("Unable to update references " + transaction,
+							new IllegalStateException("Reference " + command.getName()
+								+ " is not at " + command.getExpectedRevision()));
+					}
+
+					final ObjectId newId = createdIds.containsKey(command.getRevision())
+						? createdIds.get(command.getRevision()) : resolveRevision(repository,
+							command.getRevision(), false);
+
+					batchUpdate.addCommand(new ReceiveCommand(oldId, newId, command.getName()));
+					break;
+				}
+				}
+			}
+
+			if (batchUpdate.getCommands().isEmpty())
+			{
+				return;
+			}
+
+			inserter.flush();
+			batchUpdate.execute(revWalk, NullProgressMonitor.INSTANCE);
+
+			//
+			// An atomic update rejects every command if one fails (the others are
+			// reported as aborted)
+			//
+			final List<String> failures = new ArrayList<>();
+
+			for (final ReceiveCommand command : batchUpdate.getCommands())
+			{
+				if (ReceiveCommand.Result.OK != command.getResult())
+				{
+					failures.add(command.getRefName() + " " + command.getResult()
+						+ (null == command.getMessage() ? "" : " (" + command.getMessage() + ")"));
 				}
+			}
+
+			if (!failures.isEmpty())
+			{
+				throw new VCSException("Unable to update references " + transaction,
+					new IllegalStateException("Reference update failed: " + failures));
+			}
+		}
+		finally
+		{
+			revWalk.dispose();
+			inserter.close();
+		}
+	}
+
+	@Override
+	public void createBranch(final String branchName, final String remoteOrigin,
+		final boolean ignoreOrigin)
+		throws VCSException
+	{
+		createBranches(Collections.singletonList(branchName), remoteOrigin, ignoreOrigin);
+	}
+
+	@Override
+	public void createBranches(final List<String> branchNames, final String remoteOrigin,
+		final boolean ignoreOrigin)
+		throws VCSException
+	{
+		final String refRemote = "refs/remotes/" + remoteOrigin + "/master";
+
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final Map<String, Ref> refMap = repository.getAllRefs();
+			final boolean remoteExists = refMap.containsKey(refRemote);
+			final VCSRefTransaction transaction = new VCSRefTransaction();
+			final List<String> trackingBranches = new ArrayList<>();
+			final List<String> pushRefNames = new ArrayList<>();
+
+			for (final String branchName : new LinkedHashSet<>(branchNames))
+			{
+				final String refLocalBranch = "refs/heads/" + branchName;
+				final String refRemoteBranch = "refs/remotes/" + remoteOrigin + "/" + branchName;
+				final boolean localBranchExists = refMap.containsKey(refLocalBranch);
 
-				if (!localBranchExists)
+				if (ignoreOrigin || !remoteExists)
 				{
-					if (remoteBranchExists)
+					if (!localBranchExists)
 					{
 						//
-						// Remote branch does exist and local does not. Create a tracking
-						// branch from remote.
+						// Go ahead and create the local branch
 						//
-						git.branchCreate().setName(branchName).setStartPoint(refRemoteBranch)
-							.setForce(false).call();
+						transaction.createBranch(branchName, null);
 					}
-					else
+				}
+				else
+				{
+					final boolean remoteBranchExists = refMap.containsKey(refRemoteBranch);
+					boolean doPush = false;
+					if (!remoteBranchExists)
 					{
 						//
-						// Neither branch exists, create the local branch
+						// If the remote does not exist, we will need to push to remote after
+						// creation or local branch validation
 						//
-						git.branchCreate().setName(branchName).setForce(false).call();
 						doPush = true;
 					}
-				}
 
-				if (doPush)
-				{
-					//
-					// Need to push the local branch back to remote
-					//
-					git.push()
-						.setRemote(remoteOrigin)
-						.setRefSpecs(new RefSpec(refLocalBranch))
-						.setCredentialsProvider(
-							new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice()))
-						.call();
+					if (!localBranchExists)
+					{
+						if (remoteBranchExists)
+						{
+							//
+							// Remote branch does exist and local does not. Create a tracking
+							// branch from remote.
+							//
+							transaction.createBranch(branchName, refRemoteBranch);
+							trackingBranches.add(branchName);
+						}
+						else
+						{
+							//
+							// Neither branch exists, create the local branch
+							//
+							transaction.createBranch(branchName, null);
+							doPush = true;
+						}
+					}
+
+					if (doPush)
+					{
+						pushRefNames.add(refLocalBranch);
+					}
 				}
 			}
+
+			applyRefTransaction(repository, transaction);
+
+			if (!trackingBranches.isEmpty())
+			{
+				setTracking(repository, trackingBranches, remoteOrigin);
+			}
+
+			if (!pushRefNames.isEmpty())
+			{
+				//
+				// Need to push the local branches back to remote. The branches are
+				// created, so the lock is released before waiting on the network.
+				//
+				lock.unlock();
+				pushRefs(repository, pushRefNames, remoteOrigin);
+			}
 		}
 		catch (final IOException e)
 		{
@@ -129,7 +467,7 @@ public class VCSGitImpl
 		}
 		catch (final GitAPIException e)
 		{
-			throw new VCSException("Unable to create branch: " + branchName, e);
+			throw new VCSException("Unable to create branches: " + branchNames, e);
 		}
 		finally
 		{
@@ -137,6 +475,7 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
 		}
 	}
 
@@ -145,6 +484,7 @@ public class VCSGitImpl
 		throws VCSException
 	{
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
 
 		try
 		{
@@ -172,54 +512,839 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean createTagIfAbsent(final VCSTag tag)
+		throws VCSException
+	{
+		boolean rVal = false;
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final ObjectId headId = repository.resolve(Constants.HEAD);
+
+			if (null == headId)
+			{
+				throw new VCSException("Unable to create tag: " + tag.getName(),
+					new IllegalStateException("The repository has no commits"));
+			}
+
+			//
+			// Write the tag object first. If the reference cannot be created the
+			// object is unreferenced and removed by a later gc.
+			//
+			final TagBuilder tagBuilder = new TagBuilder();
+			tagBuilder.setTag(tag.getName());
+			tagBuilder.setMessage(tag.getComment());
+			tagBuilder.setTagger(new PersonIdent(repository));
+			tagBuilder.setObjectId(headId, Constants.OBJ_COMMIT);
+
+			final ObjectInserter inserter = repository.newObjectInserter();
+			ObjectId tagId;
+
+			try
+			{
+				tagId = inserter.insert(tagBuilder);
+				inserter.flush();
+			}
+			finally
+			{
+				inserter.close();
+			}
+
+			//
+			// An expected old id of zero makes the update an atomic create, it fails
+			// with a lock failure if the reference exists
+			//
+			final RefUpdate refUpdate = repository.updateRef(Constants.R_TAGS + tag.getName());
+
+			refUpdate.setExpectedOldObjectId(ObjectId.zeroId());
+			refUpdate.setNewObjectId(tagId);
+			refUpdate.setRefLogMessage("tagged " + tag.getName(), false);
+
+			final RefUpdate.Result result = refUpdate.update();
+
+			switch (result)
+			{
+			case NEW:
+				rVal = true;
+				break;
+
+			case LOCK_FAILURE:
+				rVal = false;
+				break;
+
+			default:
+				throw new VCSException("Unable to create tag: " + tag.getName(),
+					new IllegalStateException("Reference update failed: " + result));
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
 		}
+
+		return rVal;
 	}
 
 	@Override
 	public void fetch(final String remoteOrigin)
 		throws VCSException
+	{
+		fetch(remoteOrigin, new ArrayList<RefSpec>());
+	}
+
+	@Override
+	public void fetch(final String remoteOrigin, final List<String> branchNames,
+		final String tagPrefix)
+		throws VCSException
+	{
+		final List<RefSpec> refSpecs = new ArrayList<>();
+
+		try
+		{
+			//
+			// A branch the remote does not have (such as the release branch before
+			// the first release) is skipped, as fetching it fails the whole fetch
+			//
+			final Set<String> remoteBranchNames = branchNames.isEmpty() ? new HashSet<String>()
+				: getRemoteBranchNames(remoteOrigin);
+
+			for (final String branchName : branchNames)
+			{
+				final RefSpec refSpec = new RefSpec("+refs/heads/" + branchName + ":refs/remotes/"
+					+ remoteOrigin + "/" + branchName);
+
+				if (remoteBranchNames.contains(branchName))
+				{
+					refSpecs.add(refSpec);
+				}
+				else if (null != getLogger())
+				{
+					getLogger().info("Branch '" + branchName + "' not found on " + remoteOrigin
+						+ ", not fetched");
+				}
+			}
+
+			//
+			// Tags are not forced, an existing tag is never moved by a fetch
+			//
+			if (null != tagPrefix)
+			{
+				refSpecs.add(new RefSpec("refs/tags/" + tagPrefix + "*:refs/tags/" + tagPrefix
+					+ "*"));
+			}
+		}
+		catch (final IllegalArgumentException e)
+		{
+			throw new VCSException("Unable to fetch from origin: " + remoteOrigin, e);
+		}
+
+		//
+		// With nothing named the configured refspecs of the remote are fetched
+		// (see fetch(String)) rather than nothing. If every branch named was
+		// skipped there is nothing to fetch.
+		//
+		if (refSpecs.isEmpty() && !branchNames.isEmpty())
+		{
+			return;
+		}
+
+		fetch(remoteOrigin, refSpecs);
+	}
+
+	//
+	// Update the mirror from the remote and point the fetch at the mirror. The
+	// mirror keeps the remote reference names, so the refspecs of the remote
+	// apply to the mirror unchanged. A full fetch also mirrors every tag so
+	// that tags can be followed from the mirror.
+	//
+	private void fetchFromMirror(final Repository repository, final FetchCommand fetchCommand,
+		final String remoteOrigin, final List<RefSpec> refSpecs)
+		throws IOException, URISyntaxException, VCSException
+	{
+		final RemoteConfig remoteConfig = new RemoteConfig(repository.getConfig(), remoteOrigin);
+
+		if (remoteConfig.getURIs().isEmpty())
+		{
+			throw new VCSException("Unable to fetch from origin: " + remoteOrigin,
+				new IllegalStateException("No URL is configured for the remote"));
+		}
+
+		final VCSGitMirror mirror = new VCSGitMirror(mirrorDir, lockTimeout);
+		final List<RefSpec> fetchRefSpecs = new ArrayList<>(refSpecs);
+		final List<RefSpec> mirrorRefSpecs = new ArrayList<>(refSpecs);
+
+		if (refSpecs.isEmpty())
+		{
+			fetchRefSpecs.addAll(remoteConfig.getFetchRefSpecs());
+			mirrorRefSpecs.addAll(remoteConfig.getFetchRefSpecs());
+			mirrorRefSpecs.add(new RefSpec("+" + Constants.R_TAGS + "*:" + Constants.R_TAGS + "*"));
+		}
+
+		mirror.update(remoteConfig.getURIs().get(0).toString(), mirrorRefSpecs,
+			SESSION_CACHE_CALLBACK);
+		mirror.addAlternate(repository);
+
+		fetchCommand.setRemote(mirrorDir.getCanonicalPath()).setRefSpecs(fetchRefSpecs);
+	}
+
+	//
+	// Fetch the refspecs from the remote, or the refspecs configured for the
+	// remote if none are given
+	//
+	private void fetch(final String remoteOrigin, final List<RefSpec> refSpecs)
+		throws VCSException
 	{
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockUpdate();
 
 		try
 		{
 			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
 				.build();
-			new Git(repository)
+
+			final FetchCommand fetchCommand = new Git(repository)
 				.fetch()
 				.setRemote(remoteOrigin)
+				.setTransportConfigCallback(SESSION_CACHE_CALLBACK)
 				.setCredentialsProvider(
-					new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice())).call();
+					new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice()));
+
+			//
+			// Tags are not followed automatically for a narrowed fetch, only
+			// the tags requested by the refspecs are fetched
+			//
+			if (!refSpecs.isEmpty())
+			{
+				fetchCommand.setRefSpecs(refSpecs).setTagOpt(TagOpt.NO_TAGS);
+			}
+
+			if (null != mirrorDir)
+			{
+				fetchFromMirror(repository, fetchCommand, remoteOrigin, refSpecs);
+			}
+			fetchCommand.call();
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		catch (final URISyntaxException e)
+		{
+			throw new VCSException("Unable to fetch from origin: " + remoteOrigin, e);
+		}
+		catch (final GitAPIException e)
+		{
+			throw new VCSException("Unable to fetch from origin: " + remoteOrigin, e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String getBranchName()
+		throws VCSException
+	{
+		String rVal = "";
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+			rVal = repository.getBranch();
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public int getCommitDistance(final String tagName)
+		throws VCSException
+	{
+		int rVal = 0;
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final ObjectId headId = repository.resolve(Constants.HEAD);
+			ObjectId tagCommitId = null;
+
+			if (null != tagName)
+			{
+				tagCommitId = repository.resolve(Constants.R_TAGS + tagName + "^{commit}");
+
+				if (null == tagCommitId)
+				{
+					throw new VCSException("Unable to get commit distance from tag " + tagName,
+						new IllegalStateException("Tag not found in repository"));
+				}
+			}
+
+			//
+			// An empty repository has no commits
+			//
+			if (null != headId)
+			{
+				if (isShallow(repository))
+				{
+					rVal = walkCommitDistance(repository, headId, tagCommitId);
+				}
+				else
+				{
+					final String cacheKey = repository.getDirectory().getCanonicalPath() + ":"
+						+ headId.getName() + ":"
+						+ (null == tagCommitId ? "" : tagCommitId.getName());
+					final Integer distance = COMMIT_DISTANCE_CACHE.get(cacheKey);
+
+					if (null == distance)
+					{
+						rVal = walkCommitDistance(repository, headId, tagCommitId);
+						COMMIT_DISTANCE_CACHE.put(cacheKey, rVal);
+					}
+					else
+					{
+						rVal = distance;
+					}
+				}
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public String getDescription()
+	{
+		return "Git (http://git-scm.com/) environment information";
+	}
+
+	//
+	// Return the modification time (in nanoseconds where the filesystem has
+	// them) and size of the file, or "-" if it does not exist
+	//
+	private String getFileStamp(final File file)
+		throws IOException
+	{
+		try
+		{
+			final BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+				BasicFileAttributes.class);
+
+			return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + ":"
+				+ attributes.size();
+		}
+		catch (final NoSuchFileException e)
+		{
+			return "-";
+		}
+	}
+
+	//
+	// Return the git directory of the repository, or null if no repository is
+	// found
+	//
+	private File getGitDir()
+	{
+		File rVal = gitDir;
+
+		if (null == rVal)
+		{
+			rVal = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.getGitDir();
+			gitDir = rVal;
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public SortedProperties getInfo()
+	{
+		final SortedProperties props = super.getInfo();
+		Repository repository = null;
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+			props.addProperty(getPropertyPrefix() + ".basedir", repository.getDirectory()
+				.getCanonicalPath());
+			props.addProperty(getPropertyPrefix() + ".branch", repository.getBranch());
+
+			final ObjectId head = repository.resolve("HEAD");
+			if (null == head)
+			{
+				props.addProperty(getPropertyPrefix() + ".last.commit", "");
+			}
+			else
+			{
+				props.addProperty(getPropertyPrefix() + ".last.commit", head.getName());
+			}
+
+			final Config config = repository.getConfig();
+
+			props.addProperty(getPropertyPrefix() + ".user.name",
+				config.getString("user", null, "name"));
+			props.addProperty(getPropertyPrefix() + ".user.email",
+				config.getString("user", null, "email"));
+			props.addProperty(getPropertyPrefix() + ".remote.origin",
+				config.getString("remote", "origin", "url"));
+		}
+		catch (final IOException e)
+		{
+			// Ignore
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+		}
+		return props;
+	}
+
+	@Override
+	public String getRefFingerprint()
+		throws VCSException
+	{
+		final MessageDigest digest = Constants.newMessageDigest();
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final Ref head = repository.exactRef(Constants.HEAD);
+
+			if ((null != head) && (null != head.getObjectId()))
+			{
+				digest.update(Constants.encode(head.getObjectId().getName()));
+			}
+
+			//
+			// Annotated tag references hold the tag object id, so no tag objects
+			// are read (or peeled) here
+			//
+			for (final Entry<String, Ref> tag : new TreeMap<>(repository.getTags()).entrySet())
+			{
+				digest.update(Constants.encode("\n" + tag.getKey() + " "
+					+ tag.getValue().getObjectId().getName()));
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+
+		return ObjectId.fromRaw(digest.digest()).getName();
+	}
+
+	//
+	// Return the names of the branches of the remote. As for getRemoteTags, no
+	// repository lock is taken while waiting on the network.
+	//
+	private Set<String> getRemoteBranchNames(final String remoteOrigin)
+		throws VCSException
+	{
+		final Set<String> rVal = new HashSet<>();
+		Repository repository = null;
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final Collection<Ref> refs = new Git(repository)
+				.lsRemote()
+				.setRemote(remoteOrigin)
+				.setHeads(true)
+				.setTransportConfigCallback(SESSION_CACHE_CALLBACK)
+				.setCredentialsProvider(
+					new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice())).call();
+
+			for (final Ref ref : refs)
+			{
+				rVal.add(Repository.shortenRefName(ref.getName()));
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		catch (final GitAPIException e)
+		{
+			throw new VCSException("Unable to list branches of origin: " + remoteOrigin, e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public List<VCSTag> getRemoteTags(final String remoteOrigin, final String regexFilter)
+		throws VCSException
+	{
+		final List<VCSTag> rVal = new ArrayList<>();
+		Repository repository = null;
+
+		//
+		// Only the remote configuration is read from the repository, so no
+		// repository lock is taken while waiting on the network
+		//
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final Collection<Ref> refs = new Git(repository)
+				.lsRemote()
+				.setRemote(remoteOrigin)
+				.setTags(true)
+				.setTransportConfigCallback(SESSION_CACHE_CALLBACK)
+				.setCredentialsProvider(
+					new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice())).call();
+
+			for (final Ref ref : refs)
+			{
+				final String tagName = Repository.shortenRefName(ref.getName());
+
+				if (tagName.matches(regexFilter))
+				{
+					rVal.add(new VCSTag(tagName, ref.getObjectId().getName(), null, null, null, null));
+				}
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		catch (final GitAPIException e)
+		{
+			throw new VCSException("Unable to list tags of origin: " + remoteOrigin, e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public VCSStatus getStatus()
+		throws VCSException
+	{
+		final VCSStatus rVal = new VCSStatus();
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			try
+			{
+				final Status status = new Git(repository).status().call();
+
+				rVal.setAdded(status.getAdded());
+				rVal.setChanged(status.getChanged());
+				rVal.setMissing(status.getMissing());
+				rVal.setRemoved(status.getRemoved());
+				rVal.setUntracked(status.getUntracked());
+				rVal.setConflicting(status.getConflicting());
+				rVal.setModified(status.getModified());
+			}
+			catch (final GitAPIException e)
+			{
+				throw new VCSException("Unable to determine repository status", e);
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the lock for the repository. Locks are shared by git directory, so
+	// every source directory within the same repository is coordinated.
+	//
+	private VCSRepositoryLock getRepositoryLock()
+	{
+		VCSRepositoryLock rVal = repositoryLock;
+
+		if (null == rVal)
+		{
+			final File lockDir = getGitDir();
+
+			if (null == lockDir)
+			{
+				return new VCSRepositoryLock(getSrcRootDir(), lockTimeout);
+			}
+
+			rVal = new VCSRepositoryLock(lockDir, lockTimeout);
+			repositoryLock = rVal;
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the name of the tag the reference points at, or null if there is
+	// no reference or the tag no longer exists with that name and object
+	//
+	private String getRefTagName(final Repository repository, final Ref ref)
+		throws IOException
+	{
+		String rVal = null;
+
+		if (null != ref)
+		{
+			final RevWalk revWalk = new RevWalk(repository);
+
+			try
+			{
+				final RevObject revObject = revWalk.parseAny(ref.getObjectId());
+
+				if (revObject instanceof RevTag)
+				{
+					final String tagName = ((RevTag) revObject).getTagName();
+					final Ref tagRef = repository.exactRef(Constants.R_TAGS + tagName);
+
+					if ((null != tagRef) && ref.getObjectId().equals(tagRef.getObjectId()))
+					{
+						rVal = tagName;
+					}
+				}
+			}
+			catch (final MissingObjectException e)
+			{
+				// The tag object is gone (the reference is stale)
+			}
+			finally
+			{
+				revWalk.dispose();
+			}
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public String getStoredValue(final String name)
+		throws VCSException
+	{
+		String rVal = null;
+		final File valueFile = getStoredValueFile(name);
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			rVal = new String(Files.readAllBytes(valueFile.toPath()), StandardCharsets.UTF_8);
+		}
+		catch (final NoSuchFileException e)
+		{
+			// Nothing stored
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to read stored value " + name, e);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		return rVal;
+	}
+
+	//
+	// Return the file holding the stored value. Names are single file names.
+	//
+	private File getStoredValueFile(final String name)
+		throws VCSException
+	{
+		final File gitDir = getGitDir();
+
+		if (null == gitDir)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(),
+				new IllegalStateException("No git directory found"));
+		}
+
+		if (!name.matches("[A-Za-z0-9][A-Za-z0-9._-]*"))
+		{
+			throw new VCSException("Unable to store value " + name,
+				new IllegalArgumentException("Invalid stored value name"));
+		}
+
+		return new File(new File(gitDir, STORED_VALUE_DIR), name);
+	}
+
+	@Override
+	public Date getTagDate(final String objectId)
+		throws VCSException
+	{
+		Date rVal = null;
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			final RevWalk revWalk = new RevWalk(repository);
+
+			try
+			{
+				final RevObject object = revWalk.parseAny(ObjectId.fromString(objectId));
+
+				if (object instanceof RevTag)
+				{
+					final PersonIdent ident = ((RevTag) object).getTaggerIdent();
+
+					if (null != ident)
+					{
+						rVal = ident.getWhen();
+					}
+				}
+				else if (object instanceof RevCommit)
+				{
+					rVal = ((RevCommit) object).getCommitterIdent().getWhen();
+				}
+			}
+			catch (final MissingObjectException e)
+			{
+				// Not in the local repository (a shallow or partial clone)
+			}
+			finally
+			{
+				revWalk.dispose();
+			}
 		}
 		catch (final IOException e)
 		{
 			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
 		}
-		catch (final GitAPIException e)
-		{
-			throw new VCSException("Unable to fetch from origin: " + remoteOrigin, e);
-		}
 		finally
 		{
 			if (null != repository)
 			{
 				repository.close();
 			}
+			lock.unlock();
 		}
+
+		return rVal;
 	}
 
 	@Override
-	public String getBranchName()
+	public List<String> getTagNames(final String regexFilter)
 		throws VCSException
 	{
-		String rVal = "";
+		final List<String> rVal = new ArrayList<>();
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
 
 		try
 		{
 			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
 				.build();
-			rVal = repository.getBranch();
+
+			final Pattern filter = Pattern.compile(regexFilter);
+
+			for (final String tagName : repository.getTags().keySet())
+			{
+				if (filter.matcher(tagName).matches())
+				{
+					rVal.add(tagName);
+				}
+			}
 		}
 		catch (final IOException e)
 		{
@@ -231,53 +1356,29 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
 		}
 
 		return rVal;
 	}
 
 	@Override
-	public String getDescription()
-	{
-		return "Git (http://git-scm.com/) environment information";
-	}
-
-	@Override
-	public SortedProperties getInfo()
+	public String getTagRef(final String refName)
+		throws VCSException
 	{
-		final SortedProperties props = super.getInfo();
+		String rVal = null;
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
 
 		try
 		{
 			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
 				.build();
-			props.addProperty(getPropertyPrefix() + ".basedir", repository.getDirectory()
-				.getCanonicalPath());
-			props.addProperty(getPropertyPrefix() + ".branch", repository.getBranch());
-
-			final ObjectId head = repository.resolve("HEAD");
-			if (null == head)
-			{
-				props.addProperty(getPropertyPrefix() + ".last.commit", "");
-			}
-			else
-			{
-				props.addProperty(getPropertyPrefix() + ".last.commit", head.getName());
-			}
-
-			final Config config = repository.getConfig();
-
-			props.addProperty(getPropertyPrefix() + ".user.name",
-				config.getString("user", null, "name"));
-			props.addProperty(getPropertyPrefix() + ".user.email",
-				config.getString("user", null, "email"));
-			props.addProperty(getPropertyPrefix() + ".remote.origin",
-				config.getString("remote", "origin", "url"));
+			rVal = getRefTagName(repository, repository.exactRef(refName));
 		}
 		catch (final IOException e)
 		{
-			// Ignore
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
 		}
 		finally
 		{
@@ -285,38 +1386,38 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
 		}
-		return props;
+
+		return rVal;
 	}
 
+	//
+	// The stamp is made of the packed-refs file and the refs/tags directory.
+	// Creating, deleting or moving a loose tag renames a file in the directory
+	// (changing its modification time) and packing or deleting a packed tag
+	// rewrites packed-refs. A tag in a subdirectory of refs/tags (a name with a
+	// '/') only changes that subdirectory once the subdirectory exists, and
+	// filesystems with coarse times can miss a change within the same tick.
+	//
 	@Override
-	public VCSStatus getStatus()
+	public String getTagStamp()
 		throws VCSException
 	{
-		final VCSStatus rVal = new VCSStatus();
-		Repository repository = null;
+		final File gitDir = getGitDir();
 
-		try
+		if (null == gitDir)
 		{
-			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
-				.build();
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(),
+				new IllegalStateException("No git directory found"));
+		}
 
-			try
-			{
-				final Status status = new Git(repository).status().call();
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
 
-				rVal.setAdded(status.getAdded());
-				rVal.setChanged(status.getChanged());
-				rVal.setMissing(status.getMissing());
-				rVal.setRemoved(status.getRemoved());
-				rVal.setUntracked(status.getUntracked());
-				rVal.setConflicting(status.getConflicting());
-				rVal.setModified(status.getModified());
-			}
-			catch (final GitAPIException e)
-			{
-				throw new VCSException("Unable to determine repository status", e);
-			}
+		try
+		{
+			return getFileStamp(new File(gitDir, Constants.PACKED_REFS)) + ";"
+				+ getFileStamp(new File(gitDir, Constants.R_TAGS));
 		}
 		catch (final IOException e)
 		{
@@ -324,13 +1425,8 @@ public class VCSGitImpl
 		}
 		finally
 		{
-			if (null != repository)
-			{
-				repository.close();
-			}
+			lock.unlock();
 		}
-
-		return rVal;
 	}
 
 	@Override
@@ -339,6 +1435,7 @@ public class VCSGitImpl
 	{
 		final List<VCSTag> rVal = new ArrayList<>();
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
 
 		try
 		{
@@ -387,6 +1484,7 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
 		}
 
 		return rVal;
@@ -398,6 +1496,72 @@ public class VCSGitImpl
 		return VCSAccess.Type.GIT;
 	}
 
+	@Override
+	public boolean isClean()
+		throws VCSException
+	{
+		boolean rVal = true;
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockRead();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+
+			//
+			// Walk HEAD, the index and the working tree together. The index diff
+			// filter passes only entries that differ (including untracked files
+			// that are not ignored), so the first entry returned means the
+			// workspace is not clean and the rest of the tree is never scanned.
+			//
+			final TreeWalk treeWalk = new TreeWalk(repository);
+
+			try
+			{
+				final ObjectId headTreeId = repository.resolve(Constants.HEAD + "^{tree}");
+
+				if (null == headTreeId)
+				{
+					treeWalk.addTree(new EmptyTreeIterator());
+				}
+				else
+				{
+					treeWalk.addTree(headTreeId);
+				}
+
+				treeWalk.addTree(new DirCacheIterator(repository.readDirCache()));
+
+				final FileTreeIterator workingTreeIterator = new FileTreeIterator(repository);
+				treeWalk.addTree(workingTreeIterator);
+				workingTreeIterator.setDirCacheIterator(treeWalk, 1);
+
+				treeWalk.setFilter(new IndexDiffFilter(1, 2));
+				treeWalk.setRecursive(true);
+
+				rVal = !treeWalk.next();
+			}
+			finally
+			{
+				treeWalk.close();
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+
+		return rVal;
+	}
+
 	@Override
 	public void merge(final String fromBranch, final String remoteOrigin,
 		final boolean fastForwardOnly)
@@ -405,6 +1569,7 @@ public class VCSGitImpl
 	{
 
 		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
 
 		try
 		{
@@ -456,6 +1621,7 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
 		}
 	}
 
@@ -468,37 +1634,56 @@ public class VCSGitImpl
 		{
 			refLocalBranch = "refs/tags/" + from;
 		}
-		Repository repository = null;
 
-		try
+		pushRefs(Collections.singletonList(refLocalBranch), remoteOrigin);
+	}
+
+	//
+	// Push the references in one push (one connection and one pack) and
+	// report every reference the remote did not accept. No repository lock is
+	// needed: the push only reads local objects and references, and the
+	// remote-tracking references it updates are each updated atomically.
+	//
+	private void pushRefs(final Repository repository, final List<String> refNames,
+		final String remoteOrigin)
+		throws GitAPIException, VCSException
+	{
+		final List<RefSpec> refSpecs = new ArrayList<>();
+
+		for (final String refName : refNames)
 		{
-			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
-				.build();
+			refSpecs.add(new RefSpec(refName));
+		}
 
-			Iterable<PushResult> pushResult;
-			pushResult = new Git(repository)
-				.push()
-				.setRemote(remoteOrigin)
-				.setRefSpecs(new RefSpec(refLocalBranch))
-				.setCredentialsProvider(
-					new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice())).call();
+		final Iterable<PushResult> pushResult = new Git(repository)
+			.push()
+			.setRemote(remoteOrigin)
+			.setRefSpecs(refSpecs)
+			.setTransportConfigCallback(SESSION_CACHE_CALLBACK)
+			.setCredentialsProvider(
+				new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice())).call();
+
+		final List<String> failures = new ArrayList<>();
 
-			RemoteRefUpdate.Status refStatus = null;
+		for (final String refName : refNames)
+		{
+			RemoteRefUpdate refUpdate = null;
 			for (final PushResult result : pushResult)
 			{
-				refStatus = result.getRemoteUpdate(refLocalBranch).getStatus();
-				if (refStatus != null)
+				refUpdate = result.getRemoteUpdate(refName);
+				if (null != refUpdate)
 				{
 					break;
 				}
 			}
-			if (null == refStatus)
+
+			if (null == refUpdate)
 			{
-				throw new VCSException("Unable to push branch with reason: unknown",
-					new IllegalStateException(
-						"The branch must be merged or manually corrected before continuing"));
+				failures.add(refName + " unknown");
+				continue;
 			}
-			switch (refStatus)
+
+			switch (refUpdate.getStatus())
 			{
 			case OK:
 			case UP_TO_DATE:
@@ -506,19 +1691,159 @@ public class VCSGitImpl
 				break;
 
 			default:
-				throw new VCSException("Unable to push branch with reason: " + refStatus,
-					new IllegalStateException(
-						"The branch must be merged or manually corrected before continuing"));
-
+				failures.add(refName + " " + refUpdate.getStatus()
+					+ (null == refUpdate.getMessage() ? "" : " (" + refUpdate.getMessage() + ")"));
 			}
 		}
+
+		if (!failures.isEmpty())
+		{
+			throw new VCSException("Unable to push with reason: " + failures,
+				new IllegalStateException(
+					"The branch must be merged or manually corrected before continuing"));
+		}
+	}
+
+	@Override
+	public void pushRefs(final List<String> refNames, final String remoteOrigin)
+		throws VCSException
+	{
+		Repository repository = null;
+
+		//
+		// No repository lock is held while waiting on the network (see
+		// pushRefs(Repository, List, String))
+		//
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+			pushRefs(repository, refNames, remoteOrigin);
+		}
 		catch (final IOException e)
 		{
 			throw new VCSException("Unable to push repository at: " + getSrcRootDir(), e);
 		}
 		catch (final GitAPIException e)
 		{
-			throw new VCSException("Unable to push branch " + from + " to " + remoteOrigin, e);
+			throw new VCSException("Unable to push " + refNames + " to " + remoteOrigin, e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+		}
+	}
+
+	//
+	// Resolve the revision (HEAD if null), peeled to its commit if requested
+	//
+	private ObjectId resolveRevision(final Repository repository, final String revision,
+		final boolean peelCommit)
+		throws IOException, VCSException
+	{
+		final String name = (null == revision) ? Constants.HEAD : revision;
+		final ObjectId rVal = repository.resolve(peelCommit ? name + "^{commit}" : name);
+
+		if (null == rVal)
+		{
+			throw new VCSException("Unable to resolve revision " + name,
+				new IllegalStateException("Revision not found in repository"));
+		}
+
+		return rVal;
+	}
+
+	@Override
+	public void setStoredValue(final String name, final String value)
+		throws VCSException
+	{
+		final File valueFile = getStoredValueFile(name);
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
+
+		try
+		{
+			if (null == value)
+			{
+				Files.deleteIfExists(valueFile.toPath());
+			}
+			else
+			{
+				//
+				// The file is replaced in one step so other builds never read a
+				// partial value
+				//
+				final File valueDir = valueFile.getParentFile();
+
+				Files.createDirectories(valueDir.toPath());
+
+				final File tempFile = File.createTempFile(name, ".tmp", valueDir);
+
+				try
+				{
+					Files.write(tempFile.toPath(), value.getBytes(StandardCharsets.UTF_8));
+					Files.move(tempFile.toPath(), valueFile.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				finally
+				{
+					Files.deleteIfExists(tempFile.toPath());
+				}
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to store value " + name, e);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	//
+	// Configure branches created from the remote to track the remote branch, as
+	// git does when creating a branch from a remote branch (unless disabled by
+	// branch.autosetupmerge)
+	//
+	private void setTracking(final Repository repository, final List<String> branchNames,
+		final String remoteOrigin)
+		throws IOException
+	{
+		final StoredConfig config = repository.getConfig();
+
+		if (!"false".equalsIgnoreCase(config.getString(ConfigConstants.CONFIG_BRANCH_SECTION,
+			null, ConfigConstants.CONFIG_KEY_AUTOSETUPMERGE)))
+		{
+			for (final String branchName : branchNames)
+			{
+				config.setString(ConfigConstants.CONFIG_BRANCH_SECTION, branchName,
+					ConfigConstants.CONFIG_KEY_REMOTE, remoteOrigin);
+				config.setString(ConfigConstants.CONFIG_BRANCH_SECTION, branchName,
+					ConfigConstants.CONFIG_KEY_MERGE, Constants.R_HEADS + branchName);
+			}
+			config.save();
+		}
+	}
+
+	@Override
+	public void updateRefs(final VCSRefTransaction transaction)
+		throws VCSException
+	{
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = getRepositoryLock().lockWrite();
+
+		try
+		{
+			repository = new RepositoryBuilder().readEnvironment().findGitDir(getSrcRootDir())
+				.build();
+			applyRefTransaction(repository, transaction);
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to find repository at: " + getSrcRootDir(), e);
 		}
 		finally
 		{
@@ -526,6 +1851,52 @@ public class VCSGitImpl
 			{
 				repository.close();
 			}
+			lock.unlock();
+		}
+	}
+
+	//
+	// Return true if the repository is a shallow clone (its history is
+	// truncated at the commits listed in the shallow file)
+	//
+	private boolean isShallow(final Repository repository)
+	{
+		return new File(repository.getDirectory(), "shallow").isFile();
+	}
+
+	//
+	// Count the commits from HEAD, stopping at the tag commit. Marking the tag
+	// commit uninteresting stops the walk at the tag (and everything reachable
+	// from it), so only the commits since the tag are visited. Commit bodies are
+	// not needed and are not retained.
+	//
+	private int walkCommitDistance(final Repository repository, final ObjectId headId,
+		final ObjectId tagCommitId)
+		throws IOException
+	{
+		int rVal = 0;
+		final RevWalk revWalk = new RevWalk(repository);
+
+		try
+		{
+			revWalk.setRetainBody(false);
+			revWalk.markStart(revWalk.parseCommit(headId));
+
+			if (null != tagCommitId)
+			{
+				revWalk.markUninteresting(revWalk.parseCommit(tagCommitId));
+			}
+
+			while (null != revWalk.next())
+			{
+				rVal++;
+			}
+		}
+		finally
+		{
+			revWalk.dispose();
 		}
+
+		return rVal;
 	}
 }
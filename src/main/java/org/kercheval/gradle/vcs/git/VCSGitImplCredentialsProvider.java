@@ -1,5 +1,8 @@
 package org.kercheval.gradle.vcs.git;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
 import org.eclipse.jgit.errors.UnsupportedCredentialItem;
@@ -193,6 +196,37 @@ public class VCSGitImplCredentialsProvider
 		return true;
 	}
 
+	//
+	// Identify the credentials supplied, so that connections authenticated with
+	// different credentials are not shared (see VCSGitSessionCache). The
+	// password is included as a digest.
+	//
+	public String getIdentity()
+	{
+		final StringBuilder rVal = new StringBuilder(String.valueOf(username));
+
+		if (null != password)
+		{
+			try
+			{
+				final byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+					password.getBytes(StandardCharsets.UTF_8));
+
+				rVal.append(':');
+				for (final byte digestByte : digest)
+				{
+					rVal.append(String.format("%02x", digestByte));
+				}
+			}
+			catch (final NoSuchAlgorithmException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+
+		return rVal.toString();
+	}
+
 	@Override
 	public boolean isInteractive()
 	{
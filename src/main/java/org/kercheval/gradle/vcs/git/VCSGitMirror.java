@@ -0,0 +1,203 @@
+package org.kercheval.gradle.vcs.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.TransportConfigCallback;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.kercheval.gradle.console.TextDevices;
+import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSRepositoryLock;
+
+//
+// A bare repository on local disk holding the objects of a remote. Fetches
+// update the mirror from the remote, then fetch from the mirror into the
+// workspace. The workspace borrows the mirror objects through its alternates
+// file, so each object is downloaded once per machine and the workspace fetch
+// copies only references.
+//
+// Builds in other processes (concurrent CI jobs) share the mirror, so updates
+// are serialized by a lock file in the mirror as well as by the repository lock
+// within the JVM.
+//
+// Workspaces depend on the mirror objects, so the mirror must not be pruned or
+// deleted while workspaces using it exist.
+//
+public class VCSGitMirror
+{
+	//
+	// The lock file taken while the mirror is updated
+	//
+	public static final String LOCK_FILE_NAME = "mirror.lock";
+
+	//
+	// The time between attempts to take the lock file, in milliseconds
+	//
+	private static final long LOCK_RETRY_INTERVAL = 100;
+
+	private final File mirrorDir;
+	private final long lockTimeout;
+
+	//
+	// The lock timeout is the time in seconds to wait for other updates of the
+	// mirror, from this or another process
+	//
+	public VCSGitMirror(final File mirrorDir, final long lockTimeout)
+	{
+		this.mirrorDir = mirrorDir;
+		this.lockTimeout = lockTimeout;
+	}
+
+	//
+	// List the mirror objects as alternates of the repository if they are not
+	// already
+	//
+	public void addAlternate(final Repository repository)
+		throws IOException
+	{
+		final File objectsDir = new File(mirrorDir, "objects").getCanonicalFile();
+		final File alternatesFile = new File(repository.getDirectory(), "objects/info/alternates");
+		final List<String> alternates = new ArrayList<>();
+
+		if (alternatesFile.exists())
+		{
+			alternates.addAll(Files.readAllLines(alternatesFile.toPath(), StandardCharsets.UTF_8));
+		}
+
+		if (!alternates.contains(objectsDir.getPath()))
+		{
+			alternates.add(objectsDir.getPath());
+
+			final File infoDir = alternatesFile.getParentFile();
+
+			if (!infoDir.isDirectory() && !infoDir.mkdirs())
+			{
+				throw new IOException("Unable to create directory: " + infoDir);
+			}
+			Files.write(alternatesFile.toPath(), alternates, StandardCharsets.UTF_8);
+		}
+	}
+
+	public File getMirrorDir()
+	{
+		return mirrorDir;
+	}
+
+	//
+	// Return the refspecs that fetch the same references from the mirror as the
+	// refspecs fetch from the remote. The mirror keeps the remote names.
+	//
+	public List<RefSpec> getMirrorRefSpecs(final List<RefSpec> refSpecs)
+	{
+		final List<RefSpec> rVal = new ArrayList<>();
+
+		for (final RefSpec refSpec : refSpecs)
+		{
+			rVal.add(new RefSpec("+" + refSpec.getSource() + ":" + refSpec.getSource()));
+		}
+
+		return rVal;
+	}
+
+	//
+	// Take the lock file, waiting for updates by other processes
+	//
+	private FileLock lockFile(final FileChannel channel)
+		throws IOException, VCSException
+	{
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(lockTimeout);
+		FileLock rVal = channel.tryLock();
+
+		while (null == rVal)
+		{
+			if (System.nanoTime() >= deadline)
+			{
+				throw new VCSException("Unable to lock repository at: " + mirrorDir,
+					new IllegalStateException("Timed out after " + lockTimeout
+						+ " seconds waiting for the mirror"));
+			}
+
+			try
+			{
+				Thread.sleep(LOCK_RETRY_INTERVAL);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new VCSException("Unable to lock repository at: " + mirrorDir, e);
+			}
+			rVal = channel.tryLock();
+		}
+
+		return rVal;
+	}
+
+	//
+	// Fetch the remote references given by the refspecs into the mirror,
+	// creating the mirror if it does not exist. Only the sources of the refspecs
+	// are used, references keep their remote names in the mirror.
+	//
+	public void update(final String remoteUrl, final List<RefSpec> refSpecs,
+		final TransportConfigCallback transportConfigCallback)
+		throws VCSException
+	{
+		Repository repository = null;
+		final VCSRepositoryLock.Access lock = new VCSRepositoryLock(mirrorDir, lockTimeout).lockWrite();
+
+		try
+		{
+			if (!mirrorDir.isDirectory() && !mirrorDir.mkdirs())
+			{
+				throw new IOException("Unable to create directory: " + mirrorDir);
+			}
+
+			try (FileChannel channel = FileChannel.open(
+				new File(mirrorDir, LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+				FileLock fileLock = lockFile(channel))
+			{
+				repository = new RepositoryBuilder().setGitDir(mirrorDir).setBare().build();
+				if (!repository.getObjectDatabase().exists())
+				{
+					repository.create(true);
+				}
+
+				new Git(repository).fetch().setRemote(remoteUrl)
+					.setRefSpecs(getMirrorRefSpecs(refSpecs)).setTagOpt(TagOpt.NO_TAGS)
+					.setTransportConfigCallback(transportConfigCallback)
+					.setCredentialsProvider(
+						new VCSGitImplCredentialsProvider(TextDevices.defaultTextDevice()))
+					.call();
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new VCSException("Unable to update mirror at: " + mirrorDir, e);
+		}
+		catch (final GitAPIException e)
+		{
+			throw new VCSException("Unable to fetch from origin: " + remoteUrl, e);
+		}
+		finally
+		{
+			if (null != repository)
+			{
+				repository.close();
+			}
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,454 @@
+package org.kercheval.gradle.vcs.git;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.JschSession;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+
+//
+// Reuse SSH sessions between git operations. Each fetch and push opens a
+// transport, and over SSH each transport connects and authenticates a new
+// session. The release tasks fetch and push to the same remote within a build,
+// so sessions released by a transport are kept open for the idle timeout and
+// handed to the next transport for the same remote.
+//
+// Sessions are keyed by user, host, port and the credentials supplied, so a
+// session authenticated with one set of credentials is never handed to a
+// transport using another. The repository path is part of the command run on
+// the session, so one session serves every repository on the host. A session
+// is used by one transport at a time.
+//
+// The server may close a session while it is idle. Closed sessions are not
+// reused where the session reports its state, otherwise a reused session that
+// fails to start a command is dropped and the command is run on a new session.
+//
+// HTTP transports are not cached here, the JDK already keeps HTTP connections
+// alive between requests to the same host.
+//
+public class VCSGitSessionCache
+	extends SshSessionFactory
+{
+	//
+	// The default time an unused session is kept open, in seconds
+	//
+	public static final long DEFAULT_IDLE_TIMEOUT = 120;
+
+	//
+	// The session handed to transports, wrapping the session made by the
+	// delegate. The connection details are those of the transport the session
+	// was last handed to, and are used to open a new session if a reused
+	// session turns out to be closed.
+	//
+	private class CachedSession
+		implements RemoteSession
+	{
+		private RemoteSession session;
+		private URIish uri;
+		private CredentialsProvider credentialsProvider;
+		private FS fs;
+		private int tms;
+		private boolean reused = false;
+
+		CachedSession(final RemoteSession session,
+			final URIish uri,
+			final CredentialsProvider credentialsProvider,
+			final FS fs,
+			final int tms)
+		{
+			this.session = session;
+			this.uri = uri;
+			this.credentialsProvider = credentialsProvider;
+			this.fs = fs;
+			this.tms = tms;
+		}
+
+		@Override
+		public void disconnect()
+		{
+			session.disconnect();
+		}
+
+		//
+		// Start the command. If the session was reused and the command cannot be
+		// started, the session is dropped and the command is started on a new
+		// session.
+		//
+		@Override
+		public Process exec(final String command, final int timeout)
+			throws IOException
+		{
+			if (reused)
+			{
+				reused = false;
+
+				try
+				{
+					return session.exec(command, timeout);
+				}
+				catch (final TransportException e)
+				{
+					delegate.releaseSession(session);
+					session = delegate.getSession(uri, credentialsProvider, fs, tms);
+				}
+			}
+
+			return session.exec(command, timeout);
+		}
+
+		void reuse(final URIish uri,
+			final CredentialsProvider credentialsProvider,
+			final FS fs,
+			final int tms)
+		{
+			this.uri = uri;
+			this.credentialsProvider = credentialsProvider;
+			this.fs = fs;
+			this.tms = tms;
+			this.reused = true;
+		}
+	}
+
+	//
+	// An open session not in use by a transport
+	//
+	private static class IdleSession
+	{
+		private final CachedSession cachedSession;
+		private final long idleSince;
+
+		IdleSession(final CachedSession cachedSession, final long idleSince)
+		{
+			this.cachedSession = cachedSession;
+			this.idleSince = idleSince;
+		}
+	}
+
+	//
+	// Sessions are closed from a daemon thread so that an idle session cannot
+	// keep the build from exiting
+	//
+	private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory()
+	{
+		@Override
+		public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, "vcs-session-cache");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private static VCSGitSessionCache instance;
+	private static ScheduledExecutorService expiryExecutor;
+
+	private final SshSessionFactory delegate;
+	private final long idleTimeout;
+	private final Map<String, Deque<IdleSession>> idleSessions = new HashMap<>();
+	private final Map<CachedSession, String> activeSessions = new IdentityHashMap<>();
+
+	//
+	// Sessions are created by the delegate. The idle timeout is in seconds, a
+	// timeout of zero closes sessions when released (no reuse).
+	//
+	public VCSGitSessionCache(final SshSessionFactory delegate, final long idleTimeout)
+	{
+		this.delegate = delegate;
+		this.idleTimeout = idleTimeout;
+	}
+
+	//
+	// Use the cache for the transport if it is an SSH transport
+	//
+	public static void configure(final Transport transport)
+	{
+		final VCSGitSessionCache cache = getInstance();
+
+		if ((null != cache) && (transport instanceof SshTransport))
+		{
+			((SshTransport) transport).setSshSessionFactory(cache);
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getExpiryExecutor()
+	{
+		if (null == expiryExecutor)
+		{
+			final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+				DAEMON_THREAD_FACTORY);
+			executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			expiryExecutor = executor;
+		}
+
+		return expiryExecutor;
+	}
+
+	//
+	// Return the shared cache, creating sessions with the default JGit session
+	// factory. Null is returned if JGit has no SSH support available.
+	//
+	public static synchronized VCSGitSessionCache getInstance()
+	{
+		if (null == instance)
+		{
+			final SshSessionFactory defaultFactory = SshSessionFactory.getInstance();
+
+			if (null != defaultFactory)
+			{
+				instance = new VCSGitSessionCache(defaultFactory, DEFAULT_IDLE_TIMEOUT);
+			}
+		}
+
+		return instance;
+	}
+
+	static synchronized void setInstance(final VCSGitSessionCache cache)
+	{
+		instance = cache;
+	}
+
+	//
+	// Close every idle session
+	//
+	public void close()
+	{
+		final Deque<RemoteSession> closeSessions = new ArrayDeque<>();
+
+		synchronized (this)
+		{
+			for (final Deque<IdleSession> sessions : idleSessions.values())
+			{
+				for (final IdleSession idleSession : sessions)
+				{
+					closeSessions.add(idleSession.cachedSession.session);
+				}
+			}
+			idleSessions.clear();
+		}
+
+		for (final RemoteSession session : closeSessions)
+		{
+			delegate.releaseSession(session);
+		}
+	}
+
+	//
+	// Close the sessions idle for longer than the timeout
+	//
+	void expire()
+	{
+		final Deque<RemoteSession> closeSessions = new ArrayDeque<>();
+		final long now = System.nanoTime();
+
+		synchronized (this)
+		{
+			final Iterator<Deque<IdleSession>> sessionIter = idleSessions.values().iterator();
+
+			while (sessionIter.hasNext())
+			{
+				final Deque<IdleSession> sessions = sessionIter.next();
+				final Iterator<IdleSession> idleIter = sessions.iterator();
+
+				while (idleIter.hasNext())
+				{
+					final IdleSession idleSession = idleIter.next();
+
+					if (now - idleSession.idleSince >= TimeUnit.SECONDS.toNanos(idleTimeout))
+					{
+						closeSessions.add(idleSession.cachedSession.session);
+						idleIter.remove();
+					}
+				}
+
+				if (sessions.isEmpty())
+				{
+					sessionIter.remove();
+				}
+			}
+		}
+
+		for (final RemoteSession session : closeSessions)
+		{
+			delegate.releaseSession(session);
+		}
+	}
+
+	public synchronized int getIdleCount()
+	{
+		int rVal = 0;
+
+		for (final Deque<IdleSession> sessions : idleSessions.values())
+		{
+			rVal += sessions.size();
+		}
+
+		return rVal;
+	}
+
+	public long getIdleTimeout()
+	{
+		return idleTimeout;
+	}
+
+	//
+	// The credentials are identified by the credentials they supply where known
+	// (see VCSGitImplCredentialsProvider.getIdentity), otherwise by the provider
+	// instance
+	//
+	private String getKey(final URIish uri, final CredentialsProvider credentialsProvider)
+	{
+		String credentials = "none";
+
+		if (credentialsProvider instanceof VCSGitImplCredentialsProvider)
+		{
+			credentials = ((VCSGitImplCredentialsProvider) credentialsProvider).getIdentity();
+		}
+		else if (null != credentialsProvider)
+		{
+			credentials = credentialsProvider.getClass().getName() + "@"
+				+ Integer.toHexString(System.identityHashCode(credentialsProvider));
+		}
+
+		return uri.getUser() + "@" + uri.getHost() + ":" + uri.getPort() + "/" + credentials;
+	}
+
+	//
+	// Return an idle session for the remote, or a new session if none is idle.
+	// Idle sessions known to be closed are dropped.
+	//
+	@Override
+	public RemoteSession getSession(final URIish uri,
+		final CredentialsProvider credentialsProvider,
+		final FS fs,
+		final int tms)
+		throws TransportException
+	{
+		expire();
+
+		final String key = getKey(uri, credentialsProvider);
+		final Deque<RemoteSession> closeSessions = new ArrayDeque<>();
+		CachedSession rVal = null;
+
+		synchronized (this)
+		{
+			final Deque<IdleSession> sessions = idleSessions.get(key);
+
+			while ((null == rVal) && (null != sessions) && !sessions.isEmpty())
+			{
+				final CachedSession cachedSession = sessions.removeLast().cachedSession;
+
+				if (isConnected(cachedSession.session))
+				{
+					cachedSession.reuse(uri, credentialsProvider, fs, tms);
+					activeSessions.put(cachedSession, key);
+					rVal = cachedSession;
+				}
+				else
+				{
+					closeSessions.add(cachedSession.session);
+				}
+			}
+		}
+
+		for (final RemoteSession session : closeSessions)
+		{
+			delegate.releaseSession(session);
+		}
+
+		if (null == rVal)
+		{
+			//
+			// Connect outside the lock so a slow connection does not hold up other
+			// remotes
+			//
+			rVal = new CachedSession(delegate.getSession(uri, credentialsProvider, fs, tms), uri,
+				credentialsProvider, fs, tms);
+
+			synchronized (this)
+			{
+				activeSessions.put(rVal, key);
+			}
+		}
+
+		return rVal;
+	}
+
+	public String getType()
+	{
+		return "cached";
+	}
+
+	//
+	// Return false if the session is known to be closed. Only JSch sessions
+	// report their state, other sessions are found to be closed when used (see
+	// CachedSession.exec).
+	//
+	private boolean isConnected(final RemoteSession session)
+	{
+		return !(session instanceof JschSession)
+			|| ((JschSession) session).getSession().isConnected();
+	}
+
+	//
+	// Keep the session open for reuse rather than closing it
+	//
+	@Override
+	public void releaseSession(final RemoteSession session)
+	{
+		boolean keep = false;
+
+		synchronized (this)
+		{
+			final String key = activeSessions.remove(session);
+
+			if ((null != key) && (idleTimeout > 0))
+			{
+				Deque<IdleSession> sessions = idleSessions.get(key);
+
+				if (null == sessions)
+				{
+					sessions = new ArrayDeque<>();
+					idleSessions.put(key, sessions);
+				}
+				sessions.addLast(new IdleSession((CachedSession) session, System.nanoTime()));
+				keep = true;
+			}
+		}
+
+		if (keep)
+		{
+			getExpiryExecutor().schedule(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					expire();
+				}
+			}, idleTimeout, TimeUnit.SECONDS);
+		}
+		else if (session instanceof CachedSession)
+		{
+			delegate.releaseSession(((CachedSession) session).session);
+		}
+		else
+		{
+			delegate.releaseSession(session);
+		}
+	}
+}
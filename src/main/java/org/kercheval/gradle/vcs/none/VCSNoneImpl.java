@@ -2,6 +2,7 @@ package org.kercheval.gradle.vcs.none;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.gradle.api.logging.Logger;
@@ -9,6 +10,7 @@ import org.kercheval.gradle.info.SortedProperties;
 import org.kercheval.gradle.vcs.VCSAccess;
 import org.kercheval.gradle.vcs.VCSException;
 import org.kercheval.gradle.vcs.VCSInfoSource;
+import org.kercheval.gradle.vcs.VCSRefTransaction;
 import org.kercheval.gradle.vcs.VCSStatus;
 import org.kercheval.gradle.vcs.VCSTag;
 
@@ -20,6 +22,15 @@ public class VCSNoneImpl
 		super(srcRootDir, logger);
 	}
 
+	@Override
+	public boolean compareAndSetTagRef(final String refName, final String expectedTagName,
+		final String tagName)
+		throws VCSException
+	{
+		throw new VCSException("Unable to update reference " + refName,
+			new IllegalStateException("No VCS associated with this build"));
+	}
+
 	@Override
 	public void createBranch(final String branchName, final String remoteOrigin,
 		final boolean ignoreOrigin)
@@ -29,6 +40,15 @@ public class VCSNoneImpl
 			"No VCS associated with this build"));
 	}
 
+	@Override
+	public void createBranches(final List<String> branchNames, final String remoteOrigin,
+		final boolean ignoreOrigin)
+		throws VCSException
+	{
+		throw new VCSException("Unable to create branches " + branchNames,
+			new IllegalStateException("No VCS associated with this build"));
+	}
+
 	@Override
 	public void createTag(final VCSTag tag)
 		throws VCSException
@@ -37,6 +57,14 @@ public class VCSNoneImpl
 			"No VCS associated with this build"));
 	}
 
+	@Override
+	public boolean createTagIfAbsent(final VCSTag tag)
+		throws VCSException
+	{
+		throw new VCSException("Unable to create tag " + tag, new IllegalStateException(
+			"No VCS associated with this build"));
+	}
+
 	@Override
 	public void fetch(final String remoteOrigin)
 		throws VCSException
@@ -45,6 +73,15 @@ public class VCSNoneImpl
 			new IllegalStateException("No VCS associated with this build"));
 	}
 
+	@Override
+	public void fetch(final String remoteOrigin, final List<String> branchNames,
+		final String tagPrefix)
+		throws VCSException
+	{
+		throw new VCSException("Unable to fetch from origin: " + remoteOrigin,
+			new IllegalStateException("No VCS associated with this build"));
+	}
+
 	@Override
 	public String getBranchName()
 		throws VCSException
@@ -53,6 +90,14 @@ public class VCSNoneImpl
 			new IllegalStateException("No VCS associated with this build"));
 	}
 
+	@Override
+	public int getCommitDistance(final String tagName)
+		throws VCSException
+	{
+		throw new VCSException("Unable to get commit distance from tag " + tagName,
+			new IllegalStateException("No VCS associated with this build"));
+	}
+
 	@Override
 	public String getDescription()
 	{
@@ -65,6 +110,20 @@ public class VCSNoneImpl
 		return new SortedProperties();
 	}
 
+	@Override
+	public String getRefFingerprint()
+		throws VCSException
+	{
+		return null;
+	}
+
+	@Override
+	public List<VCSTag> getRemoteTags(final String remoteOrigin, final String regexFilter)
+		throws VCSException
+	{
+		return new ArrayList<>();
+	}
+
 	@Override
 	public VCSStatus getStatus()
 		throws VCSException
@@ -72,6 +131,41 @@ public class VCSNoneImpl
 		return new VCSStatus();
 	}
 
+	@Override
+	public String getStoredValue(final String name)
+		throws VCSException
+	{
+		return null;
+	}
+
+	@Override
+	public Date getTagDate(final String objectId)
+		throws VCSException
+	{
+		return null;
+	}
+
+	@Override
+	public List<String> getTagNames(final String regexFilter)
+		throws VCSException
+	{
+		return new ArrayList<>();
+	}
+
+	@Override
+	public String getTagRef(final String refName)
+		throws VCSException
+	{
+		return null;
+	}
+
+	@Override
+	public String getTagStamp()
+		throws VCSException
+	{
+		return null;
+	}
+
 	@Override
 	public List<VCSTag> getTags(final String regexFilter)
 		throws VCSException
@@ -91,6 +185,13 @@ public class VCSNoneImpl
 		return false;
 	}
 
+	@Override
+	public boolean isClean()
+		throws VCSException
+	{
+		return true;
+	}
+
 	@Override
 	public void merge(final String fromBranch, final String remoteOrigin,
 		final boolean fastForwardOnly)
@@ -109,4 +210,27 @@ public class VCSNoneImpl
 			new IllegalStateException("No VCS associated with this build"));
 	}
 
+	@Override
+	public void pushRefs(final List<String> refNames, final String remoteOrigin)
+		throws VCSException
+	{
+		throw new VCSException("Unable to push " + refNames + " to " + remoteOrigin,
+			new IllegalStateException("No VCS associated with this build"));
+	}
+
+	@Override
+	public void setStoredValue(final String name, final String value)
+		throws VCSException
+	{
+		throw new VCSException("Unable to store value " + name, new IllegalStateException(
+			"No VCS associated with this build"));
+	}
+
+	@Override
+	public void updateRefs(final VCSRefTransaction transaction)
+		throws VCSException
+	{
+		throw new VCSException("Unable to update references " + transaction,
+			new IllegalStateException("No VCS associated with this build"));
+	}
 }
@@ -1,6 +1,7 @@
 package org.kercheval.gradle.buildinfo;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.util.*;
 
 import org.gradle.api.*;
@@ -88,8 +89,20 @@ public class BuildInfoPluginTest {
         //
         Assert.assertEquals("GIT", props.getProperty("vcs.type"));
 
+        //
+        // Content that differs only in the creation date and machine time is not
+        // rewritten, even though the file is not reproducible
+        //
+        final byte[] firstContent = Files.readAllBytes(outputFile.toPath());
+
+        Assert.assertTrue(outputFile.setLastModified(0));
+        task.doTask();
+        Assert.assertArrayEquals(firstContent, Files.readAllBytes(outputFile.toPath()));
+        Assert.assertEquals(0, outputFile.lastModified());
+
         task.setShowgradleinfo(false);
         task.doTask();
+        Assert.assertNotEquals(0, outputFile.lastModified());
         props = new Properties();
         props.load(new FileInputStream(outputFile));
 
@@ -122,6 +135,48 @@ public class BuildInfoPluginTest {
         Assert.assertFalse(props.containsKey("gradle.rootdir"));
     }
 
+    @Test
+    public void testReproducibleBuildInfoTask() throws FileNotFoundException, IOException {
+        final Project project =
+                ProjectBuilder.builder().withProjectDir(new File(JUNIT_FILE_LOCATION)).build();
+        final BuildInfoTask task = getTask(project);
+        final File outputFile = new File(JUNIT_FILE_NAME);
+        final File volatileFile =
+                new File(JUNIT_FILE_LOCATION + "/build/" + BuildInfoTask.DEFAULT_VOLATILEFILENAME);
+
+        Assert.assertFalse(task.isReproducible());
+        task.setReproducible(true);
+        task.doTask();
+        Assert.assertTrue(outputFile.exists());
+        Assert.assertTrue(volatileFile.exists());
+
+        final byte[] firstContent = Files.readAllBytes(outputFile.toPath());
+
+        Properties props = new Properties();
+        props.load(new FileInputStream(outputFile));
+        Assert.assertTrue(props.containsKey("machine.hostname"));
+        Assert.assertFalse(props.containsKey("machine.time"));
+        props = new Properties();
+        props.load(new FileInputStream(volatileFile));
+        Assert.assertTrue(props.containsKey("machine.time"));
+
+        //
+        // A second run on the same machine and commit must produce identical content
+        // and must not rewrite the file
+        //
+        Assert.assertTrue(outputFile.setLastModified(0));
+        task.doTask();
+        Assert.assertArrayEquals(firstContent, Files.readAllBytes(outputFile.toPath()));
+        Assert.assertEquals(0, outputFile.lastModified());
+
+        //
+        // Changed content is written
+        //
+        task.setShowgradleinfo(false);
+        task.doTask();
+        Assert.assertNotEquals(0, outputFile.lastModified());
+    }
+
     @Test
     public void testSetDefaultVariables() throws IOException {
         final Project project =
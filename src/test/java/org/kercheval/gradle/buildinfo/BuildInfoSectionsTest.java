@@ -0,0 +1,145 @@
+package org.kercheval.gradle.buildinfo;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.*;
+import org.kercheval.gradle.info.*;
+
+public class BuildInfoSectionsTest {
+    //
+    // A source that counts the number of times its information is collected
+    //
+    private static class CountingInfoSource implements InfoSource {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public String getDescription() {
+            return "Counting info source";
+        }
+
+        @Override
+        public SortedProperties getInfo() {
+            final SortedProperties props = new SortedProperties();
+            props.addProperty(getPropertyPrefix() + ".count", count.incrementAndGet());
+            return props;
+        }
+
+        @Override
+        public String getPropertyPrefix() {
+            return "counting";
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+    }
+
+    //
+    // A counting source whose first call blocks until released
+    //
+    private static class BlockingInfoSource extends CountingInfoSource {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public SortedProperties getInfo() {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    // Cancelled by the collector, finish the call
+                }
+            }
+            return super.getInfo();
+        }
+
+        @Override
+        public String getPropertyPrefix() {
+            return "blocking";
+        }
+    }
+
+    @Test
+    public void testUnavailableSectionNotShared() throws InterruptedException {
+        final Project rootProject = ProjectBuilder.builder().build();
+        final Project subProject =
+                ProjectBuilder.builder().withName("sub").withParent(rootProject).build();
+        final BlockingInfoSource source = new BlockingInfoSource();
+        final List<InfoSource> sourceList = Arrays.<InfoSource> asList(source);
+
+        //
+        // The first project gives up on the source and reports it unavailable
+        //
+        final SortedProperties rootProps = BuildInfoSections.getInstance(rootProject)
+            .collect(sourceList, rootProject.getLogger(), 10).get(source);
+
+        Assert.assertTrue(InfoSourceCollector.isUnavailable(source, rootProps));
+        source.release.countDown();
+
+        //
+        // Later projects collect the source again once the blocked call is done
+        // (the collector reports it unavailable until its thread lets go of it)
+        //
+        SortedProperties subProps = null;
+        for (int i = 0; i < 1000; i++) {
+            subProps = BuildInfoSections.getInstance(subProject)
+                .collect(sourceList, subProject.getLogger(), 5000).get(source);
+            if (!InfoSourceCollector.isUnavailable(source, subProps)) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+
+        Assert.assertFalse(InfoSourceCollector.isUnavailable(source, subProps));
+        Assert.assertEquals("2", subProps.getProperty("blocking.count"));
+
+        //
+        // The completed section is then shared
+        //
+        Assert.assertEquals("2", BuildInfoSections.getInstance(rootProject)
+            .collect(sourceList, rootProject.getLogger(), 5000).get(source)
+            .getProperty("blocking.count"));
+        Assert.assertEquals(2, ((CountingInfoSource) source).count.get());
+    }
+
+    @Test
+    public void testSectionsSharedAcrossProjects() {
+        final Project rootProject = ProjectBuilder.builder().build();
+        final Project subProject =
+                ProjectBuilder.builder().withName("sub").withParent(rootProject).build();
+        final BuildInfoSections sections = BuildInfoSections.getInstance(rootProject);
+
+        Assert.assertSame(sections, BuildInfoSections.getInstance(subProject));
+        Assert.assertNotSame(sections,
+            BuildInfoSections.getInstance(ProjectBuilder.builder().build()));
+
+        final CountingInfoSource rootSource = new CountingInfoSource();
+        final CountingInfoSource subSource = new CountingInfoSource();
+        final List<InfoSource> rootList = Arrays.<InfoSource> asList(rootSource);
+        final List<InfoSource> subList = Arrays.<InfoSource> asList(subSource);
+
+        final Map<InfoSource, SortedProperties> rootInfo =
+                sections.collect(rootList, rootProject.getLogger(), 5000);
+        final Map<InfoSource, SortedProperties> subInfo = BuildInfoSections
+            .getInstance(subProject).collect(subList, subProject.getLogger(), 5000);
+
+        //
+        // The section is collected once and shared by prefix
+        //
+        Assert.assertEquals("1", rootInfo.get(rootSource).getProperty("counting.count"));
+        Assert.assertEquals("1", subInfo.get(subSource).getProperty("counting.count"));
+        Assert.assertEquals(0, subSource.count.get());
+
+        //
+        // Callers get their own copy of the properties
+        //
+        rootInfo.get(rootSource).remove("counting.count");
+        Assert.assertEquals("1", sections.collect(rootList, rootProject.getLogger(), 5000)
+            .get(rootSource).getProperty("counting.count"));
+    }
+}
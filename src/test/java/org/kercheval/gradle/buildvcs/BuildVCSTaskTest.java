@@ -14,6 +14,31 @@ import org.kercheval.gradle.vcs.git.JGitTestRepository;
 
 public class BuildVCSTaskTest {
 
+    @Test
+    public void testLocktimeout() {
+        final Project project = ProjectBuilder.builder().build();
+
+        project.apply(new LinkedHashMap<String, Class<BuildVCSPlugin>>() {
+            {
+                put("plugin", GradleCMPlugin.BUILD_VCS_PLUGIN);
+            }
+        });
+        final BuildVCSTask task =
+                (BuildVCSTask) new GradleInfoSource(project).getTask(BuildVCSPlugin.VCS_TASK_NAME);
+
+        Assert.assertEquals(VCSRepositoryLock.DEFAULT_TIMEOUT, task.getLocktimeout());
+
+        task.setLocktimeout(0);
+        Assert.assertEquals(0, task.getLocktimeout());
+
+        try {
+            task.setLocktimeout(-1);
+            Assert.fail("Expected Exception");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testGetType() throws InvalidRemoteException, TransportException, IOException,
             GitAPIException, VCSException {
@@ -0,0 +1,48 @@
+package org.kercheval.gradle.buildversion;
+
+import java.io.File;
+
+import org.junit.*;
+
+public class BuildVersionCacheTest {
+
+    @Test
+    public void testKey() {
+        final File dir = new File("FooBlah");
+        final VersionFormat format = VersionFormat.get("%M%.%m%", null, false);
+        final String key = BuildVersionCache.getKey(dir, "abc", format, "date", true);
+
+        Assert.assertNull(BuildVersionCache.getKey(dir, null, format, "date", true));
+        Assert.assertEquals(key, BuildVersionCache.getKey(dir, "abc", format, "date", true));
+        Assert.assertFalse(key.equals(BuildVersionCache.getKey(dir, "abd", format, "date", true)));
+        Assert.assertFalse(key.equals(BuildVersionCache.getKey(dir, "abc", format, "version",
+            true)));
+        Assert.assertFalse(key.equals(BuildVersionCache.getKey(new File("Other"), "abc", format,
+            "date", true)));
+        Assert.assertFalse(key.equals(BuildVersionCache.getKey(dir, "abc",
+            VersionFormat.get("%M%.%m%.%b%", null, false), "date", true)));
+    }
+
+    @Test
+    public void testEviction() {
+        final File dir = new File("FooBlah");
+        final VersionFormat format = VersionFormat.get("%M%.%m%", null, false);
+        final String firstKey = BuildVersionCache.getKey(dir, "0", format, "date", true);
+
+        BuildVersionCache.clear();
+        BuildVersionCache.put(firstKey, new BuildVersionCache.Resolution("1.0", 3));
+        Assert.assertEquals("1.0", BuildVersionCache.get(firstKey).getTagName());
+        Assert.assertEquals(3, BuildVersionCache.get(firstKey).getCommits());
+
+        for (int i = 1; i <= 1000; i++) {
+            BuildVersionCache.put(BuildVersionCache.getKey(dir, Integer.toString(i), format,
+                "date", true), new BuildVersionCache.Resolution(null,
+                BuildVersionCache.Resolution.NO_COMMITS));
+        }
+
+        Assert.assertNull(BuildVersionCache.get(firstKey));
+        Assert.assertNotNull(BuildVersionCache.get(BuildVersionCache.getKey(dir, "1000",
+            format, "date", true)));
+        BuildVersionCache.clear();
+    }
+}
@@ -0,0 +1,85 @@
+package org.kercheval.gradle.buildversion;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.*;
+
+public class BuildVersionIndexTest {
+
+    private static BuildVersionValue version(final int major, final int minor, final int build) {
+        return new BuildVersion("%M%.%m%.%b%", major, minor, build, new Date(0), false)
+            .getValue();
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        final BuildVersionIndex index =
+                new BuildVersionIndex(Collections.<BuildVersionValue> emptyList());
+
+        Assert.assertEquals(0, index.size());
+        Assert.assertNull(index.getHighest());
+        Assert.assertNull(index.getHighest(1));
+        Assert.assertEquals(0, index.getNextBuild(1, 0));
+        Assert.assertFalse(index.contains(version(1, 0, 0)));
+        Assert.assertFalse(index.contains(1, 0, 0));
+    }
+
+    @Test
+    public void testQueries() {
+        final BuildVersionIndex index = new BuildVersionIndex(Arrays.asList(version(2, 1, 4),
+            version(1, 0, 7), version(3, 0, 0), version(1, 2, 3), version(2, 1, 11),
+            version(2, 0, 30), version(1, 0, 2)));
+
+        Assert.assertEquals(7, index.size());
+        Assert.assertEquals("3.0.0", index.getHighest().toString());
+        Assert.assertEquals("1.2.3", index.getHighest(1).toString());
+        Assert.assertEquals("2.1.11", index.getHighest(2).toString());
+        Assert.assertNull(index.getHighest(0));
+        Assert.assertNull(index.getHighest(4));
+        Assert.assertEquals("1.0.7", index.getHighest(1, 0).toString());
+        Assert.assertNull(index.getHighest(1, 1));
+        Assert.assertEquals(8, index.getNextBuild(1, 0));
+        Assert.assertEquals(12, index.getNextBuild(2, 1));
+        Assert.assertEquals(0, index.getNextBuild(2, 2));
+        Assert.assertTrue(index.contains(version(2, 0, 30)));
+        Assert.assertFalse(index.contains(version(2, 0, 31)));
+        Assert.assertTrue(index.contains(2, 0, 30));
+        Assert.assertFalse(index.contains(2, 0, 31));
+        Assert.assertFalse(index.contains(0, 0, 0));
+    }
+
+    @Test
+    public void testChangedVersion() {
+        final BuildVersion version =
+                new BuildVersion("%M%.%m%.%b%", 1, 0, 5, new Date(0), false);
+        final BuildVersionIndex index = new BuildVersionIndex(Arrays.asList(version(1, 0, 2),
+            version.getValue(), version(1, 0, 9)));
+
+        //
+        // Changing the version does not change the index
+        //
+        version.setBuild(20);
+        Assert.assertEquals("1.0.9", index.getHighest().toString());
+        Assert.assertTrue(index.contains(1, 0, 5));
+        Assert.assertFalse(index.contains(1, 0, 20));
+    }
+
+    @Test
+    public void testDatedVersions() {
+        final String pattern = "%M%.%m%.%b%-%d%";
+        final BuildVersionIndex index = new BuildVersionIndex(Arrays.asList(
+            new BuildVersion(pattern, 1, 0, 3, new Date(0), false).getValue()));
+        final BuildVersionValue current = new BuildVersion(pattern, 1, 0, 3, null, false)
+            .getValue();
+
+        //
+        // A version computed now has a different date than the tagged version,
+        // but the version number is used
+        //
+        Assert.assertFalse(index.contains(current));
+        Assert.assertTrue(index.contains(current.getMajor(), current.getMinor(),
+            current.getBuild()));
+    }
+}
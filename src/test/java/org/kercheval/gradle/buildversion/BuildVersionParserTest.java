@@ -0,0 +1,39 @@
+package org.kercheval.gradle.buildversion;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.*;
+
+public class BuildVersionParserTest {
+
+    @Test
+    public void testParse() {
+        final BuildVersionParser parser =
+                new BuildVersionParser(VersionPattern.compile(BuildVersion.DEFAULT_PATTERN), false);
+        final List<String> candidates = Arrays.asList("1.2-20121101.123456",
+            "1.10-20121001.123456", "notaversion", "1.3-20120901.000000", "0.9-20130101.000000",
+            "99999999999.0-20130101.000000");
+
+        BuildVersionParser.Result result =
+                parser.parse(candidates, BuildVersionParser.SortOrder.VERSION);
+
+        Assert.assertEquals(4, result.getVersions().size());
+        Assert.assertEquals("0.9-20130101.000000", result.getVersions().get(0).toString());
+        Assert.assertEquals("1.2-20121101.123456", result.getVersions().get(1).toString());
+        Assert.assertEquals("1.3-20120901.000000", result.getVersions().get(2).toString());
+        Assert.assertEquals("1.10-20121001.123456", result.getVersions().get(3).toString());
+
+        Assert.assertEquals(2, result.getRejects().size());
+        Assert.assertTrue(result.getRejects().get("notaversion").contains("does not match"));
+        Assert.assertTrue(result.getRejects().containsKey("99999999999.0-20130101.000000"));
+
+        result = parser.parse(candidates, BuildVersionParser.SortOrder.DATE);
+
+        Assert.assertEquals(4, result.getVersions().size());
+        Assert.assertEquals("1.3-20120901.000000", result.getVersions().get(0).toString());
+        Assert.assertEquals("1.10-20121001.123456", result.getVersions().get(1).toString());
+        Assert.assertEquals("1.2-20121101.123456", result.getVersions().get(2).toString());
+        Assert.assertEquals("0.9-20130101.000000", result.getVersions().get(3).toString());
+    }
+}
@@ -0,0 +1,84 @@
+package org.kercheval.gradle.buildversion;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.gradle.api.logging.Logger;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.*;
+import org.kercheval.gradle.vcs.*;
+import org.kercheval.gradle.vcs.git.*;
+
+public class BuildVersionRefTest {
+
+    @Test
+    public void testFormatId() {
+        final VersionFormat format = VersionFormat.get("%M%.%m%", null, false);
+
+        Assert.assertEquals(16, BuildVersionRef.getFormatId(format).length());
+        Assert.assertEquals(BuildVersionRef.getFormatId(format),
+            BuildVersionRef.getFormatId(VersionFormat.get("%M%.%m%", null, true)));
+        Assert.assertFalse(BuildVersionRef.getFormatId(format).equals(
+            BuildVersionRef.getFormatId(VersionFormat.get("%M%.%m%", "1\\.\\d+", false))));
+    }
+
+    @Test
+    public void testUpdate() throws IOException, GitAPIException, ParseException, VCSException {
+        final JGitTestRepository repoUtil = new JGitTestRepository();
+        try {
+            final Logger logger = ProjectBuilder.builder().build().getLogger();
+            final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+            final BuildVersionTagWriter writer = new BuildVersionTagWriter(git, logger);
+            final BuildVersionRef ref =
+                    new BuildVersionRef(git, VersionFormat.get("%M%.%m%", null, false));
+
+            Assert.assertTrue(ref.getRefName().startsWith(BuildVersionRef.REF_PREFIX));
+            Assert.assertNull(ref.getLatestTag());
+            Assert.assertFalse(ref.isCurrent());
+
+            //
+            // The first tag written makes the reference current
+            //
+            writer.write(new BuildVersion("%M%.%m%", "2.0", false), "Test version reference");
+            Assert.assertEquals("2.0", ref.getLatestTag());
+            Assert.assertTrue(ref.isCurrent());
+
+            //
+            // A lower version (such as a backport release) does not move the reference
+            //
+            writer.write(new BuildVersion("%M%.%m%", "1.5", false), "Test version reference");
+            Assert.assertEquals("2.0", ref.getLatestTag());
+
+            writer.write(new BuildVersion("%M%.%m%", "2.1", false), "Test version reference");
+            Assert.assertEquals("2.1", ref.getLatestTag());
+            Assert.assertTrue(ref.isCurrent());
+
+            //
+            // A tag created by other means (or fetched) makes the reference stale until
+            // it is reset from the tags
+            //
+            git.createTag(new VCSTag("2.2", "Test version reference"));
+            Assert.assertNull(ref.getLatestTag());
+            Assert.assertFalse(ref.isCurrent());
+
+            //
+            // A stale reference is reset from the tag names when a tag is written
+            //
+            writer.write(new BuildVersion("%M%.%m%", "2.3", false), "Test version reference");
+            Assert.assertEquals("2.3", ref.getLatestTag());
+
+            //
+            // The reference is not reset if it was moved since the tags were read
+            //
+            git.createTag(new VCSTag("1.6", "Test version reference"));
+            ref.reset("2.1", "1.6", git.getTagStamp());
+            Assert.assertNull(ref.getLatestTag());
+
+            ref.reset("2.3", "2.3", git.getTagStamp());
+            Assert.assertEquals("2.3", ref.getLatestTag());
+        } finally {
+            repoUtil.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.kercheval.gradle.buildversion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.*;
+import org.kercheval.gradle.vcs.*;
+import org.kercheval.gradle.vcs.git.*;
+
+public class BuildVersionRemoteTagsTest {
+
+    private List<String> getTagNames(final List<VCSTag> tags) {
+        final List<String> rVal = new ArrayList<>();
+
+        for (final VCSTag tag : tags) {
+            rVal.add(tag.getName());
+        }
+
+        return rVal;
+    }
+
+    @Test
+    public void testRemoteTags() throws IOException, GitAPIException, VCSException {
+        final JGitTestRepository repoUtil = new JGitTestRepository();
+        try {
+            final VCSAccess git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+            final File cacheDir =
+                    new File(repoUtil.getStandardFile(), BuildVersionTask.REMOTE_TAGS_CACHE_DIR);
+            final Git originGit = new Git(repoUtil.getOriginRepo());
+
+            originGit.tag().setName("3.1-Remote").setMessage("Remote only tag").call();
+            Assert.assertTrue(git.getTags("3\\.1.*").isEmpty());
+
+            //
+            // Tags are listed from the remote and cached
+            //
+            final BuildVersionRemoteTags remoteTags =
+                    new BuildVersionRemoteTags(git, "myOrigin", cacheDir, 60);
+            List<String> tagNames = getTagNames(remoteTags.getTags("3\\..*"));
+
+            Assert.assertTrue(tagNames.contains("3.0-2012110101-123456"));
+            Assert.assertTrue(tagNames.contains("3.1-Remote"));
+            Assert.assertFalse(tagNames.contains("JUNIT_InitialTag"));
+            Assert.assertTrue(remoteTags.getCacheFile().isFile());
+
+            originGit.tag().setName("3.2-Remote").setMessage("Remote only tag").call();
+            Assert.assertFalse(getTagNames(remoteTags.getTags("3\\..*")).contains("3.2-Remote"));
+            Assert.assertFalse(getTagNames(
+                    new BuildVersionRemoteTags(git, "myOrigin", cacheDir, 60).getTags("3\\..*"))
+                    .contains("3.2-Remote"));
+
+            //
+            // Without a time to live the remote is listed every time
+            //
+            final BuildVersionRemoteTags uncachedTags =
+                    new BuildVersionRemoteTags(git, "myOrigin", cacheDir, 0);
+            tagNames = getTagNames(uncachedTags.getTags("3\\..*"));
+            Assert.assertTrue(tagNames.contains("3.2-Remote"));
+
+            //
+            // Dates are known for the tags with objects in the workspace
+            //
+            for (final VCSTag tag : uncachedTags.getTags("3\\..*")) {
+                if (tag.getName().equals("3.0-2012110101-123456")) {
+                    Assert.assertNotNull(uncachedTags.getDate(tag));
+                } else {
+                    Assert.assertNull(uncachedTags.getDate(tag));
+                }
+            }
+        } finally {
+            repoUtil.close();
+        }
+    }
+}
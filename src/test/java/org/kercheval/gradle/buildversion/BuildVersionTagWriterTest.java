@@ -0,0 +1,201 @@
+package org.kercheval.gradle.buildversion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.gradle.api.logging.Logger;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.*;
+import org.kercheval.gradle.vcs.*;
+import org.kercheval.gradle.vcs.git.*;
+
+public class BuildVersionTagWriterTest {
+
+    @Test
+    public void testCollision() throws IOException, GitAPIException, VCSException {
+        final JGitTestRepository repoUtil = new JGitTestRepository();
+        try {
+            final Logger logger = ProjectBuilder.builder().build().getLogger();
+            final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+            final BuildVersionTagWriter writer = new BuildVersionTagWriter(git, logger);
+
+            git.createTag(new VCSTag("1.2.3", "Existing tag"));
+            git.createTag(new VCSTag("1.2.7", "Existing tag"));
+
+            //
+            // The version is moved past the tags when the next version is written
+            //
+            final BuildVersion version = new BuildVersion("%M%.%m%.%b%", 1, 2, 3, null, false);
+
+            Assert.assertEquals("1.2.8", writer.writeNext(version, "Test tag"));
+            Assert.assertEquals("1.2.8", version.toString());
+            Assert.assertEquals(1, git.getTags("1\\.2\\.8").size());
+
+            final BuildVersion minorVersion = new BuildVersion("%M%.%m%", 1, 2, 0, null, false);
+
+            git.createTag(new VCSTag("1.2", "Existing tag"));
+            Assert.assertEquals("1.3", writer.writeNext(minorVersion, "Test tag"));
+
+            //
+            // A written version is not moved, writing an existing tag fails
+            //
+            try {
+                writer.write(new BuildVersion("%M%.%m%.%b%", 1, 2, 3, null, false), "Test tag");
+                Assert.fail("Expected VCSException");
+            } catch (final VCSException e) {
+                // Expected
+            }
+        } finally {
+            repoUtil.close();
+        }
+    }
+
+    @Test
+    public void testCollisionDefaultPattern() throws IOException, GitAPIException, VCSException {
+        final JGitTestRepository repoUtil = new JGitTestRepository();
+        try {
+            final Logger logger = ProjectBuilder.builder().build().getLogger();
+            final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+            final BuildVersionTagWriter writer = new BuildVersionTagWriter(git, logger);
+            final Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+            calendar.clear();
+            calendar.set(2020, Calendar.JANUARY, 2, 3, 4, 5);
+            git.createTag(new VCSTag("1.2-20200101.000000", "Earlier release"));
+
+            //
+            // An earlier release of the same major and minor version is not a
+            // collision when the pattern has no build number
+            //
+            final BuildVersion version =
+                    new BuildVersion(BuildVersion.DEFAULT_PATTERN, 1, 2, 0, calendar.getTime(), false);
+
+            Assert.assertEquals("1.2-20200102.030405", writer.writeNext(version, "Test tag"));
+
+            //
+            // A tag of the same name is, the version keeps its major and minor
+            // version and takes the current date
+            //
+            final BuildVersion sameVersion =
+                    new BuildVersion(BuildVersion.DEFAULT_PATTERN, 1, 2, 0, calendar.getTime(), false);
+            final String tagName = writer.writeNext(sameVersion, "Test tag");
+
+            Assert.assertNotEquals("1.2-20200102.030405", tagName);
+            Assert.assertTrue(tagName.startsWith("1.2-"));
+            Assert.assertEquals(tagName, sameVersion.toString());
+        } finally {
+            repoUtil.close();
+        }
+    }
+
+    //
+    // Moves the version reference between two tags before each of the first
+    // transactions is applied, as another build would
+    //
+    private static class ConcurrentRefVCS extends VCSGitImpl {
+        private final String refName;
+        private int moves;
+
+        ConcurrentRefVCS(final File srcRootDir, final String refName, final int moves) {
+            super(srcRootDir, null);
+            this.refName = refName;
+            this.moves = moves;
+        }
+
+        @Override
+        public void updateRefs(final VCSRefTransaction transaction) throws VCSException {
+            if (moves > 0) {
+                moves--;
+                final String currentTagName = getTagRef(refName);
+                compareAndSetTagRef(refName, currentTagName,
+                    "1.0.1".equals(currentTagName) ? "1.0.0" : "1.0.1");
+            }
+            super.updateRefs(transaction);
+        }
+    }
+
+    @Test
+    public void testConcurrentRefMove() throws IOException, GitAPIException, VCSException {
+        final JGitTestRepository repoUtil = new JGitTestRepository();
+        try {
+            final Logger logger = ProjectBuilder.builder().build().getLogger();
+            final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+            final BuildVersionRef versionRef =
+                    new BuildVersionRef(git, new BuildVersion("%M%.%m%.%b%", 1, 0, 0, null, false)
+                        .getVersionFormat());
+
+            new BuildVersionTagWriter(git, logger).write(
+                new BuildVersion("%M%.%m%.%b%", 1, 0, 0, null, false), "Test tag");
+            new BuildVersionTagWriter(git, logger).write(
+                new BuildVersion("%M%.%m%.%b%", 1, 0, 1, null, false), "Test tag");
+            Assert.assertEquals("1.0.1", versionRef.getLatestTag());
+
+            //
+            // The transaction fails as a whole when the reference moves, so neither
+            // the tag nor the reference is written
+            //
+            try {
+                new BuildVersionTagWriter(new ConcurrentRefVCS(repoUtil.getOriginFile(),
+                    versionRef.getRefName(), BuildVersionTagWriter.UPDATE_ATTEMPTS), logger)
+                    .write(new BuildVersion("%M%.%m%.%b%", 1, 0, 2, null, false), "Test tag");
+                Assert.fail("Expected VCSException");
+            } catch (final VCSException e) {
+                // Expected
+            }
+            Assert.assertTrue(git.getTags("1\\.0\\.2").isEmpty());
+            Assert.assertNotEquals("1.0.2", git.getTagRef(versionRef.getRefName()));
+
+            //
+            // The transaction is tried again when the reference moved
+            //
+            Assert.assertEquals("1.0.2", new BuildVersionTagWriter(new ConcurrentRefVCS(
+                repoUtil.getOriginFile(), versionRef.getRefName(), 1), logger).write(
+                new BuildVersion("%M%.%m%.%b%", 1, 0, 2, null, false), "Test tag"));
+            Assert.assertEquals("1.0.2", versionRef.getLatestTag());
+        } finally {
+            repoUtil.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        final JGitTestRepository repoUtil = new JGitTestRepository();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Logger logger = ProjectBuilder.builder().build().getLogger();
+            final List<Future<String>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+                        final BuildVersionTagWriter writer = new BuildVersionTagWriter(git, logger);
+                        final BuildVersion version =
+                                new BuildVersion("%M%.%m%.%b%", 3, 0, 1, null, false);
+
+                        return writer.writeNext(version, "Test tag");
+                    }
+                }));
+            }
+
+            //
+            // Each build tags a different version
+            //
+            final Set<String> tagNames = new HashSet<>();
+
+            for (final Future<String> future : futures) {
+                tagNames.add(future.get());
+            }
+
+            Assert.assertEquals(3, tagNames.size());
+            Assert.assertTrue(tagNames.contains("3.0.1"));
+        } finally {
+            executor.shutdown();
+            repoUtil.close();
+        }
+    }
+}
@@ -3,12 +3,16 @@ package org.kercheval.gradle.buildversion;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.TimeZone;
 
+import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.gradle.api.Project;
 import org.gradle.api.tasks.TaskExecutionException;
 import org.gradle.testfixtures.ProjectBuilder;
@@ -127,6 +131,122 @@ public class BuildVersionTaskTest
 		}
 	}
 
+	@Test
+	public void testBuildVersionTaskTagSelection()
+		throws ParseException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			//
+			// Tag a lower version on a later commit (a backport release)
+			//
+			final Git originGit = new Git(repoUtil.getOriginRepo());
+			repoUtil.writeRandomContentFile(new File(repoUtil.getOriginFile().getAbsolutePath()
+				+ "/BackportFile.txt"));
+			originGit.add().addFilepattern(".").call();
+			originGit
+				.commit()
+				.setCommitter(
+					new PersonIdent("JUNIT", "JUNIT@dev.build", new Date(
+						System.currentTimeMillis() + 60000), TimeZone.getDefault()))
+				.setMessage("Backport commit").call();
+			originGit.tag().setName("2.5-20130101-000000").setMessage("Backport tag").call();
+
+			final Project project = ProjectBuilder.builder()
+				.withProjectDir(repoUtil.getOriginFile()).build();
+			applyBuildVersionPlugin(project);
+			final GradleInfoSource gradleUtil = new GradleInfoSource(project);
+			final BuildVersionTask task = (BuildVersionTask) gradleUtil
+				.getTask(BuildVersionPlugin.VERSION_TASK_NAME);
+
+			Assert.assertEquals(BuildVersionTask.DEFAULT_TAGSELECTION, task.getTagselection());
+			task.setAutoincrement(false);
+			task.setVersion(new BuildVersion("%M%.%m%-%d%-%t%", null, false));
+			task.doTask();
+			Assert.assertEquals(2, ((BuildVersion) project.getVersion()).getMajor());
+			Assert.assertEquals(5, ((BuildVersion) project.getVersion()).getMinor());
+
+			task.setTagselection(BuildVersionTask.SELECTION_VERSION);
+			task.doTask();
+			Assert.assertEquals(3, ((BuildVersion) project.getVersion()).getMajor());
+			Assert.assertEquals(0, ((BuildVersion) project.getVersion()).getMinor());
+			Assert.assertEquals("%M%.%m%-%d%-%t%", ((BuildVersion) project.getVersion())
+				.getPattern());
+
+			try
+			{
+				task.setTagselection("newest");
+				Assert.fail();
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testBuildVersionTaskRemoteTags()
+		throws ParseException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			//
+			// The origin has a higher version than the workspace has fetched
+			//
+			new Git(repoUtil.getOriginRepo()).tag().setName("3.4-20130101-000000")
+				.setMessage("Remote version tag").call();
+
+			final Project project = ProjectBuilder.builder()
+				.withProjectDir(repoUtil.getStandardFile()).build();
+			applyBuildVersionPlugin(project);
+			final BuildVersionTask task = (BuildVersionTask) new GradleInfoSource(project)
+				.getTask(BuildVersionPlugin.VERSION_TASK_NAME);
+
+			Assert.assertNull(task.getRemotetags());
+			Assert.assertEquals(BuildVersionRemoteTags.DEFAULT_TTL, task.getRemotetagsttl());
+			task.setAutoincrement(false);
+			task.setVersion(new BuildVersion("%M%.%m%-%d%-%t%", null, false));
+			task.setTagselection(BuildVersionTask.SELECTION_VERSION);
+			task.doTask();
+			Assert.assertEquals(0, ((BuildVersion) project.getVersion()).getMinor());
+
+			task.setRemotetags("myOrigin");
+			task.doTask();
+			Assert.assertEquals(3, ((BuildVersion) project.getVersion()).getMajor());
+			Assert.assertEquals(4, ((BuildVersion) project.getVersion()).getMinor());
+
+			//
+			// Only the dates of tags in the workspace are known
+			//
+			task.setTagselection(BuildVersionTask.SELECTION_DATE);
+			task.doTask();
+			Assert.assertEquals(0, ((BuildVersion) project.getVersion()).getMinor());
+
+			try
+			{
+				task.setRemotetagsttl(-1);
+				Assert.fail();
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	private void validateVersionTag(final JGitTestRepository repoUtil, final Project project)
 		throws VCSException
 	{
@@ -60,7 +60,13 @@ public class BuildVersionTest {
         final Date now = new Date();
 
         verify = new BuildVersion("", 0, 0, 0, now, false);
-        Assert.assertSame(now, verify.getBuildDate());
+        Assert.assertEquals(now, verify.getBuildDate());
+
+        //
+        // The date returned is a copy
+        //
+        verify.getBuildDate().setTime(0);
+        Assert.assertEquals(now, verify.getBuildDate());
     }
 
     private void testDuplicateVariablePattern(final char c) {
@@ -261,6 +267,72 @@ public class BuildVersionTest {
         Assert.assertEquals("ThisIsATest", verify.toString());
     }
 
+    @Test
+    public void testOrdering() {
+        final BuildVersion v1 = new BuildVersion("%M%.%m%.%b%-%d%.%t%", 1, 2, 3, new Date(1000), false);
+        final BuildVersion v2 = new BuildVersion("%M%.%m%.%b%-%d%.%t%", 1, 2, 3, new Date(1000), false);
+        final BuildVersion v3 = new BuildVersion("%M%.%m%.%b%-%d%.%t%", 1, 2, 4, new Date(0), false);
+        final BuildVersion v4 = new BuildVersion("%M%.%m%.%b%-%d%.%t%", 1, 3, 0, new Date(0), false);
+
+        Assert.assertEquals(v1, v2);
+        Assert.assertEquals(v1.hashCode(), v2.hashCode());
+        Assert.assertEquals(0, v1.compareTo(v2));
+        Assert.assertTrue(v1.compareTo(v3) < 0);
+        Assert.assertTrue(v3.compareTo(v4) < 0);
+        Assert.assertTrue(v4.compareTo(v1) > 0);
+        Assert.assertTrue(v1.getOrderingKey() > 0);
+        Assert.assertTrue(v1.getOrderingKey() < v3.getOrderingKey());
+
+        //
+        // Milliseconds are not in the key but still order the versions
+        //
+        v2.setBuildDate(new Date(1001));
+        Assert.assertEquals(v1.getOrderingKey(), v2.getOrderingKey());
+        Assert.assertTrue(v1.compareTo(v2) < 0);
+        Assert.assertNotEquals(v1, v2);
+
+        //
+        // Values too large for the key fall back to comparing fields
+        //
+        final BuildVersion large = new BuildVersion("%M%.%m%.%b%-%d%.%t%", 1, 2, 100000, new Date(0), false);
+
+        Assert.assertEquals(BuildVersion.NO_ORDERING_KEY, large.getOrderingKey());
+        Assert.assertTrue(large.compareTo(v3) > 0);
+        Assert.assertTrue(large.compareTo(v4) < 0);
+        large.setBuild(5);
+        Assert.assertTrue(large.getOrderingKey() > v3.getOrderingKey());
+
+        //
+        // The date is not part of the order if the pattern does not use it
+        //
+        final BuildVersion noDate1 = new BuildVersion("%M%.%b%", 1, 0, 1, new Date(0), false);
+        final BuildVersion noDate2 = new BuildVersion("%M%.%b%", 1, 0, 1, new Date(5000), false);
+
+        Assert.assertEquals(noDate1, noDate2);
+        Assert.assertEquals(noDate1.hashCode(), noDate2.hashCode());
+    }
+
+    @Test
+    public void testToStringCached() {
+        final BuildVersion verify = new BuildVersion("%M%.%m%.%b%-%d%", 1, 2, 3, new Date(0), false);
+        final String versionString = verify.toString();
+
+        Assert.assertEquals("1.2.3-19700101", versionString);
+        Assert.assertSame(versionString, verify.toString());
+        verify.setMajor(4);
+        Assert.assertEquals("4.2.3-19700101", verify.toString());
+        verify.setMinor(5);
+        Assert.assertEquals("4.5.3-19700101", verify.toString());
+        verify.setBuild(6);
+        Assert.assertEquals("4.5.6-19700101", verify.toString());
+        verify.setBuildDate(new Date(86400000L));
+        Assert.assertEquals("4.5.6-19700102", verify.toString());
+        verify.incrementBuild();
+        Assert.assertTrue(verify.toString().startsWith("4.5.7-"));
+        verify.setPattern("%M%");
+        Assert.assertEquals("4", verify.toString());
+    }
+
     @Test
     public void testUpdateMajor() {
         final BuildVersion verify = testValidPattern(BuildVersion.DEFAULT_PATTERN);
@@ -356,6 +428,6 @@ public class BuildVersionTest {
 
         Assert.assertNotSame(now, verify.getBuildDate());
         verify.setBuildDate(now);
-        Assert.assertSame(now, verify.getBuildDate());
+        Assert.assertEquals(now, verify.getBuildDate());
     }
 }
@@ -0,0 +1,88 @@
+package org.kercheval.gradle.buildversion;
+
+import java.time.Instant;
+
+import org.junit.*;
+
+public class BuildVersionValueTest {
+
+    @Test
+    public void testBuilder() {
+        final VersionFormat format = VersionFormat.get("%M%.%m%.%b%-%d%.%t%", null, false);
+        final BuildVersionValue value = BuildVersionValue.builder(format).setMajor(1).setMinor(2)
+            .setBuild(3).setBuildInstant(Instant.ofEpochSecond(1351773296L)).build();
+
+        Assert.assertEquals("1.2.3-20121101.123456", value.toString());
+        Assert.assertSame(value.toString(), value.toString());
+
+        final BuildVersionValue incremented = value.toBuilder().incrementVersion().build();
+
+        Assert.assertEquals(4, incremented.getBuild());
+        Assert.assertTrue(incremented.getBuildInstant().isAfter(value.getBuildInstant()));
+        Assert.assertTrue(incremented.compareTo(value) > 0);
+        Assert.assertEquals("1.2.3-20121101.123456", value.toString());
+
+        final BuildVersionValue major = value.toBuilder().incrementMajor().build();
+
+        Assert.assertEquals(2, major.getMajor());
+        Assert.assertEquals(0, major.getMinor());
+        Assert.assertEquals(major, major.toBuilder().updateMajor(2).build());
+        Assert.assertEquals(0, value.toBuilder().updateMajor(5).build().getMinor());
+    }
+
+    @Test
+    public void testCommits() {
+        final VersionFormat format = VersionFormat.get("%M%.%m%.%c%", null, false);
+        final BuildVersionValue value = BuildVersionValue.builder(format).setMajor(1).setMinor(2)
+            .setCommits(5).build();
+        final BuildVersionValue later = value.toBuilder().setCommits(12).build();
+
+        Assert.assertEquals("1.2.5", value.toString());
+        Assert.assertEquals("1.2.12", later.toString());
+        Assert.assertEquals(BuildVersionValue.NO_ORDERING_KEY, value.getOrderingKey());
+        Assert.assertTrue(later.compareTo(value) > 0);
+        Assert.assertTrue(value.toBuilder().setMinor(3).setCommits(0).build().compareTo(later) > 0);
+        Assert.assertEquals(12, later.toBuilder().incrementVersion().build().getCommits());
+    }
+
+    @Test
+    public void testEquals() {
+        final VersionFormat format = VersionFormat.get("%M%.%m%.%b%", null, false);
+        final BuildVersionValue value = BuildVersionValue.builder(format).setMajor(1).setMinor(2)
+            .setBuild(3).build();
+        final BuildVersionValue same = BuildVersionValue.builder(format).setMajor(1).setMinor(2)
+            .setBuild(3).build();
+
+        Assert.assertEquals(value, same);
+        Assert.assertEquals(value.hashCode(), same.hashCode());
+
+        //
+        // The same values in another pattern or validate pattern are not equal
+        //
+        final BuildVersionValue otherPattern = value.toBuilder()
+            .setVersionFormat(VersionFormat.get("%M%-%m%-%b%", null, false)).build();
+        final BuildVersionValue otherValidate = value.toBuilder()
+            .setVersionFormat(VersionFormat.get("%M%.%m%.%b%", "\\d+\\.\\d+\\.\\d+", false))
+            .build();
+
+        Assert.assertEquals(0, value.compareTo(otherPattern));
+        Assert.assertNotEquals(value, otherPattern);
+        Assert.assertNotEquals(value, otherValidate);
+        Assert.assertNotEquals(value.hashCode(), otherPattern.hashCode());
+    }
+
+    @Test
+    public void testFacade() {
+        final BuildVersion version = new BuildVersion("%M%.%m%", 1, 2, 0, null, false);
+        final BuildVersionValue value = version.getValue();
+
+        version.incrementVersion();
+        Assert.assertEquals("1.2", value.toString());
+        Assert.assertEquals("1.3", version.toString());
+        Assert.assertNotSame(value, version.getValue());
+
+        version.setValue(value);
+        Assert.assertEquals("1.2", version.toString());
+        Assert.assertEquals(version, new BuildVersion(value));
+    }
+}
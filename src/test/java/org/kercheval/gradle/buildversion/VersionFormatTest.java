@@ -0,0 +1,62 @@
+package org.kercheval.gradle.buildversion;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.*;
+
+public class VersionFormatTest {
+
+    @Test
+    public void testFormatsShared() {
+        final VersionFormat format = VersionFormat.get("%M%.%b%", null, false);
+
+        Assert.assertSame(format, VersionFormat.get("%M%.%b%", null, false));
+        Assert.assertSame(format, VersionFormat.get("%M%.%b%", format.getValidatePattern(), false));
+        Assert.assertSame(format.getVersionPattern().getValidateRegex(), format.getValidateRegex());
+        Assert.assertNotSame(format, VersionFormat.get("%M%.%b%", null, true));
+        Assert.assertNotSame(format, VersionFormat.get("%M%.%b%", "\\d+.\\d+", false));
+        Assert.assertSame(VersionFormat.get(BuildVersion.DEFAULT_PATTERN, null, false),
+            VersionFormat.get(null, null, false));
+
+        final BuildVersion v1 = new BuildVersion("%M%.%b%", 1, 0, 2, new Date(0), false);
+        final BuildVersion v2 = new BuildVersion(null, 0, 0, 0, null, false);
+
+        v2.setPattern("%M%.%b%");
+        Assert.assertSame(v1.getVersionFormat(), v2.getVersionFormat());
+        v2.setPattern("%M%.%b%", "\\d+.\\d+");
+        Assert.assertEquals("\\d+.\\d+", v2.getValidatePattern());
+        Assert.assertSame(VersionFormat.get("%M%.%b%", "\\d+.\\d+", false), v2.getVersionFormat());
+    }
+
+    @Test
+    public void testParallelGet() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<VersionFormat>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(new Callable<VersionFormat>() {
+                    @Override
+                    public VersionFormat call() {
+                        return VersionFormat.get("parallel-%M%.%m%.%b%", null, true);
+                    }
+                }));
+            }
+
+            final VersionFormat format = futures.get(0).get();
+
+            for (final Future<VersionFormat> future : futures) {
+                Assert.assertSame(format, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
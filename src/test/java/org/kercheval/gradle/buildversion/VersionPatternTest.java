@@ -0,0 +1,115 @@
+package org.kercheval.gradle.buildversion;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.*;
+
+public class VersionPatternTest {
+
+    @Test
+    public void testCompiledPatternShared() {
+        final VersionPattern pattern = VersionPattern.compile(BuildVersion.DEFAULT_PATTERN);
+
+        Assert.assertSame(pattern, VersionPattern.compile(BuildVersion.DEFAULT_PATTERN));
+        Assert.assertNotSame(pattern, VersionPattern.compile("%M%.%b%"));
+    }
+
+    @Test
+    public void testTokens() {
+        final VersionPattern pattern = VersionPattern.compile("v%M%.%m%%%-%b%Postfix");
+        final VersionPattern.Token[] tokens = pattern.getTokens();
+
+        Assert.assertEquals(7, tokens.length);
+        Assert.assertEquals(VersionPattern.TokenType.LITERAL, tokens[0].getType());
+        Assert.assertEquals("v", tokens[0].getText());
+        Assert.assertEquals(VersionPattern.TokenType.MAJOR, tokens[1].getType());
+        Assert.assertEquals(VersionPattern.TokenType.LITERAL, tokens[2].getType());
+        Assert.assertEquals(".", tokens[2].getText());
+        Assert.assertEquals(VersionPattern.TokenType.MINOR, tokens[3].getType());
+        Assert.assertEquals(VersionPattern.TokenType.LITERAL, tokens[4].getType());
+        Assert.assertEquals("%-", tokens[4].getText());
+        Assert.assertEquals(VersionPattern.TokenType.BUILD, tokens[5].getType());
+        Assert.assertEquals(11, tokens[5].getPatternIndex());
+        Assert.assertTrue(pattern.useMajor());
+        Assert.assertTrue(pattern.useMinor());
+        Assert.assertTrue(pattern.useBuild());
+        Assert.assertEquals("v\\d+\\.\\d+%-\\d+", VersionPattern.compile("v%M%.%m%%%-%b%")
+            .getValidatePattern());
+        Assert.assertEquals("v", pattern.getPrefix());
+        Assert.assertEquals("", VersionPattern.compile(BuildVersion.DEFAULT_PATTERN).getPrefix());
+    }
+
+    @Test
+    public void testFormatAndParse() throws ParseException {
+        final VersionPattern pattern = VersionPattern.compile("%M%.%m%.%b%-%d%.%t%");
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        final Date date = new Date(1351773296000L);
+        final String version = pattern.format(4, 5, 6, date, utc);
+
+        Assert.assertEquals("4.5.6-20121101.123456", version);
+
+        final VersionPattern.ParsedVersion parsed = pattern.parse(version, utc);
+
+        Assert.assertEquals(4, parsed.getMajor());
+        Assert.assertEquals(5, parsed.getMinor());
+        Assert.assertEquals(6, parsed.getBuild());
+        Assert.assertEquals(date, parsed.getBuildDate());
+        Assert.assertNull(VersionPattern.compile("%M%").parse("3", utc).getBuildDate());
+
+        try {
+            pattern.parse("4.5", utc);
+            Assert.fail("Parse should fail with missing build");
+        } catch (final ParseException e) {
+            Assert.assertTrue(e.getMessage().contains("Unable to match %b%"));
+            Assert.assertEquals(8, e.getErrorOffset());
+        }
+    }
+
+    @Test
+    public void testCommits() throws ParseException {
+        final VersionPattern pattern = VersionPattern.compile("%M%.%m%.%c%");
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+
+        Assert.assertTrue(pattern.useCommits());
+        Assert.assertFalse(VersionPattern.compile(BuildVersion.DEFAULT_PATTERN).useCommits());
+        Assert.assertEquals("1.2.17", pattern.format(1, 2, 0, 17, false, new Date().toInstant(),
+                utc.toZoneId()));
+        Assert.assertEquals(17, pattern.parse("1.2.17", utc).getCommits());
+
+        try {
+            VersionPattern.compile("%c%.%c%");
+            Assert.fail("Duplicate commits variable should not be allowed");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("Commits variable %c%"));
+        }
+    }
+
+    @Test
+    public void testDirty() throws ParseException {
+        final VersionPattern pattern = VersionPattern.compile("%M%.%m%.%b%%s%");
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        final String dirty = pattern.format(1, 2, 3, 0, true, new Date().toInstant(),
+                utc.toZoneId());
+
+        Assert.assertTrue(pattern.useDirty());
+        Assert.assertEquals("1.2.3" + BuildVersion.DIRTY_MARKER, dirty);
+        Assert.assertEquals("1.2.3", pattern.format(1, 2, 3, new Date(), utc));
+        Assert.assertTrue(pattern.getValidateRegex().matcher(dirty).matches());
+        Assert.assertTrue(pattern.getValidateRegex().matcher("1.2.3").matches());
+        Assert.assertTrue(pattern.parse(dirty, utc).isDirty());
+        Assert.assertFalse(pattern.parse("1.2.3", utc).isDirty());
+        Assert.assertEquals(3, pattern.parse(dirty, utc).getBuild());
+    }
+
+    @Test
+    public void testWhitespace() {
+        try {
+            VersionPattern.compile("%M% %m% %b%");
+            Assert.fail("Whitespace should not be allowed");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("whitespace not allowed"));
+        }
+    }
+}
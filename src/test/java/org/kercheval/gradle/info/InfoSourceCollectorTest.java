@@ -0,0 +1,298 @@
+package org.kercheval.gradle.info;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InfoSourceCollectorTest
+	extends InfoSourceTest
+{
+	//
+	// A source that waits for a latch (if given) and then counts down a latch
+	// (if given) before returning a single property. Interruption ends the
+	// wait, as a cancelled source returns.
+	//
+	private static class LatchInfoSource
+		implements InfoSource
+	{
+		private final String prefix;
+		private final CountDownLatch await;
+		private final CountDownLatch done;
+
+		public LatchInfoSource(final String prefix, final CountDownLatch await,
+			final CountDownLatch done)
+		{
+			this.prefix = prefix;
+			this.await = await;
+			this.done = done;
+		}
+
+		@Override
+		public String getDescription()
+		{
+			return "Latch info source " + prefix;
+		}
+
+		@Override
+		public SortedProperties getInfo()
+		{
+			try
+			{
+				if (null != await)
+				{
+					await.await();
+				}
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			final SortedProperties props = new SortedProperties();
+			props.addProperty(getPropertyPrefix() + ".value", prefix);
+
+			if (null != done)
+			{
+				done.countDown();
+			}
+
+			return props;
+		}
+
+		@Override
+		public String getPropertyPrefix()
+		{
+			return prefix;
+		}
+
+		@Override
+		public boolean isActive()
+		{
+			return true;
+		}
+	}
+
+	//
+	// A source blocked until released that ignores interruption, as a source
+	// blocked in I/O does
+	//
+	private static class HungInfoSource
+		extends LatchInfoSource
+	{
+		private final CountDownLatch release;
+
+		public HungInfoSource(final CountDownLatch release, final CountDownLatch done)
+		{
+			super("hung", null, done);
+			this.release = release;
+		}
+
+		@Override
+		public SortedProperties getInfo()
+		{
+			boolean interrupted = false;
+
+			while (release.getCount() > 0)
+			{
+				try
+				{
+					release.await();
+				}
+				catch (final InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			return super.getInfo();
+		}
+	}
+
+	//
+	// Wait until the collection threads are idle in the pool, where a new call
+	// is handed to them rather than to a new thread
+	//
+	private void awaitIdle(final Set<Thread> threads)
+	{
+		for (final Thread thread : threads)
+		{
+			while (thread.getState() != Thread.State.TIMED_WAITING)
+			{
+				Thread.yield();
+			}
+		}
+	}
+
+	private Set<Thread> getCollectorThreads()
+	{
+		final Set<Thread> rVal = new HashSet<>();
+
+		for (final Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if ("buildinfo-collector".equals(thread.getName()))
+			{
+				rVal.add(thread);
+			}
+		}
+
+		return rVal;
+	}
+
+	@Test
+	public void testCollectInOrder()
+	{
+		//
+		// The first source only returns once the second has, so the sources must
+		// be called concurrently to collect both
+		//
+		final CountDownLatch secondDone = new CountDownLatch(1);
+		final InfoSource first = new LatchInfoSource("first", secondDone, null);
+		final InfoSource second = new LatchInfoSource("second", null, secondDone);
+		final InfoSource inactive = new HudsonInfoSource();
+		final List<InfoSource> sources = Arrays.asList(first, second, inactive);
+
+		final Map<InfoSource, SortedProperties> infoMap = new InfoSourceCollector(null, 60000)
+			.collect(sources);
+
+		Assert.assertEquals(sources, new ArrayList<>(infoMap.keySet()));
+		Assert.assertEquals("first", infoMap.get(first).getProperty("first.value"));
+		Assert.assertEquals("second", infoMap.get(second).getProperty("second.value"));
+		validatePropertyPrefix(infoMap.get(first), first.getPropertyPrefix());
+		Assert.assertNull(infoMap.get(inactive));
+	}
+
+	@Test
+	public void testCollectThreadsShared()
+	{
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+		for (int i = 0; i < 20; i++)
+		{
+			//
+			// The sources of a collection wait for each other, so each holds its
+			// own thread
+			//
+			final CountDownLatch allCalled = new CountDownLatch(3);
+			final Set<Thread> collectionThreads = Collections
+				.synchronizedSet(new HashSet<Thread>());
+			final List<InfoSource> sources = new ArrayList<>();
+
+			for (int j = 0; j < 3; j++)
+			{
+				sources.add(new LatchInfoSource("thread" + j, allCalled, null)
+				{
+					@Override
+					public SortedProperties getInfo()
+					{
+						collectionThreads.add(Thread.currentThread());
+						allCalled.countDown();
+						return super.getInfo();
+					}
+				});
+			}
+
+			awaitIdle(threads);
+
+			final Set<Thread> existingThreads = getCollectorThreads();
+
+			new InfoSourceCollector(null, 60000).collect(sources);
+
+			Assert.assertEquals(3, collectionThreads.size());
+			Assert.assertFalse(collectionThreads.contains(Thread.currentThread()));
+
+			//
+			// Repeated collections reuse idle threads
+			//
+			if (i > 0)
+			{
+				Assert.assertTrue(existingThreads.containsAll(collectionThreads));
+			}
+
+			threads.addAll(collectionThreads);
+		}
+	}
+
+	@Test
+	public void testCollectTimeout()
+	{
+		final CountDownLatch never = new CountDownLatch(1);
+		final InfoSource slow = new LatchInfoSource("slow", never, null);
+		final InfoSource slower = new LatchInfoSource("slower", never, null);
+		final InfoSource fast = new LatchInfoSource("fast", null, null);
+
+		final Map<InfoSource, SortedProperties> infoMap = new InfoSourceCollector(null, 500)
+			.collect(Arrays.asList(slow, slower, fast));
+
+		Assert.assertEquals("timed out after 500 ms", infoMap.get(slow).getProperty(
+			"slow." + InfoSourceCollector.UNAVAILABLE_PROPERTY));
+		Assert.assertEquals("timed out after 500 ms", infoMap.get(slower).getProperty(
+			"slower." + InfoSourceCollector.UNAVAILABLE_PROPERTY));
+		Assert.assertEquals("fast", infoMap.get(fast).getProperty("fast.value"));
+	}
+
+	@Test
+	public void testCollectHungSource()
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final InfoSource fast = new LatchInfoSource("fast", null, null);
+
+		try
+		{
+			final InfoSource hung = new HungInfoSource(release, null);
+			Map<InfoSource, SortedProperties> infoMap = new InfoSourceCollector(null, 200)
+				.collect(Arrays.asList(hung, fast));
+
+			Assert.assertTrue(infoMap.get(hung).getProperty(
+				"hung." + InfoSourceCollector.UNAVAILABLE_PROPERTY).startsWith("timed out"));
+
+			//
+			// The hung call keeps its thread, a later collection does not wait for
+			// it (the source is reported without a call) and does not call the
+			// source again
+			//
+			final CountDownLatch hungAgainDone = new CountDownLatch(1);
+			final InfoSource hungAgain = new HungInfoSource(release, hungAgainDone);
+
+			infoMap = new InfoSourceCollector(null, 60000).collect(Arrays.asList(hungAgain, fast));
+
+			Assert.assertEquals("still running from an earlier collection", infoMap.get(hungAgain)
+				.getProperty("hung." + InfoSourceCollector.UNAVAILABLE_PROPERTY));
+			Assert.assertEquals("fast", infoMap.get(fast).getProperty("fast.value"));
+			Assert.assertEquals(1, hungAgainDone.getCount());
+		}
+		finally
+		{
+			release.countDown();
+		}
+
+		//
+		// Once the earlier call returns the source is called again. The source is
+		// released by its thread after the call returns, so it may briefly still
+		// be reported as running.
+		//
+		SortedProperties info = null;
+
+		while ((null == info) || !info.containsKey("hung.value"))
+		{
+			Thread.yield();
+			info = new InfoSourceCollector(null, 60000).collect(
+				Arrays.<InfoSource> asList(new HungInfoSource(release, null))).values().iterator()
+				.next();
+		}
+
+		Assert.assertEquals("hung", info.getProperty("hung.value"));
+	}
+}
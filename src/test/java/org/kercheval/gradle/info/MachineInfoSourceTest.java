@@ -7,10 +7,13 @@ import org.junit.Test;
 import org.kercheval.gradle.info.MachineInfoSource;
 import org.kercheval.gradle.info.SortedProperties;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
 
 public class MachineInfoSourceTest
@@ -34,4 +37,38 @@ public class MachineInfoSourceTest
 		assertNotNull(props);
 		assertTrue(props.size() > 0);
 	}
+
+	@Test
+	public void testIdentityCache()
+	{
+		final Project project = ProjectBuilder.builder().build();
+		final MachineInfoSource machineUtil = new MachineInfoSource(project);
+		final File cacheFile = machineUtil.getCacheFile();
+
+		cacheFile.delete();
+		HostIdentityCache.clearDaemonIdentity();
+
+		final SortedProperties props = machineUtil.getInfo();
+		assertTrue(cacheFile.isFile());
+
+		//
+		// A new daemon reads the identity from the cache file
+		//
+		HostIdentityCache.clearDaemonIdentity();
+		final SortedProperties cachedProps = machineUtil.getInfo();
+		assertEquals(props.getProperty("machine.hostname"),
+			cachedProps.getProperty("machine.hostname"));
+		assertEquals(props.getProperty("machine.hostaddress"),
+			cachedProps.getProperty("machine.hostaddress"));
+		assertNotNull(cachedProps.getProperty("machine." + MachineInfoSource.TIME_PROPERTY));
+
+		//
+		// No caching when the time to live is zero
+		//
+		cacheFile.delete();
+		final SortedProperties uncachedProps = new MachineInfoSource(project, 0).getInfo();
+		assertEquals(props.getProperty("machine.hostname"),
+			uncachedProps.getProperty("machine.hostname"));
+		assertFalse(cacheFile.exists());
+	}
 }
@@ -9,6 +9,8 @@ import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
 
 public class SortedPropertiesTest
 {
@@ -53,4 +55,78 @@ public class SortedPropertiesTest
 		assertTrue(sortedString.indexOf("2=bar") < sortedString.indexOf("3=baz"));
 		assertTrue(sortedString.indexOf("3=baz") < sortedString.indexOf("4=quux"));
 	}
+
+	@Test
+	public void testStoreWithoutDate()
+	{
+		final SortedProperties props = new SortedProperties();
+
+		props.setProperty("2", "bar");
+		props.setProperty("1", "foo");
+
+		final StringWriter first = new StringWriter();
+		final StringWriter second = new StringWriter();
+
+		try
+		{
+			props.storeWithoutDate(first, "My Comment");
+			props.storeWithoutDate(second, "My Comment");
+		}
+		catch (final IOException e)
+		{
+			fail();
+		}
+
+		final String storedString = first.toString();
+
+		assertEquals(storedString, second.toString());
+		assertTrue(storedString.startsWith("#My Comment"));
+		assertEquals(1, storedString.split("#", -1).length - 1);
+		assertTrue(storedString.indexOf("1=foo") < storedString.indexOf("2=bar"));
+	}
+
+	@Test
+	public void testStoreWithoutDateComments()
+		throws IOException
+	{
+		final SortedProperties props = new SortedProperties();
+
+		props.setProperty("1", "foo");
+
+		//
+		// Comments are escaped as store escapes them
+		//
+		final StringWriter writer = new StringWriter();
+
+		props.storeWithoutDate(writer, "Line one\nLine two \u4e2d");
+
+		final String storedString = writer.toString();
+		final String[] lines = storedString.split("\\r?\\n");
+
+		assertEquals("#Line one", lines[0]);
+		assertEquals("#Line two \\u4E2D", lines[1]);
+		assertEquals("1=foo", lines[2]);
+		assertEquals(3, lines.length);
+	}
+
+	@Test
+	public void testEntrySet()
+	{
+		final SortedProperties props = new SortedProperties();
+
+		props.setProperty("1", "foo");
+		props.setProperty("2", "bar");
+
+		//
+		// The entry set is the table's own, changes reach the table
+		//
+		for (final Map.Entry<Object, Object> entry : props.entrySet())
+		{
+			entry.setValue("changed");
+		}
+		assertEquals("changed", props.getProperty("1"));
+
+		props.entrySet().clear();
+		assertTrue(props.isEmpty());
+	}
 }
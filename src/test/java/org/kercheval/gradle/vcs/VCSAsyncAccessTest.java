@@ -0,0 +1,153 @@
+package org.kercheval.gradle.vcs;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kercheval.gradle.vcs.git.JGitTestRepository;
+import org.kercheval.gradle.vcs.git.VCSGitImpl;
+import org.kercheval.gradle.vcs.none.VCSNoneImpl;
+
+public class VCSAsyncAccessTest
+{
+	@Test
+	public void testAsync()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSAsyncAccess git = new VCSAsyncAccess(new VCSGitImpl(
+				repoUtil.getStandardFile(), null));
+
+			final CompletableFuture<Void> fetch = git.fetch("myOrigin");
+			final CompletableFuture<Boolean> clean = git.isClean();
+			final CompletableFuture<String> branchName = git.getBranchName();
+
+			Assert.assertNull(VCSAsyncAccess.await(fetch));
+			Assert.assertTrue(VCSAsyncAccess.await(clean));
+			Assert.assertEquals("master", VCSAsyncAccess.await(branchName));
+			Assert.assertTrue(VCSAsyncAccess.await(git.getStatus()).isClean());
+			Assert.assertNotNull(VCSAsyncAccess.await(git.getAllTags()));
+
+			final Ref originHead = repoUtil.getStandardRepo()
+				.getRef("refs/remotes/myOrigin/master");
+			Assert.assertNotNull(originHead);
+
+			try
+			{
+				VCSAsyncAccess.await(git.merge("NotABranch", null, true));
+				Assert.fail("Expected exception");
+			}
+			catch (final VCSException e)
+			{
+				// expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testExecutor()
+		throws VCSException
+	{
+		final AtomicInteger count = new AtomicInteger();
+		final VCSAsyncAccess none = new VCSAsyncAccess(new VCSNoneImpl(null, null), new Executor()
+		{
+			@Override
+			public void execute(final Runnable command)
+			{
+				count.incrementAndGet();
+				command.run();
+			}
+		});
+
+		Assert.assertTrue(VCSAsyncAccess.await(none.isClean()));
+		Assert.assertEquals(1, count.get());
+
+		final CompletableFuture<String> branchName = none.getBranchName();
+		Assert.assertTrue(branchName.isCompletedExceptionally());
+		VCSAsyncAccess.awaitCompletion(branchName);
+
+		try
+		{
+			VCSAsyncAccess.await(branchName);
+			Assert.fail("Expected exception");
+		}
+		catch (final VCSException e)
+		{
+			// expected
+		}
+		Assert.assertEquals(2, count.get());
+
+		Assert.assertNotNull(VCSAsyncAccess.getDefaultExecutor());
+		Assert.assertSame(VCSAsyncAccess.getDefaultExecutor(), VCSAsyncAccess
+			.getDefaultExecutor());
+	}
+
+	@Test
+	public void testReadDuringUpdate()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSAsyncAccess git = new VCSAsyncAccess(new VCSGitImpl(
+				repoUtil.getStandardFile(), null, 0));
+			final VCSRepositoryLock.Access lock = new VCSRepositoryLock(repoUtil
+				.getStandardRepo().getDirectory(), 0).lockUpdate();
+
+			try
+			{
+				//
+				// Reads run alongside an update (fetch), other updates and writes
+				// wait for it
+				//
+				Assert.assertEquals("master", VCSAsyncAccess.await(git.getBranchName()));
+
+				try
+				{
+					VCSAsyncAccess.await(git.fetch("myOrigin"));
+					Assert.fail("Expected exception");
+				}
+				catch (final VCSException e)
+				{
+					// expected
+				}
+
+				try
+				{
+					VCSAsyncAccess.await(git.createTag(new VCSTag("UpdateTag", "comment")));
+					Assert.fail("Expected exception");
+				}
+				catch (final VCSException e)
+				{
+					// expected
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			VCSAsyncAccess.await(git.createTag(new VCSTag("UpdateTag", "comment")));
+			Assert.assertEquals(1, VCSAsyncAccess.await(git.getTags("UpdateTag")).size());
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+}
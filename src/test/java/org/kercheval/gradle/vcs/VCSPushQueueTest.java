@@ -0,0 +1,77 @@
+package org.kercheval.gradle.vcs;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Repository;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kercheval.gradle.vcs.git.JGitTestRepository;
+import org.kercheval.gradle.vcs.git.VCSGitImpl;
+
+public class VCSPushQueueTest
+{
+	@Test
+	public void testPush()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final Project rootProject = ProjectBuilder.builder().build();
+			final Project subProject = ProjectBuilder.builder().withName("sub")
+				.withParent(rootProject).build();
+			final VCSPushQueue queue = VCSPushQueue.getInstance(rootProject);
+			final VCSAccess git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+			final Repository originRepo = repoUtil.getOriginRepo();
+
+			Assert.assertSame(queue, VCSPushQueue.getInstance(subProject));
+
+			git.createBranch("QueueBranch", "myOrigin", true);
+			git.createTag(new VCSTag("QueueTag", "Test queued push"));
+
+			queue.add(git, "myOrigin", "refs/heads/QueueBranch");
+			queue.add(git, "myOrigin", "refs/heads/QueueBranch");
+			Assert.assertEquals(Collections.singletonList("refs/heads/QueueBranch"),
+				queue.getPendingRefs("myOrigin"));
+			Assert.assertNull(originRepo.exactRef("refs/heads/QueueBranch"));
+
+			//
+			// The queued branch goes with the tag
+			//
+			queue.push(git, "myOrigin", Collections.singletonList("refs/tags/QueueTag"));
+			Assert.assertNotNull(originRepo.exactRef("refs/heads/QueueBranch"));
+			Assert.assertNotNull(originRepo.exactRef("refs/tags/QueueTag"));
+			Assert.assertTrue(queue.getPendingRefs("myOrigin").isEmpty());
+
+			//
+			// Anything left is dropped when the build fails
+			//
+			git.createBranch("QueueBranch3", "myOrigin", true);
+			queue.add(git, "myOrigin", "refs/heads/QueueBranch3");
+			queue.discard();
+			Assert.assertTrue(queue.getPendingRefs("myOrigin").isEmpty());
+			queue.flush();
+			Assert.assertNull(originRepo.exactRef("refs/heads/QueueBranch3"));
+
+			//
+			// Anything left is pushed when the build succeeds
+			//
+			git.createBranch("QueueBranch2", "myOrigin", true);
+			queue.add(git, "myOrigin", "refs/heads/QueueBranch2");
+			queue.flush();
+			Assert.assertNotNull(originRepo.exactRef("refs/heads/QueueBranch2"));
+			Assert.assertTrue(queue.getPendingRefs("myOrigin").isEmpty());
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+}
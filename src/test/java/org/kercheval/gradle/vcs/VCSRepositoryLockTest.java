@@ -0,0 +1,193 @@
+package org.kercheval.gradle.vcs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kercheval.gradle.vcs.git.JGitTestRepository;
+import org.kercheval.gradle.vcs.git.VCSGitImpl;
+
+public class VCSRepositoryLockTest
+{
+	//
+	// Return true if the lock could be taken from another thread
+	//
+	private boolean canLock(final VCSRepositoryLock repositoryLock, final boolean write)
+		throws InterruptedException, ExecutionException
+	{
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try
+		{
+			return executor.submit(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call()
+				{
+					boolean rVal = true;
+
+					try
+					{
+						final VCSRepositoryLock.Access lock = write ? repositoryLock.lockWrite() : repositoryLock
+							.lockRead();
+						lock.unlock();
+					}
+					catch (final VCSException e)
+					{
+						rVal = false;
+					}
+
+					return rVal;
+				}
+			}).get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReadWrite()
+		throws VCSException, InterruptedException, ExecutionException
+	{
+		final File repositoryDir = new File(System.getProperty("java.io.tmpdir"),
+			"VCSRepositoryLockTest");
+		final VCSRepositoryLock repositoryLock = new VCSRepositoryLock(repositoryDir, 0);
+
+		//
+		// Reads are shared, writes are not
+		//
+		VCSRepositoryLock.Access lock = repositoryLock.lockRead();
+		try
+		{
+			Assert.assertTrue(canLock(repositoryLock, false));
+			Assert.assertFalse(canLock(repositoryLock, true));
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		lock = repositoryLock.lockWrite();
+		try
+		{
+			Assert.assertFalse(canLock(repositoryLock, false));
+			Assert.assertFalse(canLock(repositoryLock, true));
+
+			//
+			// Other instances for the same directory share the lock
+			//
+			Assert.assertFalse(canLock(new VCSRepositoryLock(new File(repositoryDir, "."), 0),
+				false));
+			Assert.assertTrue(canLock(new VCSRepositoryLock(new File(repositoryDir, "other"), 0),
+				true));
+
+			//
+			// The write holder may also read
+			//
+			repositoryLock.lockRead().unlock();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		Assert.assertTrue(canLock(repositoryLock, true));
+
+		//
+		// Access is released once, and may be closed as a resource
+		//
+		lock = repositoryLock.lockUpdate();
+		lock.unlock();
+		lock.unlock();
+		Assert.assertTrue(canLock(repositoryLock, true));
+
+		try (VCSRepositoryLock.Access access = repositoryLock.lockWrite())
+		{
+			Assert.assertFalse(canLock(repositoryLock, false));
+		}
+		Assert.assertTrue(canLock(repositoryLock, true));
+	}
+
+	@Test
+	public void testTimeout()
+		throws VCSException, InterruptedException, ExecutionException
+	{
+		final VCSRepositoryLock repositoryLock = new VCSRepositoryLock(new File(
+			System.getProperty("java.io.tmpdir"), "VCSRepositoryLockTimeoutTest"), 1);
+		final VCSRepositoryLock.Access lock = repositoryLock.lockWrite();
+
+		try
+		{
+			final long start = System.nanoTime();
+
+			Assert.assertFalse(canLock(repositoryLock, false));
+			Assert.assertTrue(System.nanoTime() - start >= 900000000L);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Test
+	public void testGitWaitsForWrite()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException, InterruptedException, ExecutionException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null, 0);
+			final VCSRepositoryLock repositoryLock = new VCSRepositoryLock(new File(
+				repoUtil.getOriginFile(), ".git"), 0);
+			final VCSRepositoryLock.Access lock = repositoryLock.lockWrite();
+
+			try
+			{
+				final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+				try
+				{
+					executor.submit(new Callable<String>()
+					{
+						@Override
+						public String call()
+							throws VCSException
+						{
+							return git.getBranchName();
+						}
+					}).get();
+					Assert.fail("Expected exception");
+				}
+				catch (final ExecutionException e)
+				{
+					Assert.assertTrue(e.getCause() instanceof VCSException);
+				}
+				finally
+				{
+					executor.shutdown();
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			Assert.assertEquals("master", git.getBranchName());
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.kercheval.gradle.vcs;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kercheval.gradle.vcs.git.JGitTestRepository;
+import org.kercheval.gradle.vcs.git.VCSGitImpl;
+
+public class VCSStatusSnapshotTest
+{
+	@Test
+	public void testSnapshotSharedAcrossProjects()
+	{
+		final Project rootProject = ProjectBuilder.builder().build();
+		final Project subProject = ProjectBuilder.builder().withName("sub")
+			.withParent(rootProject).build();
+		final VCSStatusSnapshot snapshot = VCSStatusSnapshot.getInstance(rootProject);
+
+		Assert.assertSame(snapshot, VCSStatusSnapshot.getInstance(subProject));
+		Assert.assertNotSame(snapshot,
+			VCSStatusSnapshot.getInstance(ProjectBuilder.builder().build()));
+	}
+
+	@Test
+	public void testStatusScannedOnce()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSAccess git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			final VCSStatusSnapshot snapshot = VCSStatusSnapshot.getInstance(ProjectBuilder
+				.builder().build());
+
+			Assert.assertTrue(snapshot.isClean(git));
+
+			//
+			// The workspace changes, but the build keeps the state first seen
+			//
+			new File(repoUtil.getOriginFile().getAbsolutePath() + "/SnapshotChange.txt")
+				.createNewFile();
+			Assert.assertFalse(git.isClean());
+			Assert.assertTrue(snapshot.isClean(git));
+
+			final VCSStatus status = snapshot.getStatus(git);
+			Assert.assertSame(status, snapshot.getStatus(git));
+			Assert.assertTrue(status.getUntracked().isEmpty());
+
+			//
+			// The VCS information of buildinfo uses the same status
+			//
+			final VCSInfoSource infoSource = (VCSInfoSource) git;
+			infoSource.setStatusSnapshot(snapshot);
+			Assert.assertEquals("true", infoSource.getInfo().getProperty(
+				infoSource.getPropertyPrefix() + ".workspace.clean"));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+}
@@ -2,6 +2,9 @@ package org.kercheval.gradle.vcs.git;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -9,8 +12,11 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.gradle.api.Project;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.Assert;
@@ -19,6 +25,7 @@ import org.kercheval.gradle.info.SortedProperties;
 import org.kercheval.gradle.vcs.VCSAccessFactory;
 import org.kercheval.gradle.vcs.VCSException;
 import org.kercheval.gradle.vcs.VCSInfoSource;
+import org.kercheval.gradle.vcs.VCSRefTransaction;
 import org.kercheval.gradle.vcs.VCSStatus;
 import org.kercheval.gradle.vcs.VCSTag;
 
@@ -62,6 +69,52 @@ public class VCSGitImplTest
 		Assert.assertTrue(refMap.containsKey("refs/heads/" + branchName));
 	}
 
+	@Test
+	public void testCompareAndSetTagRef()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final String refName = "refs/gradlecm/latest/junit";
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			Assert.assertNull(git.getTagRef(refName));
+
+			git.createTag(new VCSTag("JUNIT_Ref_1", "Test reference"));
+			git.createTag(new VCSTag("JUNIT_Ref_2", "Test reference"));
+
+			Assert.assertFalse(git.compareAndSetTagRef(refName, "JUNIT_Ref_1", "JUNIT_Ref_2"));
+			Assert.assertTrue(git.compareAndSetTagRef(refName, null, "JUNIT_Ref_1"));
+			Assert.assertEquals("JUNIT_Ref_1", git.getTagRef(refName));
+			Assert.assertFalse(git.compareAndSetTagRef(refName, null, "JUNIT_Ref_2"));
+			Assert.assertTrue(git.compareAndSetTagRef(refName, "JUNIT_Ref_1", "JUNIT_Ref_2"));
+			Assert.assertEquals("JUNIT_Ref_2", git.getTagRef(refName));
+
+			//
+			// A reference to a deleted tag is stale
+			//
+			new Git(repoUtil.getOriginRepo()).tagDelete().setTags("JUNIT_Ref_2").call();
+			Assert.assertNull(git.getTagRef(refName));
+			Assert.assertTrue(git.compareAndSetTagRef(refName, null, "JUNIT_Ref_1"));
+			Assert.assertEquals("JUNIT_Ref_1", git.getTagRef(refName));
+
+			try
+			{
+				git.compareAndSetTagRef(refName, "JUNIT_Ref_1", "JUNIT_No_Such_Tag");
+				Assert.fail("Expected exception on missing tag");
+			}
+			catch (final VCSException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testCreateBranch()
 		throws InvalidRemoteException, TransportException, IOException, GitAPIException,
@@ -91,6 +144,66 @@ public class VCSGitImplTest
 		}
 	}
 
+	@Test
+	public void testCreateBranches()
+		throws InvalidRemoteException, TransportException, IOException, GitAPIException,
+		VCSException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+			git.fetch("myOrigin");
+
+			//
+			// New branches are pushed together, existing remote branches are tracked
+			//
+			git.createBranches(Arrays.asList("BatchBranch1", "OriginBranch3", "BatchBranch1"),
+				"myOrigin", false);
+
+			final Repository standardRepo = repoUtil.getStandardRepo();
+			Assert.assertNotNull(standardRepo.exactRef("refs/heads/BatchBranch1"));
+			Assert.assertEquals(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch3")
+				.getObjectId(), standardRepo.exactRef("refs/heads/OriginBranch3").getObjectId());
+			Assert.assertNotNull(repoUtil.getOriginRepo().exactRef("refs/heads/BatchBranch1"));
+			Assert.assertEquals("myOrigin",
+				new FileRepositoryBuilder().setGitDir(standardRepo.getDirectory()).build()
+					.getConfig().getString("branch", "OriginBranch3", "remote"));
+
+			git.createBranches(Arrays.asList("BatchBranch2", "BatchBranch3"), "myOrigin", true);
+			Assert.assertNotNull(standardRepo.exactRef("refs/heads/BatchBranch2"));
+			Assert.assertNotNull(standardRepo.exactRef("refs/heads/BatchBranch3"));
+			Assert.assertNull(repoUtil.getOriginRepo().exactRef("refs/heads/BatchBranch2"));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testCreateTagIfAbsent()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+
+			Assert.assertTrue(git.createTagIfAbsent(new VCSTag("JUNIT_Absent", "Test tag add")));
+			Assert.assertFalse(git.createTagIfAbsent(new VCSTag("JUNIT_Absent", "Test tag add")));
+
+			final List<VCSTag> tagList = git.getTags("^JUNIT_Absent$");
+			Assert.assertEquals(1, tagList.size());
+			Assert.assertEquals("Test tag add", tagList.get(0).getComment());
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testFFMergeFail()
 		throws VCSException, InvalidRemoteException, TransportException, IOException,
@@ -140,6 +253,64 @@ public class VCSGitImplTest
 		}
 	}
 
+	@Test
+	public void testFetchBranches()
+		throws InvalidRemoteException, TransportException, IOException, GitAPIException,
+		VCSException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final Git originGit = new Git(repoUtil.getOriginRepo());
+			originGit.tag().setName("3.1-Fetched").setMessage("Fetched tag").call();
+			originGit.tag().setName("Other-NotFetched").setMessage("Other tag").call();
+			originGit.branchCreate().setName("FetchedBranch").setForce(false).call();
+
+			//
+			// Only the named branch and the tags with the prefix are fetched
+			//
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+			git.fetch("myOrigin", Arrays.asList("OriginBranch3"), "3.1");
+
+			final Repository standardRepo = repoUtil.getStandardRepo();
+			Assert.assertNotNull(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch3"));
+			Assert.assertNull(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch4"));
+			Assert.assertNotNull(standardRepo.exactRef("refs/tags/3.1-Fetched"));
+			Assert.assertNull(standardRepo.exactRef("refs/tags/Other-NotFetched"));
+
+			//
+			// A branch the origin does not have is skipped, the others are fetched
+			//
+			git.fetch("myOrigin", Arrays.asList("MissingBranch", "FetchedBranch"), null);
+			Assert.assertNull(standardRepo.exactRef("refs/remotes/myOrigin/MissingBranch"));
+			Assert.assertNotNull(standardRepo.exactRef("refs/remotes/myOrigin/FetchedBranch"));
+			Assert.assertNull(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch4"));
+
+			git.fetch("myOrigin", Arrays.asList("MissingBranch"), null);
+			Assert.assertNull(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch4"));
+
+			//
+			// Naming nothing fetches the configured refspecs
+			//
+			git.fetch("myOrigin", new ArrayList<String>(), null);
+			Assert.assertNotNull(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch4"));
+
+			try
+			{
+				git.fetch("myOrigin", Arrays.asList("Bad*Branch*"), null);
+				Assert.fail("Expected VCSException");
+			}
+			catch (final VCSException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testGetBranch()
 		throws VCSException, InvalidRemoteException, TransportException, IOException,
@@ -160,6 +331,62 @@ public class VCSGitImplTest
 		}
 	}
 
+	@Test
+	public void testGetCommitDistance()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			final int totalCommits = git.getCommitDistance(null);
+			Assert.assertTrue(totalCommits > 0);
+
+			git.createTag(new VCSTag("JUNIT_Distance", "Test commit distance"));
+			Assert.assertEquals(0, git.getCommitDistance("JUNIT_Distance"));
+
+			for (int i = 0; i < 2; i++)
+			{
+				final File newFile = new File(repoUtil.getOriginFile().getAbsolutePath()
+					+ "/DistanceFile" + i + ".txt");
+				repoUtil.writeRandomContentFile(newFile);
+				new Git(repoUtil.getOriginRepo()).add().addFilepattern(".").call();
+				new Git(repoUtil.getOriginRepo()).commit()
+					.setCommitter(new PersonIdent("JUNIT", "JUNIT@dev.build"))
+					.setMessage("Commit after distance tag").call();
+			}
+
+			Assert.assertEquals(2, git.getCommitDistance("JUNIT_Distance"));
+			Assert.assertEquals(2, git.getCommitDistance("JUNIT_Distance"));
+			Assert.assertEquals(totalCommits + 2, git.getCommitDistance(null));
+
+			//
+			// A shallow history is walked every time, so deepening it is seen
+			//
+			final File shallowFile = new File(repoUtil.getOriginRepo().getDirectory(), "shallow");
+			final ObjectId headId = repoUtil.getOriginRepo().resolve("HEAD");
+			Files.write(shallowFile.toPath(), (headId.getName() + "\n").getBytes("UTF-8"));
+			Assert.assertEquals(1, git.getCommitDistance(null));
+			Assert.assertTrue(shallowFile.delete());
+			Assert.assertEquals(totalCommits + 2, git.getCommitDistance(null));
+
+			try
+			{
+				git.getCommitDistance("JUNIT_No_Such_Tag");
+				Assert.fail("Expected exception on missing tag");
+			}
+			catch (final VCSException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testGetFetchAndMergeAndPush()
 		throws VCSException, InvalidRemoteException, TransportException, IOException,
@@ -251,6 +478,72 @@ public class VCSGitImplTest
 
 	}
 
+	@Test
+	public void testGetRefFingerprint()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			final String fingerprint = git.getRefFingerprint();
+			Assert.assertNotNull(fingerprint);
+			Assert.assertEquals(fingerprint, git.getRefFingerprint());
+
+			git.createTag(new VCSTag("JUNIT_Fingerprint", "Test fingerprint"));
+			final String taggedFingerprint = git.getRefFingerprint();
+			Assert.assertFalse(fingerprint.equals(taggedFingerprint));
+
+			final File newFile = new File(repoUtil.getOriginFile().getAbsolutePath()
+				+ "/FingerprintFile.txt");
+			repoUtil.writeRandomContentFile(newFile);
+			new Git(repoUtil.getOriginRepo()).add().addFilepattern(".").call();
+			Assert.assertEquals(taggedFingerprint, git.getRefFingerprint());
+
+			new Git(repoUtil.getOriginRepo()).commit()
+				.setCommitter(new PersonIdent("JUNIT", "JUNIT@dev.build"))
+				.setMessage("Commit for fingerprint").call();
+			Assert.assertFalse(taggedFingerprint.equals(git.getRefFingerprint()));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testGetRemoteTags()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			new Git(repoUtil.getOriginRepo()).tag().setName("JUNIT_RemoteTag")
+				.setMessage("Remote only tag").call();
+
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+			Assert.assertTrue(git.getTags("^JUNIT_RemoteTag$").isEmpty());
+
+			final List<VCSTag> tagList = git.getRemoteTags("myOrigin", "^JUNIT_RemoteTag$");
+			Assert.assertEquals(1, tagList.size());
+			Assert.assertEquals(repoUtil.getOriginRepo().exactRef("refs/tags/JUNIT_RemoteTag")
+				.getObjectId().getName(), tagList.get(0).getCommit());
+
+			//
+			// The tag object was not fetched, so it has no date
+			//
+			Assert.assertNull(git.getTagDate(tagList.get(0).getCommit()));
+			Assert.assertNotNull(git.getTagDate(repoUtil.getStandardRepo()
+				.exactRef("refs/tags/JUNIT_InitialTag").getObjectId().getName()));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testGetStatus()
 		throws VCSException, InvalidRemoteException, TransportException, IOException,
@@ -279,6 +572,83 @@ public class VCSGitImplTest
 		}
 	}
 
+	@Test
+	public void testGetStoredValue()
+		throws VCSException, IOException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			Assert.assertNull(git.getStoredValue("JUNIT-value"));
+
+			//
+			// Values are kept in files apart from the repository configuration
+			//
+			git.setStoredValue("JUNIT-value", "stored");
+			Assert.assertEquals("stored", git.getStoredValue("JUNIT-value"));
+			Assert.assertTrue(new File(repoUtil.getOriginRepo().getDirectory(),
+				"gradlecm/JUNIT-value").isFile());
+			Assert.assertFalse(repoUtil.getOriginRepo().getConfig().getSections()
+				.contains("gradlecm"));
+
+			git.setStoredValue("JUNIT-value", null);
+			Assert.assertNull(git.getStoredValue("JUNIT-value"));
+
+			try
+			{
+				git.setStoredValue("../JUNIT-value", "stored");
+				Assert.fail("Expected VCSException");
+			}
+			catch (final VCSException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testGetTagStamp()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			final String stamp = git.getTagStamp();
+			Assert.assertNotNull(stamp);
+			Assert.assertEquals(stamp, git.getTagStamp());
+
+			//
+			// Commits do not change the stamp, tags do
+			//
+			final File newFile = new File(repoUtil.getOriginFile().getAbsolutePath()
+				+ "/StampFile.txt");
+			repoUtil.writeRandomContentFile(newFile);
+			new Git(repoUtil.getOriginRepo()).add().addFilepattern(".").call();
+			new Git(repoUtil.getOriginRepo()).commit()
+				.setCommitter(new PersonIdent("JUNIT", "JUNIT@dev.build"))
+				.setMessage("Commit for stamp").call();
+			Assert.assertEquals(stamp, git.getTagStamp());
+
+			git.createTag(new VCSTag("JUNIT_Stamp", "Test stamp"));
+			final String taggedStamp = git.getTagStamp();
+			Assert.assertFalse(stamp.equals(taggedStamp));
+
+			new Git(repoUtil.getOriginRepo()).tagDelete().setTags("JUNIT_Stamp").call();
+			Assert.assertFalse(taggedStamp.equals(git.getTagStamp()));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testGetTags()
 		throws VCSException, InvalidRemoteException, TransportException, IOException,
@@ -303,6 +673,41 @@ public class VCSGitImplTest
 		}
 	}
 
+	@Test
+	public void testIsClean()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			Assert.assertTrue(git.isClean());
+
+			final File newFile = new File(repoUtil.getOriginFile().getAbsolutePath()
+				+ "/CleanChange.txt");
+			newFile.createNewFile();
+			Assert.assertFalse(git.isClean());
+			Assert.assertEquals(git.getStatus().isClean(), git.isClean());
+
+			new Git(repoUtil.getOriginRepo()).add().addFilepattern(".").call();
+			Assert.assertFalse(git.isClean());
+
+			new Git(repoUtil.getOriginRepo()).commit()
+				.setCommitter(new PersonIdent("JUNIT", "JUNIT@dev.build"))
+				.setMessage("Commit for clean check").call();
+			Assert.assertTrue(git.isClean());
+
+			repoUtil.writeRandomContentFile(newFile);
+			Assert.assertFalse(git.isClean());
+			Assert.assertEquals(git.getStatus().isClean(), git.isClean());
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 	@Test
 	public void testMergeFail()
 		throws VCSException, InvalidRemoteException, TransportException, IOException,
@@ -408,4 +813,136 @@ public class VCSGitImplTest
 		}
 	}
 
+	@Test
+	public void testPushRefs()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+			final Repository originRepo = repoUtil.getOriginRepo();
+
+			git.createBranch("PushBranch", "myOrigin", true);
+			git.createTag(new VCSTag("PushTag", "Test tag push"));
+			git.pushRefs(Arrays.asList("refs/heads/PushBranch", "refs/tags/PushTag"), "myOrigin");
+
+			Assert.assertNotNull(originRepo.exactRef("refs/heads/PushBranch"));
+			Assert.assertNotNull(originRepo.exactRef("refs/tags/PushTag"));
+
+			//
+			// The origin master has moved on, so the master push is rejected but
+			// the tag is still pushed
+			//
+			git.createTag(new VCSTag("PushTag2", "Second test tag push"));
+			final File newFile = new File(repoUtil.getStandardFile().getAbsolutePath()
+				+ "/PushRefsFile.txt");
+			repoUtil.writeRandomContentFile(newFile);
+			new Git(repoUtil.getStandardRepo()).add().addFilepattern(".").call();
+			new Git(repoUtil.getStandardRepo()).commit()
+				.setCommitter(new PersonIdent("JUNIT", "JUNIT@dev.build"))
+				.setMessage("Commit to push").call();
+
+			try
+			{
+				git.pushRefs(Arrays.asList("refs/heads/master", "refs/tags/PushTag2"), "myOrigin");
+				Assert.fail("Expected exception");
+			}
+			catch (final VCSException e)
+			{
+				Assert.assertTrue(e.getMessage().contains("refs/heads/master"));
+				Assert.assertFalse(e.getMessage().contains("refs/tags/PushTag2"));
+			}
+			Assert.assertNotNull(originRepo.exactRef("refs/tags/PushTag2"));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testUpdateRefs()
+		throws VCSException, InvalidRemoteException, TransportException, IOException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		try
+		{
+			final VCSInfoSource git = new VCSGitImpl(repoUtil.getOriginFile(), null);
+			final Repository originRepo = repoUtil.getOriginRepo();
+			final ObjectId headId = originRepo.resolve("HEAD");
+
+			git.updateRefs(new VCSRefTransaction().createBranch("TxBranch", null)
+				.createTag(new VCSTag("TxTag", "Transaction tag"))
+				.moveRef("refs/heads/TxMoved", "master", null));
+
+			Assert.assertEquals(headId, originRepo.exactRef("refs/heads/TxBranch").getObjectId());
+			Assert.assertEquals(headId, originRepo.exactRef("refs/heads/TxMoved").getObjectId());
+			Assert.assertEquals("Transaction tag", git.getTags("^TxTag$").get(0).getComment());
+
+			//
+			// Existing branches are left as is, the move checks the expected value
+			//
+			git.updateRefs(new VCSRefTransaction().createBranch("TxBranch", "TxTag").moveRef(
+				"refs/heads/TxMoved", "TxTag", "master"));
+			Assert.assertEquals(headId, originRepo.exactRef("refs/heads/TxBranch").getObjectId());
+			Assert.assertEquals(originRepo.exactRef("refs/tags/TxTag").getObjectId(), originRepo
+				.exactRef("refs/heads/TxMoved").getObjectId());
+
+			//
+			// Nothing is changed if any change fails
+			//
+			try
+			{
+				git.updateRefs(new VCSRefTransaction().createBranch("TxBranch2", null).createTag(
+					new VCSTag("TxTag", "Duplicate tag")));
+				Assert.fail("Expected exception");
+			}
+			catch (final VCSException e)
+			{
+				// expected
+			}
+			Assert.assertNull(originRepo.exactRef("refs/heads/TxBranch2"));
+
+			try
+			{
+				git.updateRefs(new VCSRefTransaction().createBranch("TxBranch2", null).moveRef(
+					"refs/heads/TxMoved", "master", "master"));
+				Assert.fail("Expected exception");
+			}
+			catch (final VCSException e)
+			{
+				// expected
+			}
+			Assert.assertNull(originRepo.exactRef("refs/heads/TxBranch2"));
+
+			//
+			// A move may target a tag created in the same transaction, and neither
+			// is written if the move fails
+			//
+			git.updateRefs(new VCSRefTransaction().createTag(new VCSTag("TxTag2", "Moved tag"))
+				.moveRef("refs/gradlecm/TxRef", "TxTag2", null));
+			Assert.assertEquals("TxTag2", git.getTagRef("refs/gradlecm/TxRef"));
+
+			try
+			{
+				git.updateRefs(new VCSRefTransaction().createTag(new VCSTag("TxTag3", "Moved tag"))
+					.moveRef("refs/gradlecm/TxRef", "TxTag3", "TxTag"));
+				Assert.fail("Expected exception");
+			}
+			catch (final VCSException e)
+			{
+				// expected
+			}
+			Assert.assertNull(originRepo.exactRef("refs/tags/TxTag3"));
+			Assert.assertEquals("TxTag2", git.getTagRef("refs/gradlecm/TxRef"));
+		}
+		finally
+		{
+			repoUtil.close();
+		}
+	}
+
 }
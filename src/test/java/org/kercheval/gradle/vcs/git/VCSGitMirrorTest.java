@@ -0,0 +1,129 @@
+package org.kercheval.gradle.vcs.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kercheval.gradle.vcs.VCSAccess;
+import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSRepositoryLock;
+
+public class VCSGitMirrorTest
+{
+	private int countPacks(final Repository repository)
+	{
+		final File[] packs = new File(repository.getDirectory(), "objects/pack").listFiles();
+
+		return (null == packs) ? 0 : packs.length;
+	}
+
+	@Test
+	public void testFetchThroughMirror()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		final File mirrorDir = new File(repoUtil.getStandardFile().getPath() + "_mirror.git");
+		Repository mirrorRepo = null;
+
+		try
+		{
+			final VCSAccess git = new VCSGitImpl(repoUtil.getStandardFile(), null,
+				VCSRepositoryLock.DEFAULT_TIMEOUT, mirrorDir);
+			final Repository standardRepo = repoUtil.getStandardRepo();
+			final Repository originRepo = repoUtil.getOriginRepo();
+
+			//
+			// The first fetch creates the mirror and borrows its objects
+			//
+			git.fetch("myOrigin");
+
+			mirrorRepo = new RepositoryBuilder().setGitDir(mirrorDir).setBare().build();
+			Assert.assertEquals(originRepo.exactRef("refs/heads/master").getObjectId(),
+				mirrorRepo.exactRef("refs/heads/master").getObjectId());
+			Assert.assertNotNull(mirrorRepo.exactRef("refs/tags/3.0-2012110101-123456"));
+			Assert.assertEquals(originRepo.exactRef("refs/heads/master").getObjectId(),
+				standardRepo.exactRef("refs/remotes/myOrigin/master").getObjectId());
+			Assert.assertNotNull(standardRepo.exactRef("refs/remotes/myOrigin/OriginBranch3"));
+			Assert.assertTrue(Files.readAllLines(
+				new File(standardRepo.getDirectory(), "objects/info/alternates").toPath(),
+				StandardCharsets.UTF_8).contains(
+				new File(mirrorDir, "objects").getCanonicalPath()));
+
+			//
+			// New commits are downloaded to the mirror only, the workspace
+			// fetch copies references
+			//
+			final Git originGit = new Git(originRepo);
+			repoUtil.writeRandomContentFile(new File(repoUtil.getOriginFile(), "MirrorFile.txt"));
+			originGit.add().addFilepattern(".").call();
+			final ObjectId commitId = originGit.commit()
+				.setCommitter(new PersonIdent("JUNIT", "JUNIT@dev.build"))
+				.setMessage("Commit fetched through the mirror").call();
+
+			final int packCount = countPacks(standardRepo);
+			git.fetch("myOrigin");
+
+			Assert.assertEquals(commitId, standardRepo.exactRef("refs/remotes/myOrigin/master")
+				.getObjectId());
+			Assert.assertTrue(mirrorRepo.getObjectDatabase().has(commitId));
+
+			//
+			// The open repository read its alternates before the mirror existed
+			//
+			final Repository workspaceRepo = new RepositoryBuilder().setGitDir(
+				standardRepo.getDirectory()).build();
+			try
+			{
+				Assert.assertTrue(workspaceRepo.getObjectDatabase().has(commitId));
+			}
+			finally
+			{
+				workspaceRepo.close();
+			}
+			Assert.assertEquals(packCount, countPacks(standardRepo));
+			Assert.assertFalse(new File(standardRepo.getDirectory(), "objects/"
+				+ commitId.name().substring(0, 2) + "/" + commitId.name().substring(2)).exists());
+
+			//
+			// Narrowed fetches go through the mirror as well
+			//
+			originGit.branchCreate().setName("MirrorBranch").call();
+			git.fetch("myOrigin", Arrays.asList("MirrorBranch"), null);
+			Assert.assertNotNull(mirrorRepo.exactRef("refs/heads/MirrorBranch"));
+			Assert.assertNotNull(standardRepo.exactRef("refs/remotes/myOrigin/MirrorBranch"));
+
+			try
+			{
+				git.fetch("noSuchRemote");
+				Assert.fail("Expected VCSException");
+			}
+			catch (final VCSException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			if (null != mirrorRepo)
+			{
+				mirrorRepo.close();
+			}
+			repoUtil.close();
+			FileUtils.delete(mirrorDir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+		}
+	}
+}
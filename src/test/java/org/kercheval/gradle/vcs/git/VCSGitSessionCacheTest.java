@@ -0,0 +1,366 @@
+package org.kercheval.gradle.vcs.git;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.transport.UploadPack;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.QuotedString;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kercheval.gradle.vcs.VCSAccess;
+import org.kercheval.gradle.vcs.VCSException;
+
+public class VCSGitSessionCacheTest
+{
+	//
+	// A stand in for an SSH server. Sessions run the git service requested in
+	// process against the local repository named in the command.
+	//
+	private static class LocalSessionFactory
+		extends SshSessionFactory
+	{
+		private int sessionCount = 0;
+		private int disconnectCount = 0;
+		private final List<LocalSession> sessions = new ArrayList<>();
+
+		//
+		// Close the open sessions as a server would, without telling the client
+		//
+		public synchronized void closeSessions()
+		{
+			for (final LocalSession session : sessions)
+			{
+				session.closed = true;
+			}
+		}
+
+		@Override
+		public synchronized RemoteSession getSession(final URIish uri,
+			final CredentialsProvider credentialsProvider,
+			final FS fs,
+			final int tms)
+		{
+			sessionCount++;
+
+			final LocalSession rVal = new LocalSession(uri);
+			sessions.add(rVal);
+			return rVal;
+		}
+
+		public String getType()
+		{
+			return "local";
+		}
+
+		private class LocalSession
+			implements RemoteSession
+		{
+			private final URIish uri;
+			private volatile boolean closed = false;
+
+			LocalSession(final URIish uri)
+			{
+				this.uri = uri;
+			}
+
+			@Override
+			public void disconnect()
+			{
+				synchronized (LocalSessionFactory.this)
+				{
+					disconnectCount++;
+				}
+			}
+
+			@Override
+			public Process exec(final String command, final int timeout)
+				throws IOException
+			{
+				if (closed)
+				{
+					throw new org.eclipse.jgit.errors.TransportException(uri, "session is down");
+				}
+
+				return new LocalProcess(command);
+			}
+		}
+	}
+
+	//
+	// The git service run on a thread with its input and output piped to the
+	// transport
+	//
+	private static class LocalProcess
+		extends Process
+	{
+		private final PipedOutputStream toService = new PipedOutputStream();
+		private final PipedInputStream fromService = new PipedInputStream();
+		private final Thread serviceThread;
+
+		LocalProcess(final String command)
+			throws IOException
+		{
+			final int split = command.indexOf(' ');
+			final String service = command.substring(0, split);
+			final File gitDir = new File(QuotedString.BOURNE.dequote(command.substring(split + 1)));
+			final InputStream serviceIn = new PipedInputStream(toService);
+			final OutputStream serviceOut = new PipedOutputStream(fromService);
+
+			serviceThread = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						final Repository repository = new RepositoryBuilder().setGitDir(gitDir)
+							.build();
+
+						try
+						{
+							if ("git-upload-pack".equals(service))
+							{
+								new UploadPack(repository).upload(serviceIn, serviceOut, null);
+							}
+							else
+							{
+								new ReceivePack(repository).receive(serviceIn, serviceOut, null);
+							}
+						}
+						finally
+						{
+							repository.close();
+						}
+					}
+					catch (final IOException e)
+					{
+						// The transport reports the failure
+					}
+					finally
+					{
+						try
+						{
+							serviceOut.close();
+						}
+						catch (final IOException e)
+						{
+							// Ignore
+						}
+					}
+				}
+			};
+			serviceThread.setDaemon(true);
+			serviceThread.start();
+		}
+
+		@Override
+		public void destroy()
+		{
+			// The service ends when its input is closed
+		}
+
+		@Override
+		public int exitValue()
+		{
+			return 0;
+		}
+
+		@Override
+		public InputStream getErrorStream()
+		{
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		@Override
+		public InputStream getInputStream()
+		{
+			return fromService;
+		}
+
+		@Override
+		public OutputStream getOutputStream()
+		{
+			return toService;
+		}
+
+		@Override
+		public int waitFor()
+			throws InterruptedException
+		{
+			serviceThread.join();
+			return 0;
+		}
+	}
+
+	private void addSshRemote(final JGitTestRepository repoUtil)
+		throws IOException
+	{
+		final StoredConfig config = repoUtil.getStandardRepo().getConfig();
+
+		config.setString("remote", "sshOrigin", "url", "ssh://junit@localhost"
+			+ repoUtil.getOriginRepo().getDirectory().getCanonicalPath().replace('\\', '/'));
+		config.setString("remote", "sshOrigin", "fetch",
+			"+refs/heads/*:refs/remotes/sshOrigin/*");
+		config.save();
+	}
+
+	@Test
+	public void testSessionReuse()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		final LocalSessionFactory sessionFactory = new LocalSessionFactory();
+		final VCSGitSessionCache cache = new VCSGitSessionCache(sessionFactory, 60);
+
+		VCSGitSessionCache.setInstance(cache);
+		try
+		{
+			addSshRemote(repoUtil);
+
+			final VCSAccess git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+
+			//
+			// Fetch, then create and push a branch, all on one session
+			//
+			git.fetch("sshOrigin");
+			Assert.assertNotNull(repoUtil.getStandardRepo().exactRef(
+				"refs/remotes/sshOrigin/master"));
+			git.createBranch("SessionBranch", "sshOrigin", true);
+			git.push("SessionBranch", "sshOrigin", false);
+			git.fetch("sshOrigin");
+
+			Assert.assertNotNull(repoUtil.getOriginRepo().exactRef("refs/heads/SessionBranch"));
+			Assert.assertEquals(1, sessionFactory.sessionCount);
+			Assert.assertEquals(0, sessionFactory.disconnectCount);
+			Assert.assertEquals(1, cache.getIdleCount());
+
+			cache.close();
+			Assert.assertEquals(1, sessionFactory.disconnectCount);
+			Assert.assertEquals(0, cache.getIdleCount());
+		}
+		finally
+		{
+			VCSGitSessionCache.setInstance(null);
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testClosedSession()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		final LocalSessionFactory sessionFactory = new LocalSessionFactory();
+		final VCSGitSessionCache cache = new VCSGitSessionCache(sessionFactory, 60);
+
+		VCSGitSessionCache.setInstance(cache);
+		try
+		{
+			addSshRemote(repoUtil);
+
+			final VCSAccess git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+
+			git.fetch("sshOrigin");
+			Assert.assertEquals(1, sessionFactory.sessionCount);
+
+			//
+			// The idle session was closed by the server, the fetch drops it and
+			// runs on a new session
+			//
+			sessionFactory.closeSessions();
+			git.fetch("sshOrigin");
+
+			Assert.assertEquals(2, sessionFactory.sessionCount);
+			Assert.assertEquals(1, sessionFactory.disconnectCount);
+			Assert.assertEquals(1, cache.getIdleCount());
+		}
+		finally
+		{
+			VCSGitSessionCache.setInstance(null);
+			repoUtil.close();
+		}
+	}
+
+	@Test
+	public void testCredentials()
+		throws IOException, URISyntaxException
+	{
+		final LocalSessionFactory sessionFactory = new LocalSessionFactory();
+		final VCSGitSessionCache cache = new VCSGitSessionCache(sessionFactory, 60);
+		final URIish uri = new URIish("ssh://junit@localhost/repository.git");
+
+		cache.releaseSession(cache.getSession(uri, new VCSGitImplCredentialsProvider(null,
+			"junit", "password"), FS.DETECTED, 0));
+		Assert.assertEquals(1, sessionFactory.sessionCount);
+
+		//
+		// Sessions are shared only by the same credentials
+		//
+		final RemoteSession otherSession = cache.getSession(uri,
+			new VCSGitImplCredentialsProvider(null, "junit", "otherPassword"), FS.DETECTED, 0);
+		Assert.assertEquals(2, sessionFactory.sessionCount);
+		cache.releaseSession(otherSession);
+
+		cache.releaseSession(cache.getSession(uri, new VCSGitImplCredentialsProvider(null,
+			"junit", "password"), FS.DETECTED, 0));
+		cache.releaseSession(cache.getSession(uri, null, FS.DETECTED, 0));
+		Assert.assertEquals(3, sessionFactory.sessionCount);
+		Assert.assertEquals(3, cache.getIdleCount());
+
+		cache.close();
+		Assert.assertEquals(3, sessionFactory.disconnectCount);
+	}
+
+	@Test
+	public void testIdleTimeout()
+		throws VCSException, IOException, InvalidRemoteException, TransportException,
+		GitAPIException
+	{
+		final JGitTestRepository repoUtil = new JGitTestRepository();
+		final LocalSessionFactory sessionFactory = new LocalSessionFactory();
+
+		//
+		// Without an idle time every operation connects again
+		//
+		VCSGitSessionCache.setInstance(new VCSGitSessionCache(sessionFactory, 0));
+		try
+		{
+			addSshRemote(repoUtil);
+
+			final VCSAccess git = new VCSGitImpl(repoUtil.getStandardFile(), null);
+
+			git.fetch("sshOrigin");
+			git.fetch("sshOrigin");
+
+			Assert.assertEquals(2, sessionFactory.sessionCount);
+			Assert.assertEquals(2, sessionFactory.disconnectCount);
+		}
+		finally
+		{
+			VCSGitSessionCache.setInstance(null);
+			repoUtil.close();
+		}
+	}
+}
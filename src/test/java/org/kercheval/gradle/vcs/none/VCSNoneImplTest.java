@@ -1,6 +1,7 @@
 package org.kercheval.gradle.vcs.none;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -8,6 +9,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.kercheval.gradle.vcs.VCSAccess;
 import org.kercheval.gradle.vcs.VCSException;
+import org.kercheval.gradle.vcs.VCSRefTransaction;
 import org.kercheval.gradle.vcs.VCSStatus;
 import org.kercheval.gradle.vcs.VCSTag;
 
@@ -27,6 +29,7 @@ public class VCSNoneImplTest
 		final VCSStatus status = vcs.getStatus();
 		Assert.assertNotNull(status);
 		Assert.assertTrue(status.isClean());
+		Assert.assertTrue(vcs.isClean());
 
 		List<VCSTag> tagList = vcs.getAllTags();
 		Assert.assertNotNull(tagList);
@@ -50,6 +53,24 @@ public class VCSNoneImplTest
 			// expected
 		}
 		try
+		{
+			vcs.createBranches(Arrays.asList("master", "release"), "origin", false);
+			Assert.fail("Expected exception");
+		}
+		catch (final VCSException e)
+		{
+			// expected
+		}
+		try
+		{
+			vcs.updateRefs(new VCSRefTransaction().createBranch("release", null));
+			Assert.fail("Expected exception");
+		}
+		catch (final VCSException e)
+		{
+			// expected
+		}
+		try
 		{
 			vcs.createTag(new VCSTag("name", "comment"));
 			Assert.fail("Expected exception");